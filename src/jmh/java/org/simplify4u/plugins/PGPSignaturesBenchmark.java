@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.simplify4u.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.operator.PGPContentVerifierBuilderProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simplify4u.plugins.utils.ContentVerifierBackend;
+import org.simplify4u.plugins.utils.GeneratedKeys;
+
+/**
+ * Verification of artifact signature for various artifact sizes, artifact is read from file
+ * like in plug-in, but file content is mostly in OS cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PGPSignaturesBenchmark {
+
+    // 1 KiB, 1 MiB, 64 MiB
+    @Param({"1024", "1048576", "67108864"})
+    private int artifactSize;
+
+    @Param({"SHA256", "SHA512"})
+    private String hashAlgorithm;
+
+    @Param({"BC", "JCA"})
+    private ContentVerifierBackend backend;
+
+    private File artifactFile;
+    private BcPGPKeyPair keyPair;
+    private PGPSignature signature;
+    private PGPContentVerifierBuilderProvider verifierProvider;
+
+    @Setup
+    public void setup() throws PGPException, IOException {
+        artifactFile = GeneratedKeys.randomFile(artifactSize);
+        keyPair = GeneratedKeys.keyPair(2048);
+        signature = GeneratedKeys.sign(keyPair, "SHA256".equals(hashAlgorithm)
+                ? HashAlgorithmTags.SHA256 : HashAlgorithmTags.SHA512, artifactFile);
+        verifierProvider = backend.getProvider();
+    }
+
+    @TearDown
+    public void tearDown() {
+        artifactFile.delete();
+    }
+
+    @Benchmark
+    public boolean verifySignature() throws PGPException, IOException {
+        signature.init(verifierProvider, keyPair.getPublicKey());
+        PGPSignatures.readFileContentInto(signature, artifactFile);
+        return signature.verify();
+    }
+
+    @Benchmark
+    public boolean verifySignatureAndChecksum() throws PGPException, IOException, NoSuchAlgorithmException {
+        signature.init(verifierProvider, keyPair.getPublicKey());
+        List<MessageDigest> digests = Collections.singletonList(MessageDigest.getInstance("SHA-1"));
+        PGPSignatures.readFileContentInto(Collections.singletonList(signature), digests, artifactFile);
+        return signature.verify() && digests.get(0).digest().length > 0;
+    }
+}
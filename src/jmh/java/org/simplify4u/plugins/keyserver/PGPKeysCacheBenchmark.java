@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.bouncycastle.bcpg.ArmoredOutputStream;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simplify4u.plugins.utils.GeneratedKeys;
+
+/**
+ * Taking key from keys cache.
+ * <p>
+ * Keys are delivered by in memory keys source, so for cold cache
+ * storing and verification of received key is measured without network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PGPKeysCacheBenchmark {
+
+    // never used - keys source always contains requested key
+    private static final String KEY_SERVER = "hkp://localhost";
+
+    /**
+     * Generated key ring shared by all benchmarks.
+     */
+    @State(Scope.Benchmark)
+    public static class KeyRing {
+
+        @Param({"1", "16"})
+        private int subKeys;
+
+        private long keyId;
+        private byte[] armoredKeyRing;
+
+        @Setup
+        public void setup() throws PGPException, IOException {
+            PGPPublicKeyRing keyRing = GeneratedKeys.keyRing(subKeys);
+            keyId = keyRing.getPublicKey().getKeyID();
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (ArmoredOutputStream armoredOutputStream = new ArmoredOutputStream(outputStream)) {
+                keyRing.encode(armoredOutputStream, true);
+            }
+            armoredKeyRing = outputStream.toByteArray();
+        }
+    }
+
+    /**
+     * Cache with own directory.
+     */
+    @State(Scope.Benchmark)
+    public abstract static class Cache {
+
+        @Param({"false", "true"})
+        private boolean packedStore;
+
+        private Path cachePath;
+        protected PGPKeysCache keysCache;
+
+        protected void createCache(KeyRing keyRing) throws IOException {
+            cachePath = Files.createTempDirectory("benchmark-keys-cache");
+            keysCache = new PGPKeysCache(cachePath.toFile(), Collections.singletonList(KEY_SERVER),
+                    false, false, null, false, packedStore, null)
+                    .withKeysSource(keyId -> Optional.of(keyRing.armoredKeyRing));
+        }
+
+        protected void deleteCache() throws IOException {
+            keysCache.close();
+            try (Stream<Path> paths = Files.walk(cachePath)) {
+                paths.sorted(Comparator.reverseOrder())
+                        .map(Path::toFile)
+                        .forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     * Cache with already received and verified key.
+     */
+    @State(Scope.Benchmark)
+    public static class WarmCache extends Cache {
+
+        @Setup(Level.Trial)
+        public void setup(KeyRing keyRing) throws IOException, PGPException {
+            createCache(keyRing);
+            keysCache.getKeyRing(keyRing.keyId);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteCache();
+        }
+    }
+
+    /**
+     * Empty cache for each invocation.
+     */
+    @State(Scope.Benchmark)
+    public static class ColdCache extends Cache {
+
+        @Setup(Level.Invocation)
+        public void setup(KeyRing keyRing) throws IOException {
+            createCache(keyRing);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            deleteCache();
+        }
+    }
+
+    @Benchmark
+    public PGPPublicKeyRing getKeyRingWarmCache(KeyRing keyRing, WarmCache cache) throws IOException, PGPException {
+        return cache.keysCache.getKeyRing(keyRing.keyId);
+    }
+
+    @Benchmark
+    public PGPPublicKeyRing getKeyRingColdCache(KeyRing keyRing, ColdCache cache) throws IOException, PGPException {
+        return cache.keysCache.getKeyRing(keyRing.keyId);
+    }
+}
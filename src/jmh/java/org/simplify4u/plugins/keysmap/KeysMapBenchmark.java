@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.simplify4u.plugins.keysmap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.util.encoders.Hex;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusContainerException;
+import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
+import org.codehaus.plexus.resource.loader.ResourceNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simplify4u.plugins.utils.GeneratedKeys;
+
+import static org.simplify4u.plugins.TestArtifactBuilder.testArtifact;
+
+/**
+ * Matching artifacts and keys against keys map with many entries.
+ * <p>
+ * Generated keys map contains one entry per group, every entry has own version range,
+ * so each lookup has to check all entries like for big projects keys maps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeysMapBenchmark {
+
+    private static final int KEYS_COUNT = 8;
+
+    @Param({"100", "1000"})
+    private int entries;
+
+    private DefaultPlexusContainer container;
+    private File keysMapFile;
+    private KeysMap keysMap;
+
+    private PGPPublicKeyRing[] keyRings;
+
+    private Artifact artifactFirst;
+    private Artifact artifactLast;
+    private Artifact artifactNotInMap;
+    private Artifact artifact;
+
+    private ArtifactInfo artifactInfoExact;
+    private ArtifactInfo artifactInfoWildcard;
+    private ArtifactInfo artifactInfoVersionRange;
+
+    @Setup
+    public void setup() throws PGPException, IOException, PlexusContainerException, ComponentLookupException,
+            ResourceNotFoundException {
+
+        keyRings = new PGPPublicKeyRing[KEYS_COUNT];
+        for (int i = 0; i < KEYS_COUNT; i++) {
+            keyRings[i] = GeneratedKeys.keyRing(0);
+        }
+
+        keysMapFile = File.createTempFile("benchmark-keysmap", ".list");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(keysMapFile.toPath(),
+                StandardCharsets.US_ASCII))) {
+            for (int i = 0; i < entries; i++) {
+                writer.printf("org.example.group%d:*:[1.0,%d.0) = 0x%s%n", i, i + 2,
+                        Hex.toHexString(keyRings[i % KEYS_COUNT].getPublicKey().getFingerprint()).toUpperCase());
+            }
+        }
+
+        container = new DefaultPlexusContainer();
+        keysMap = container.lookup(KeysMap.class);
+        keysMap.load(new SystemStreamLog(), keysMapFile.getAbsolutePath());
+
+        artifactFirst = testArtifact().groupId("org.example.group0").version("1.0").build();
+        artifactLast = testArtifact().groupId("org.example.group" + (entries - 1)).version("1.0").build();
+        artifactNotInMap = testArtifact().groupId("org.example.other").version("1.0").build();
+        artifact = testArtifact().build();
+
+        artifactInfoExact = new ArtifactInfo("test.group:test:jar:1.1.1", new KeyInfo("*"));
+        artifactInfoWildcard = new ArtifactInfo("test.*:te*st", new KeyInfo("*"));
+        artifactInfoVersionRange = new ArtifactInfo("test.group:test:[1.0,2.0)", new KeyInfo("*"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        container.dispose();
+        keysMapFile.delete();
+    }
+
+    @Benchmark
+    public boolean isValidKeyFirstEntry() {
+        return isValidKey(artifactFirst, keyRings[0]);
+    }
+
+    @Benchmark
+    public boolean isValidKeyLastEntry() {
+        return isValidKey(artifactLast, keyRings[(entries - 1) % KEYS_COUNT]);
+    }
+
+    @Benchmark
+    public boolean isValidKeyNotInMap() {
+        return isValidKey(artifactNotInMap, keyRings[0]);
+    }
+
+    @Benchmark
+    public boolean isMatchExact() {
+        return artifactInfoExact.isMatch(artifact);
+    }
+
+    @Benchmark
+    public boolean isMatchWildcard() {
+        return artifactInfoWildcard.isMatch(artifact);
+    }
+
+    @Benchmark
+    public boolean isMatchVersionRange() {
+        return artifactInfoVersionRange.isMatch(artifact);
+    }
+
+    private boolean isValidKey(Artifact artifact, PGPPublicKeyRing keyRing) {
+        PGPPublicKey key = keyRing.getPublicKey();
+        return keysMap.isValidKey(artifact, key, keyRing);
+    }
+}
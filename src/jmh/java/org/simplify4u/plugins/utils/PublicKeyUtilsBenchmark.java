@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.bcpg.ArmoredOutputStream;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading of key rings with many sub keys, as it is done for each key taken from keys cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PublicKeyUtilsBenchmark {
+
+    @Param({"1", "16", "64"})
+    private int subKeys;
+
+    private byte[] armoredKeyRing;
+    private long lastSubKeyId;
+
+    @Setup
+    public void setup() throws PGPException, IOException {
+        PGPPublicKeyRing keyRing = GeneratedKeys.keyRing(subKeys);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ArmoredOutputStream armoredOutputStream = new ArmoredOutputStream(outputStream)) {
+            keyRing.encode(armoredOutputStream, true);
+        }
+        armoredKeyRing = outputStream.toByteArray();
+
+        Iterator<PGPPublicKey> keys = keyRing.getPublicKeys();
+        while (keys.hasNext()) {
+            lastSubKeyId = keys.next().getKeyID();
+        }
+    }
+
+    /**
+     * Implementation used for verification of sub keys.
+     */
+    @State(Scope.Benchmark)
+    public static class Backend {
+        @Param({"BC", "JCA"})
+        private ContentVerifierBackend backend;
+    }
+
+    @Benchmark
+    public PGPPublicKeyRing loadPublicKeyRing(Backend backend) throws IOException, PGPException {
+        PGPPublicKeyRing keyRing = PublicKeyUtils.loadPublicKeyRing(
+                new ByteArrayInputStream(armoredKeyRing), lastSubKeyId, false).get();
+        PublicKeyUtils.verifyPublicKeyRing(keyRing, backend.backend.getProvider());
+        return keyRing;
+    }
+
+    @Benchmark
+    public Optional<PGPPublicKeyRing> loadPublicKeyRingWithoutVerification() throws IOException, PGPException {
+        return PublicKeyUtils.loadPublicKeyRing(new ByteArrayInputStream(armoredKeyRing), lastSubKeyId, false);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.utils;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Implementation of {@link FlightEvent} by JFR events, it is the only class which uses <code>jdk.jfr</code>.
+ * <p>
+ * It is compiled only by <code>jfr</code> profile on JDK 11+ and loaded by reflection,
+ * so plugin works without it on JVMs without JFR.
+ */
+final class JfrFlightEvent extends FlightEvent {
+
+    private static final String NAME_PREFIX = "org.simplify4u.pgpverify.";
+
+    private final PGPVerifyEvent event;
+
+    private JfrFlightEvent(PGPVerifyEvent event) {
+        this.event = event;
+    }
+
+    /**
+     * Entry point loaded by {@link FlightEvent}.
+     */
+    static final class JfrRecorder implements FlightEvent.Recorder {
+
+        @Override
+        public boolean isAvailable() {
+            return FlightRecorder.isAvailable();
+        }
+
+        @Override
+        public FlightEvent begin(FlightEvent.Type type, Object subject, FlightEvent disabled) {
+            return JfrFlightEvent.begin(type, subject, disabled);
+        }
+    }
+
+    /**
+     * Begin event of given type, when event is not enabled in current recordings nothing is recorded.
+     */
+    static FlightEvent begin(FlightEvent.Type type, Object subject, FlightEvent disabled) {
+        PGPVerifyEvent event = create(type);
+        if (!event.isEnabled()) {
+            return disabled;
+        }
+        event.subject(describe(subject));
+        event.begin();
+        return new JfrFlightEvent(event);
+    }
+
+    private static PGPVerifyEvent create(FlightEvent.Type type) {
+        switch (type) {
+            case RESOLVE_ARTIFACT:
+                return new ResolveArtifactEvent();
+            case RESOLVE_SIGNATURE:
+                return new ResolveSignatureEvent();
+            case GET_KEY_RING:
+                return new GetKeyRingEvent();
+            case KEY_SERVER_REQUEST:
+                return new KeyServerRequestEvent();
+            case VERIFY_SIGNATURE:
+                return new VerifySignatureEvent();
+            default:
+                throw new UnsupportedOperationException("Unsupported event type: " + type);
+        }
+    }
+
+    private static String describe(Object subject) {
+        if (subject instanceof Artifact) {
+            return ((Artifact) subject).getId();
+        }
+        if (subject instanceof Long) {
+            return String.format("0x%016X", (Long) subject);
+        }
+        return String.valueOf(subject);
+    }
+
+    @Override
+    public FlightEvent bytes(long bytes) {
+        event.bytes(bytes);
+        return this;
+    }
+
+    @Override
+    public FlightEvent bytes(File file) {
+        if (file != null) {
+            event.bytes(file.length());
+        }
+        return this;
+    }
+
+    @Override
+    public FlightEvent outcome(String outcome) {
+        event.outcome = outcome;
+        return this;
+    }
+
+    @Override
+    public FlightEvent failed(Throwable e) {
+        event.outcome = ExceptionUtils.getMessage(e);
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (event.outcome == null) {
+            event.outcome = "error";
+        }
+        event.commit();
+    }
+
+    @Category({"Maven", "PGPVerify"})
+    @StackTrace(false)
+    abstract static class PGPVerifyEvent extends Event {
+
+        @Label("Outcome")
+        String outcome;
+
+        abstract void subject(String subject);
+
+        void bytes(long bytes) {
+            // event without bytes
+        }
+    }
+
+    @Name(NAME_PREFIX + "ResolveArtifact")
+    @Label("Resolve Artifact")
+    @Description("Resolving of artifact or its pom from Maven repositories")
+    static final class ResolveArtifactEvent extends PGPVerifyEvent {
+
+        @Label("Artifact")
+        String artifact;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+        @Override
+        void subject(String subject) {
+            artifact = subject;
+        }
+
+        @Override
+        void bytes(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    @Name(NAME_PREFIX + "ResolveSignature")
+    @Label("Resolve Signature")
+    @Description("Resolving of artifact signature from Maven repositories")
+    static final class ResolveSignatureEvent extends PGPVerifyEvent {
+
+        @Label("Artifact")
+        String artifact;
+
+        @Override
+        void subject(String subject) {
+            artifact = subject;
+        }
+    }
+
+    @Name(NAME_PREFIX + "GetKeyRing")
+    @Label("Get Key Ring")
+    @Description("Taking key from keys cache, key is received from keys source or key servers if needed")
+    static final class GetKeyRingEvent extends PGPVerifyEvent {
+
+        @Label("Key ID")
+        String keyId;
+
+        @Override
+        void subject(String subject) {
+            keyId = subject;
+        }
+    }
+
+    @Name(NAME_PREFIX + "KeyServerRequest")
+    @Label("Key Server Request")
+    @Description("One HTTP attempt of key request to key server")
+    static final class KeyServerRequestEvent extends PGPVerifyEvent {
+
+        @Label("URI")
+        String uri;
+
+        @Label("Received")
+        @DataAmount
+        long bytes;
+
+        @Override
+        void subject(String subject) {
+            uri = subject;
+        }
+
+        @Override
+        void bytes(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    @Name(NAME_PREFIX + "VerifySignature")
+    @Label("Verify Signature")
+    @Description("Verification of artifact signatures and checksums")
+    static final class VerifySignatureEvent extends PGPVerifyEvent {
+
+        @Label("Artifact")
+        String artifact;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+        @Override
+        void subject(String subject) {
+            artifact = subject;
+        }
+
+        @Override
+        void bytes(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.simplify4u.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.maven.plugin.logging.Log;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Checksums of artifact from repository, stored in local repository next to artifact
+ * in files like <code>artifact.jar.sha1</code>.
+ * <p>
+ * Message digests are computed while artifact is read for signature verification,
+ * so checksums are verified without additional reading of artifact.
+ */
+final class ArtifactChecksums {
+
+    // checksum file extension - message digest algorithm
+    private static final Map<String, String> ALGORITHMS;
+
+    static {
+        Map<String, String> algorithms = new LinkedHashMap<>();
+        algorithms.put("sha512", "SHA-512");
+        algorithms.put("sha256", "SHA-256");
+        algorithms.put("sha1", "SHA-1");
+        ALGORITHMS = Collections.unmodifiableMap(algorithms);
+    }
+
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+    private static final Pattern HEX = Pattern.compile("[0-9a-f]+");
+
+    private static final ArtifactChecksums NONE = new ArtifactChecksums(Collections.emptyList());
+
+    private final List<Checksum> checksums;
+
+    private ArtifactChecksums(List<Checksum> checksums) {
+        this.checksums = checksums;
+    }
+
+    /**
+     * No checksums to verify.
+     *
+     * @return empty checksums
+     */
+    static ArtifactChecksums none() {
+        return NONE;
+    }
+
+    /**
+     * Load checksums for given artifact file, from all existing checksum files.
+     * <p>
+     * Checksum files which do not contain checksum of expected algorithm are skipped with warning.
+     *
+     * @param artifactFile artifact file
+     * @param log          Maven log for warnings about invalid checksum files
+     * @return checksums of artifact, empty if there are no valid checksum files
+     * @throws IOException in case of problem with reading checksum file
+     */
+    static ArtifactChecksums load(File artifactFile, Log log) throws IOException {
+        List<Checksum> checksums = new ArrayList<>();
+        for (Map.Entry<String, String> algorithm : ALGORITHMS.entrySet()) {
+            File checksumFile = new File(artifactFile.getPath() + "." + algorithm.getKey());
+            if (checksumFile.isFile()) {
+                MessageDigest digest = createDigest(algorithm.getValue());
+                String expected = readChecksum(checksumFile);
+                if (expected.length() == digest.getDigestLength() * 2 && HEX.matcher(expected).matches()) {
+                    checksums.add(new Checksum(checksumFile, expected, digest));
+                } else {
+                    log.warn("Skip invalid checksum file: " + checksumFile);
+                }
+            }
+        }
+        return checksums.isEmpty() ? NONE : new ArtifactChecksums(checksums);
+    }
+
+    private static String readChecksum(File file) throws IOException {
+        // file can contain checksum and file name, like output of sha1sum
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim();
+        return WHITESPACES.split(content, 2)[0].toLowerCase(Locale.ROOT);
+    }
+
+    private static MessageDigest createDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1, SHA-256 and SHA-512 are required by Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    boolean isEmpty() {
+        return checksums.isEmpty();
+    }
+
+    /**
+     * Message digests which should be updated with artifact content.
+     *
+     * @return message digests
+     */
+    List<MessageDigest> getDigests() {
+        return checksums.stream().map(checksum -> checksum.digest).collect(Collectors.toList());
+    }
+
+    /**
+     * Compare computed digests with checksums, should be called once after whole artifact is read.
+     *
+     * @return description of not matching checksums, empty if all checksums match
+     */
+    List<String> mismatches() {
+        List<String> result = new ArrayList<>();
+        for (Checksum checksum : checksums) {
+            String actual = Hex.toHexString(checksum.digest.digest());
+            if (!actual.equals(checksum.expected)) {
+                result.add(String.format("%s expected: %s actual: %s",
+                        checksum.file.getName(), checksum.expected, actual));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return checksums.stream().map(checksum -> checksum.file.getName()).collect(Collectors.joining(", "));
+    }
+
+    private static final class Checksum {
+        private final File file;
+        private final String expected;
+        private final MessageDigest digest;
+
+        private Checksum(File file, String expected, MessageDigest digest) {
+            this.file = file;
+            this.expected = expected;
+            this.digest = digest;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.simplify4u.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.repository.RepositorySystem;
+import org.simplify4u.plugins.keyserver.PGPKeysSource;
+
+/**
+ * Source of public keys published as artifacts in Maven repositories.
+ * <p>
+ * Coordinates of key artifact are given by template <code>groupId:artifactId:version[:type[:classifier]]</code>,
+ * where <code>{keyId}</code> is replaced by 16 hex digits of key ID, eg:
+ * <code>org.example.pgpkeys:key-{keyId}:1.0:asc</code>. Default type is <code>asc</code>.
+ * <p>
+ * Key artifacts are resolved like dependencies, so they are cached in local repository
+ * and by repository managers.
+ */
+final class ArtifactKeysSource implements PGPKeysSource {
+
+    static final String KEY_ID_PLACEHOLDER = "{keyId}";
+
+    private static final String DEFAULT_TYPE = "asc";
+
+    private final Log log;
+    private final RepositorySystem repositorySystem;
+    private final ArtifactRepository localRepository;
+    private final List<ArtifactRepository> remoteRepositories;
+    private final String[] coordinates;
+
+    ArtifactKeysSource(Log log, RepositorySystem repositorySystem, ArtifactRepository localRepository,
+            List<ArtifactRepository> remoteRepositories, String coordinatesTemplate) {
+        this.log = requireNonNull(log);
+        this.repositorySystem = requireNonNull(repositorySystem);
+        this.localRepository = requireNonNull(localRepository);
+        this.remoteRepositories = requireNonNull(remoteRepositories);
+        this.coordinates = parseTemplate(coordinatesTemplate);
+    }
+
+    private static String[] parseTemplate(String template) {
+        final String[] parts = requireNonNull(template).trim().split(":", -1);
+        if (parts.length < 3 || parts.length > 5) {
+            throw new IllegalArgumentException("Invalid key artifact coordinates: " + template
+                    + ", expected groupId:artifactId:version[:type[:classifier]]");
+        }
+        for (String part : parts) {
+            if (part.isEmpty()) {
+                throw new IllegalArgumentException("Invalid key artifact coordinates: " + template);
+            }
+        }
+        if (!template.contains(KEY_ID_PLACEHOLDER)) {
+            throw new IllegalArgumentException("Key artifact coordinates must contain " + KEY_ID_PLACEHOLDER
+                    + ": " + template);
+        }
+        return parts;
+    }
+
+    /**
+     * Artifact for given key ID.
+     *
+     * @param keyId
+     *         key ID
+     *
+     * @return artifact, not resolved yet
+     */
+    Artifact keyArtifact(long keyId) {
+        final String keyIdHex = String.format("%016X", keyId);
+        final String[] parts = new String[5];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = i < coordinates.length ? coordinates[i].replace(KEY_ID_PLACEHOLDER, keyIdHex) : null;
+        }
+
+        return repositorySystem.createArtifactWithClassifier(parts[0], parts[1], parts[2],
+                Optional.ofNullable(parts[3]).orElse(DEFAULT_TYPE), parts[4]);
+    }
+
+    @Override
+    public Optional<byte[]> getKeyRing(long keyId) throws IOException {
+        final Artifact artifact = keyArtifact(keyId);
+
+        final ArtifactResolutionRequest request = new ArtifactResolutionRequest();
+        request.setArtifact(artifact);
+        request.setResolveTransitively(false);
+        request.setLocalRepository(localRepository);
+        request.setRemoteRepositories(remoteRepositories);
+
+        final ArtifactResolutionResult result = repositorySystem.resolve(request);
+        if (!result.isSuccess() || artifact.getFile() == null) {
+            result.getExceptions().forEach(
+                    e -> log.debug("Failed to resolve key " + artifact.getId() + ": " + e.getMessage()));
+            return Optional.empty();
+        }
+
+        log.debug("Key artifact " + artifact.getId() + " " + artifact.getFile());
+        return Optional.of(Files.readAllBytes(artifact.getFile().toPath()));
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.simplify4u.plugins;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -40,7 +41,9 @@ import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.repository.RepositorySystem;
 import org.simplify4u.plugins.skipfilters.SkipFilter;
+import org.simplify4u.plugins.utils.FlightEvent;
 import org.simplify4u.plugins.utils.MavenCompilerUtils;
+import org.simplify4u.plugins.utils.PhaseMetrics;
 
 /**
  * Artifact resolver for project dependencies, build plug-ins, and build plug-in dependencies.
@@ -63,16 +66,43 @@ final class ArtifactResolver {
      */
     private final List<ArtifactRepository> remoteRepositoriesIgnoreCheckSum;
 
+    /**
+     * Walker for transitive dependencies of build plug-ins, their dependencies and annotation processors,
+     * {@code null} if only immediate dependencies should be verified.
+     */
+    private final DependencyGraphWalker graphWalker;
+
+    private PhaseMetrics metrics = new PhaseMetrics();
+
     ArtifactResolver(Log log, RepositorySystem repositorySystem, ArtifactRepository localRepository,
                      List<ArtifactRepository> remoteRepositories) {
+        this(log, repositorySystem, localRepository, remoteRepositories, null);
+    }
+
+    ArtifactResolver(Log log, RepositorySystem repositorySystem, ArtifactRepository localRepository,
+                     List<ArtifactRepository> remoteRepositories, DependencyGraphWalker graphWalker) {
         this.log = requireNonNull(log);
         this.repositorySystem = requireNonNull(repositorySystem);
         this.localRepository = requireNonNull(localRepository);
         this.remoteRepositories = requireNonNull(remoteRepositories);
+        this.graphWalker = graphWalker;
 
         this.remoteRepositoriesIgnoreCheckSum = repositoriesIgnoreCheckSum(remoteRepositories);
     }
 
+    /**
+     * Collect number of artifacts and times of resolving in given metrics.
+     *
+     * @param metrics
+     *         metrics of verification phases
+     *
+     * @return this resolver
+     */
+    ArtifactResolver withMetrics(PhaseMetrics metrics) {
+        this.metrics = requireNonNull(metrics);
+        return this;
+    }
+
     /**
      * Wrap remote repository with ignore check sum policy.
      *
@@ -118,33 +148,93 @@ final class ArtifactResolver {
      *
      * @return Returns set of all artifacts whose signature needs to be verified.
      */
-    @SuppressWarnings({"deprecation", "java:S1874"})
+    // used by test
     Set<Artifact> resolveProjectArtifacts(MavenProject project, Configuration config) throws MojoExecutionException {
-        final LinkedHashSet<Artifact> allArtifacts = new LinkedHashSet<>(
-                resolveArtifacts(project.getArtifacts(), config.dependencyFilter, config.verifyPomFiles));
+        final Map<String, Artifact> allArtifacts = new LinkedHashMap<>();
+        for (ProjectArtifact projectArtifact : collectProjectArtifacts(project, config)) {
+            final Artifact resolved = resolveProjectArtifact(projectArtifact);
+            if (resolved != null) {
+                allArtifacts.putIfAbsent(coordinatesKey(resolved), resolved);
+            }
+        }
+        return new LinkedHashSet<>(allArtifacts.values());
+    }
+
+    /**
+     * Collect artifacts of project whose signature needs to be verified, artifacts are not resolved yet.
+     * <p>
+     * Only coordinates are determined here, so artifacts can be resolved and verified one by one
+     * by {@link #resolveProjectArtifact(ProjectArtifact)}.
+     *
+     * @param project
+     *         the maven project instance
+     * @param config
+     *         configuration for the artifact resolver
+     *
+     * @return artifacts to resolve, in project order
+     */
+    @SuppressWarnings({"deprecation", "java:S1874"})
+    List<ProjectArtifact> collectProjectArtifacts(MavenProject project, Configuration config)
+            throws MojoExecutionException {
+        // the same coordinates can come from many sources, each of them should be processed only once
+        final Map<String, ProjectArtifact> allArtifacts = new LinkedHashMap<>();
+        collectArtifacts(project.getArtifacts(), config.dependencyFilter, config.verifyPomFiles, allArtifacts);
         if (config.verifyPlugins) {
-            allArtifacts.addAll(resolveArtifacts(project.getPluginArtifacts(), config.pluginFilter,
-                    config.verifyPomFiles));
-            allArtifacts.addAll(resolveArtifacts(project.getReportArtifacts(), config.pluginFilter,
-                    config.verifyPomFiles));
+            collectArtifacts(withTransitive(project.getPluginArtifacts()),
+                    config.pluginFilter, config.verifyPomFiles, allArtifacts);
+            collectArtifacts(project.getReportArtifacts(), config.pluginFilter, config.verifyPomFiles, allArtifacts);
             // Maven does not allow specifying version ranges for build plug-in dependencies, therefore we can use the
             // literal specified dependency.
-            allArtifacts.addAll(resolveArtifacts(
+            collectArtifacts(withTransitive(
                     project.getBuildPlugins().stream()
                             .flatMap(p -> p.getDependencies().stream())
                             .map(repositorySystem::createDependencyArtifact)
-                            .collect(Collectors.toList()),
-                    config.dependencyFilter, config.verifyPomFiles));
+                            .collect(Collectors.toList())),
+                    config.dependencyFilter, config.verifyPomFiles, allArtifacts);
         }
         if (config.verifyAtypical) {
             // verify artifacts in atypical locations, such as references in configuration.
-            allArtifacts.addAll(resolveArtifacts(searchCompilerAnnotationProcessors(project), config.dependencyFilter,
-                    config.verifyPomFiles));
+            collectArtifacts(withTransitive(searchCompilerAnnotationProcessors(project)),
+                    config.dependencyFilter, config.verifyPomFiles, allArtifacts);
         }
-        // TODO: only immediate dependencies are validated for build plug-in dependencies and maven-compiler-plugin
-        //  annotation processors). Indirect dependencies (transitive closure) are not resolved yet.
-        log.debug("Discovered project artifacts: " + allArtifacts);
-        return allArtifacts;
+        log.debug("Discovered project artifacts: " + allArtifacts.keySet());
+        metrics.add(PhaseMetrics.ARTIFACTS, allArtifacts.size());
+        return new ArrayList<>(allArtifacts.values());
+    }
+
+    /**
+     * Canonical key of artifact coordinates: groupId, artifactId, type, classifier and version.
+     *
+     * @param artifact
+     *         the artifact
+     *
+     * @return coordinates key, version range is used if version of artifact is not determined yet
+     */
+    static String coordinatesKey(Artifact artifact) {
+        final String version = Optional.ofNullable(artifact.getVersion())
+                .orElseGet(() -> String.valueOf(artifact.getVersionRange()));
+        return artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getType()
+                + ':' + Optional.ofNullable(artifact.getClassifier()).orElse("") + ':' + version;
+    }
+
+    /**
+     * Extend given artifacts by their transitive dependencies, if transitive resolving is enabled.
+     *
+     * @param artifacts
+     *         the root artifacts
+     *
+     * @return root artifacts followed by their transitive dependencies
+     */
+    private Collection<Artifact> withTransitive(Collection<Artifact> artifacts) throws MojoExecutionException {
+        if (graphWalker == null) {
+            // only immediate dependencies are verified
+            return artifacts;
+        }
+        final LinkedHashSet<Artifact> result = new LinkedHashSet<>(artifacts);
+        for (Artifact artifact : artifacts) {
+            result.addAll(graphWalker.collectTransitive(artifact));
+        }
+        return result;
     }
 
     private Collection<Artifact> searchCompilerAnnotationProcessors(MavenProject project) {
@@ -157,45 +247,37 @@ final class ArtifactResolver {
     /**
      * Retrieves the PGP signature file that corresponds to the given Maven artifact.
      *
-     * @param artifacts
-     *         The artifacts for which a signatures are desired.
+     * @param artifact
+     *         The artifact for which a signature is desired.
+     * @param requirement
+     *         The signature requirement, which determines how a missing signature is reported.
      *
      * @return Either a Maven artifact for the signature file, or {@code null} if the signature
      * file could not be retrieved.
      *
      * @throws MojoExecutionException
-     *         If the signature could not be retrieved and the Mojo has been configured to fail
-     *         on a missing signature.
+     *         If the signature could not be retrieved and the signature is required.
      */
-    Map<Artifact, Artifact> resolveSignatures(Iterable<Artifact> artifacts, SignatureRequirement requirement)
-            throws MojoExecutionException {
-        log.debug("Start resolving ASC files");
-
-        final LinkedHashMap<Artifact, Artifact> artifactToAsc = new LinkedHashMap<>();
-        for (Artifact artifact : artifacts) {
-            final Artifact ascArtifact = resolveSignature(artifact, requirement);
-
-            if (ascArtifact != null || requirement == SignatureRequirement.STRICT) {
-                artifactToAsc.put(artifact, ascArtifact);
-            }
-        }
-
-        return artifactToAsc;
-    }
-
-    private Artifact resolveSignature(Artifact artifact, SignatureRequirement requirement)
+    Artifact resolveSignature(Artifact artifact, SignatureRequirement requirement)
             throws MojoExecutionException {
         final Artifact aAsc = repositorySystem.createArtifactWithClassifier(
                 artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
                 artifact.getType(), artifact.getClassifier());
         aAsc.setArtifactHandler(new AscArtifactHandler(aAsc));
 
-        final ArtifactResolutionResult ascResult = request(aAsc, remoteRepositoriesIgnoreCheckSum);
+        final ArtifactResolutionResult ascResult;
+        try (PhaseMetrics.Timer ignored = metrics.start(PhaseMetrics.RESOLVE_SIGNATURE);
+             FlightEvent event = FlightEvent.resolveSignature(artifact)) {
+            ascResult = request(aAsc, remoteRepositoriesIgnoreCheckSum);
+            event.outcome(ascResult.isSuccess() ? "found" : "missing");
+        }
         if (ascResult.isSuccess()) {
             log.debug(aAsc.toString() + " " + aAsc.getFile());
             return aAsc;
         }
 
+        metrics.increment(PhaseMetrics.SIGNATURES_MISSING);
+
         switch (requirement) {
             case NONE:
                 log.warn("No signature for " + artifact.getId());
@@ -216,47 +298,71 @@ final class ArtifactResolver {
     }
 
     /**
-     * Resolve all dependencies provided as input. POMs corresponding to the dependencies may optionally be resolved.
+     * Collect all dependencies provided as input. POMs corresponding to the dependencies may optionally be collected.
      *
      * @param artifacts
-     *         Dependencies to be resolved.
+     *         Dependencies to be collected.
      * @param filter
      *         Skip filter to test against to determine whether dependency must be skipped.
      * @param verifyPom
-     *         Boolean indicating whether or not POMs corresponding to dependencies should be resolved.
-     *
-     * @return Returns set of resolved artifacts, which may contain artifacts of which the definite version cannot be
-     * determined yet.
+     *         Boolean indicating whether or not POMs corresponding to dependencies should be collected.
+     * @param collection
+     *         Collected artifacts by coordinates key, artifacts already present are not collected again.
      */
-    private Set<Artifact> resolveArtifacts(Iterable<Artifact> artifacts, SkipFilter filter, boolean verifyPom)
-            throws MojoExecutionException {
-        final LinkedHashSet<Artifact> collection = new LinkedHashSet<>();
+    private void collectArtifacts(Iterable<Artifact> artifacts, SkipFilter filter, boolean verifyPom,
+            Map<String, ProjectArtifact> collection) {
         for (final Artifact artifact : artifacts) {
-            final Artifact resolved = resolveArtifact(artifact);
+            final String key = coordinatesKey(artifact);
+            if (collection.containsKey(key)) {
+                log.debug("Skipping already processed artifact: " + artifact);
+                continue;
+            }
+            // filters depend only on artifact coordinates and scope, so skipped artifacts are never resolved
             if (filter.shouldSkipArtifact(artifact)) {
                 log.debug("Skipping artifact: " + artifact);
                 continue;
             }
-            if (!resolved.isResolved()) {
-                throw new MojoExecutionException("Failed to resolve artifact: " + artifact);
-            }
-            collection.add(resolved);
+            collection.put(key, new ProjectArtifact(artifact, true));
             if (verifyPom) {
-                final Artifact resolvedPom = resolvePom(artifact);
-                if (resolvedPom.isResolved()) {
-                    collection.add(resolvedPom);
-                } else {
-                    log.warn("Failed to resolve pom artifact: " + resolvedPom);
-                }
+                final Artifact pomArtifact = repositorySystem.createProjectArtifact(artifact.getGroupId(),
+                        artifact.getArtifactId(), artifact.getVersion());
+                // e.g. the same pom for many classifiers of artifact
+                collection.putIfAbsent(coordinatesKey(pomArtifact), new ProjectArtifact(pomArtifact, false));
             }
         }
-        return collection;
     }
 
-    private Artifact resolvePom(Artifact artifact) {
-        final Artifact pomArtifact = repositorySystem.createProjectArtifact(artifact.getGroupId(),
-                artifact.getArtifactId(), artifact.getVersion());
-        final ArtifactResolutionResult result = request(pomArtifact, remoteRepositories);
+    /**
+     * Resolve artifact of project.
+     *
+     * @param projectArtifact
+     *         artifact collected by {@link #collectProjectArtifacts(MavenProject, Configuration)}
+     *
+     * @return resolved artifact, {@code null} if optional artifact can not be resolved
+     *
+     * @throws MojoExecutionException
+     *         if required artifact can not be resolved
+     */
+    Artifact resolveProjectArtifact(ProjectArtifact projectArtifact) throws MojoExecutionException {
+        final Artifact artifact = projectArtifact.getArtifact();
+        if (!projectArtifact.isRequired()) {
+            final Artifact resolvedPom = resolvePom(artifact);
+            if (resolvedPom.isResolved()) {
+                return resolvedPom;
+            }
+            log.warn("Failed to resolve pom artifact: " + resolvedPom);
+            return null;
+        }
+
+        final Artifact resolved = resolveArtifact(artifact);
+        if (!resolved.isResolved()) {
+            throw new MojoExecutionException("Failed to resolve artifact: " + artifact);
+        }
+        return resolved;
+    }
+
+    private Artifact resolvePom(Artifact pomArtifact) {
+        final ArtifactResolutionResult result = request(pomArtifact, PhaseMetrics.RESOLVE_POM);
         if (!result.isSuccess()) {
             result.getExceptions().forEach(
                     e -> log.debug("Failed to resolve pom " + pomArtifact.getId() + ": " + e.getMessage()));
@@ -265,7 +371,7 @@ final class ArtifactResolver {
     }
 
     private Artifact resolveArtifact(Artifact artifact) {
-        final ArtifactResolutionResult result = request(artifact, remoteRepositories);
+        final ArtifactResolutionResult result = request(artifact, PhaseMetrics.RESOLVE_ARTIFACT);
         if (!result.isSuccess()) {
             result.getExceptions().forEach(e -> {
                 log.warn("Failed to resolve " + artifact.getId() + ": " + e.getMessage());
@@ -275,6 +381,22 @@ final class ArtifactResolver {
         return artifact;
     }
 
+    /**
+     * Resolve artifact or pom from remote repositories, resolving is measured as given phase.
+     */
+    private ArtifactResolutionResult request(Artifact artifact, String phase) {
+        try (PhaseMetrics.Timer ignored = metrics.start(phase);
+             FlightEvent event = FlightEvent.resolveArtifact(artifact)) {
+            final ArtifactResolutionResult result = request(artifact, remoteRepositories);
+            if (result.isSuccess()) {
+                event.outcome("resolved").bytes(artifact.getFile());
+            } else {
+                event.outcome("failed");
+            }
+            return result;
+        }
+    }
+
     private ArtifactResolutionResult request(Artifact artifact, List<ArtifactRepository> remoteRepositoriesToResolve) {
         final ArtifactResolutionRequest request = new ArtifactResolutionRequest();
         request.setArtifact(artifact);
@@ -285,6 +407,37 @@ final class ArtifactResolver {
         return repositorySystem.resolve(request);
     }
 
+    /**
+     * Artifact of project which should be resolved and verified.
+     */
+    static final class ProjectArtifact {
+        private final Artifact artifact;
+        private final boolean required;
+
+        ProjectArtifact(Artifact artifact, boolean required) {
+            this.artifact = requireNonNull(artifact);
+            this.required = required;
+        }
+
+        Artifact getArtifact() {
+            return artifact;
+        }
+
+        /**
+         * Pom files are optional, failure of their resolving is only reported.
+         *
+         * @return {@code true} if artifact must be resolved
+         */
+        boolean isRequired() {
+            return required;
+        }
+
+        @Override
+        public String toString() {
+            return artifact.toString();
+        }
+    }
+
     /**
      * Enum specifying the levels of signature requirements.
      */
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.collection.DependencyCollectionException;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * Walker for transitive dependencies of artifacts which are not resolved by Maven for project,
+ * like build plug-in dependencies and annotation processors.
+ * <p>
+ * Dependency graph is collected by Maven repository system with rules of current session,
+ * so relocations, optional dependencies, scopes, dependency management and version selection
+ * are the same as in Maven. Artifact descriptors are cached by repository system in session cache,
+ * collected graphs are memoized in repository session data, so subtrees shared by many plug-ins,
+ * like plexus or commons libraries, are read only once per session.
+ */
+final class DependencyGraphWalker {
+
+    private static final String CACHE_KEY = DependencyGraphWalker.class.getName() + ".dependencies";
+
+    private final Log log;
+    private final RepositorySystem repositorySystem;
+    private final RepositorySystemSession session;
+    private final List<RemoteRepository> repositories;
+    private final Map<String, DependencyNode> sessionCache;
+
+    DependencyGraphWalker(Log log, RepositorySystem repositorySystem, RepositorySystemSession session,
+            List<RemoteRepository> repositories) {
+        this.log = requireNonNull(log);
+        this.repositorySystem = requireNonNull(repositorySystem);
+        this.session = requireNonNull(session);
+        this.repositories = requireNonNull(repositories);
+        this.sessionCache = sessionCache(session);
+    }
+
+    /**
+     * Session data can be shared by different versions of plug-in loaded in different class realms,
+     * so only JDK and Maven core types are stored in it.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, DependencyNode> sessionCache(RepositorySystemSession session) {
+        SessionData data = session.getData();
+        Map<String, DependencyNode> newCache = new ConcurrentHashMap<>();
+        if (data.set(CACHE_KEY, null, newCache)) {
+            return newCache;
+        }
+        return (Map<String, DependencyNode>) data.get(CACHE_KEY);
+    }
+
+    /**
+     * Collect transitive dependencies of given root artifact.
+     *
+     * @param root
+     *         artifact for which transitive dependencies are collected
+     *
+     * @return transitive dependencies of root artifact, root artifact is not included
+     *
+     * @throws MojoExecutionException
+     *         in case of problem with reading of dependency descriptors
+     */
+    Collection<org.apache.maven.artifact.Artifact> collectTransitive(org.apache.maven.artifact.Artifact root)
+            throws MojoExecutionException {
+
+        final ArtifactFilter rootFilter = root.getDependencyFilter();
+        final DependencyNode rootNode = collectGraph(RepositoryUtils.toArtifact(root));
+
+        // nodes are visited level by level, like they are selected by nearest wins strategy
+        final Map<String, Artifact> selected = new LinkedHashMap<>();
+        final Deque<DependencyNode> queue = new ArrayDeque<>(rootNode.getChildren());
+        while (!queue.isEmpty()) {
+            final DependencyNode node = queue.poll();
+            final Artifact artifact = node.getArtifact();
+            final String key = versionlessKey(artifact);
+            if (selected.containsKey(key)
+                    || (rootFilter != null && !rootFilter.include(RepositoryUtils.toArtifact(artifact)))) {
+                continue;
+            }
+            selected.put(key, artifact);
+            queue.addAll(node.getChildren());
+        }
+
+        final List<org.apache.maven.artifact.Artifact> result = new ArrayList<>();
+        selected.values().forEach(artifact -> {
+            org.apache.maven.artifact.Artifact mavenArtifact = RepositoryUtils.toArtifact(artifact);
+            mavenArtifact.setScope(root.getScope());
+            result.add(mavenArtifact);
+        });
+
+        log.debug("Transitive dependencies of " + root + ": " + result);
+        return result;
+    }
+
+    private DependencyNode collectGraph(Artifact rootArtifact) throws MojoExecutionException {
+
+        final String key = rootArtifact.toString();
+        DependencyNode rootNode = sessionCache.get(key);
+        if (rootNode == null) {
+            final CollectRequest request = new CollectRequest(new Dependency(rootArtifact, null), repositories);
+            request.setRequestContext("plugin");
+            try {
+                rootNode = repositorySystem.collectDependencies(session, request).getRoot();
+            } catch (DependencyCollectionException e) {
+                throw new MojoExecutionException("Failed to collect dependencies of " + rootArtifact, e);
+            }
+            sessionCache.put(key, rootNode);
+        }
+        return rootNode;
+    }
+
+    private static String versionlessKey(Artifact artifact) {
+        return artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getExtension()
+                + ':' + artifact.getClassifier();
+    }
+}
@@ -20,11 +20,13 @@ package org.simplify4u.plugins;
 
 import org.bouncycastle.openpgp.PGPSignature;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Utilities for PGP Signature class.
@@ -35,6 +37,8 @@ final class PGPSignatures {
         // No need to instantiate utility class.
     }
 
+    private static final int BUFFER_SIZE = 8192;
+
     /**
      * Read the content of a file into the PGP signature instance (for verification).
      *
@@ -43,10 +47,40 @@ final class PGPSignatures {
      * @throws IOException In case of failure to open the file or failure while reading its content.
      */
     static void readFileContentInto(final PGPSignature signature, final File file) throws IOException {
-        try (InputStream inArtifact = new BufferedInputStream(new FileInputStream(file))) {
-            int t;
-            while ((t = inArtifact.read()) >= 0) {
-                signature.update((byte) t);
+        readFileContentInto(Collections.singletonList(signature), file);
+    }
+
+    /**
+     * Read the content of a file into all PGP signature instances (for verification), file is read only once.
+     *
+     * @param signatures the PGP signature instances. The instances are expected to be initialized.
+     * @param file       the file to read
+     * @throws IOException In case of failure to open the file or failure while reading its content.
+     */
+    static void readFileContentInto(final List<PGPSignature> signatures, final File file) throws IOException {
+        readFileContentInto(signatures, Collections.emptyList(), file);
+    }
+
+    /**
+     * Read the content of a file into all PGP signature instances and message digests, file is read only once.
+     *
+     * @param signatures the PGP signature instances. The instances are expected to be initialized.
+     * @param digests    the message digests, eg. for comparing with checksums from repository
+     * @param file       the file to read
+     * @throws IOException In case of failure to open the file or failure while reading its content.
+     */
+    static void readFileContentInto(final List<PGPSignature> signatures, final List<MessageDigest> digests,
+            final File file) throws IOException {
+        try (InputStream inArtifact = new FileInputStream(file)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = inArtifact.read(buffer)) >= 0) {
+                for (PGPSignature signature : signatures) {
+                    signature.update(buffer, 0, len);
+                }
+                for (MessageDigest digest : digests) {
+                    digest.update(buffer, 0, len);
+                }
             }
         }
     }
@@ -22,11 +22,17 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -54,21 +60,28 @@ import org.bouncycastle.openpgp.PGPPublicKeyRing;
 import org.bouncycastle.openpgp.PGPSignature;
 import org.bouncycastle.openpgp.PGPSignatureList;
 import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.operator.PGPContentVerifierBuilderProvider;
 import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
-import org.bouncycastle.openpgp.operator.bc.BcPGPContentVerifierBuilderProvider;
 import org.codehaus.plexus.resource.loader.ResourceNotFoundException;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
 import org.simplify4u.plugins.ArtifactResolver.Configuration;
+import org.simplify4u.plugins.ArtifactResolver.ProjectArtifact;
 import org.simplify4u.plugins.ArtifactResolver.SignatureRequirement;
 import org.simplify4u.plugins.keyserver.PGPKeyNotFound;
 import org.simplify4u.plugins.keyserver.PGPKeysCache;
 import org.simplify4u.plugins.keysmap.KeysMap;
 import org.simplify4u.plugins.skipfilters.CompositeSkipper;
+import org.simplify4u.plugins.skipfilters.CoordinatesSkipper;
 import org.simplify4u.plugins.skipfilters.ProvidedDependencySkipper;
 import org.simplify4u.plugins.skipfilters.ReactorDependencySkipper;
 import org.simplify4u.plugins.skipfilters.ScopeSkipper;
 import org.simplify4u.plugins.skipfilters.SkipFilter;
 import org.simplify4u.plugins.skipfilters.SnapshotDependencySkipper;
 import org.simplify4u.plugins.skipfilters.SystemDependencySkipper;
+import org.simplify4u.plugins.utils.ContentVerifierBackend;
+import org.simplify4u.plugins.utils.FlightEvent;
+import org.simplify4u.plugins.utils.PhaseMetrics;
 import org.simplify4u.plugins.utils.PublicKeyUtils;
 
 /**
@@ -82,8 +95,19 @@ public class PGPVerifyMojo extends AbstractMojo {
 
     private static final String PGP_VERIFICATION_RESULT_FORMAT = "%s PGP Signature %s\n       %s UserIds: %s";
 
+    private static final String PREFETCHES_SESSION_KEY = PGPVerifyMojo.class.getName() + ".keysPrefetches";
+
     private static final Pattern KEY_SERVERS_SPLIT_PATTERN = Pattern.compile("[;,\\s]");
 
+    private static final Map<Integer, String> WEAK_SIGNATURES = ImmutableMap.<Integer, String>builder()
+            .put(1, "MD5")
+            .put(4, "DOUBLE_SHA")
+            .put(5, "MD2")
+            .put(6, "TIGER_192")
+            .put(7, "HAVAL_5_160")
+            .put(11, "SHA224")
+            .build();
+
     @Parameter(property = "project", readonly = true, required = true)
     private MavenProject project;
 
@@ -105,6 +129,9 @@ public class PGPVerifyMojo extends AbstractMojo {
     @Component
     private RepositorySystem repositorySystem;
 
+    @Component
+    private org.eclipse.aether.RepositorySystem resolverRepositorySystem;
+
     @Component
     private KeysMap keysMap;
 
@@ -116,6 +143,9 @@ public class PGPVerifyMojo extends AbstractMojo {
 
     /**
      * The directory for storing cached PGP public keys.
+     * <p>
+     * Key rings from cache are verified again each time they are loaded, unless
+     * {@link #pgpKeysCacheVerifiedMarkers} is enabled.
      *
      * @since 1.0.0
      */
@@ -155,6 +185,143 @@ public class PGPVerifyMojo extends AbstractMojo {
     @Parameter(property = "pgpverify.keyserversLoadBalance", defaultValue = "true")
     private boolean pgpKeyServerLoadBalance;
 
+    /**
+     * If many key servers are provided, choose key server for each request by measured latency and failure rate.
+     * <p>
+     * Servers which respond faster and fail less often are preferred, others are used as fallback.
+     * When set to true, <code>keyserversLoadBalance</code> is ignored.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.keyserversAdaptive", defaultValue = "false")
+    private boolean pgpKeyServerAdaptive;
+
+    /**
+     * Time in seconds for which key server is skipped after failed request, when all retries were exhausted.
+     * <p>
+     * State of key servers is stored in keys cache directory, so it is shared by all modules and next builds.
+     * When time elapses, one request is sent to key server in order to check if it is available again.
+     * <p>
+     * Value 0 disables this feature.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.keyserversCircuitBreakerInterval", defaultValue = "0")
+    private int pgpKeyServerCircuitBreakerInterval;
+
+    /**
+     * When key server host has many addresses, like pool of servers, race connections to them and use
+     * the first one which accepts connection.
+     * <p>
+     * Connection attempts are started one by one, with 250 ms delay, so unreachable addresses do not cost
+     * full connect timeout. Not used when proxy is configured.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.keyserversParallelConnect", defaultValue = "false")
+    private boolean pgpKeyServerParallelConnect;
+
+    /**
+     * Max number of retries of requests to key servers, for all keys in one plugin execution.
+     * <p>
+     * When budget is spent requests are not retried anymore and keys which are not in cache
+     * are not requested, so verification fails fast instead of waiting for key servers.
+     * Zero means no limit.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.keyserversRetryBudget", defaultValue = "0")
+    private int pgpKeyServerRetryBudget;
+
+    /**
+     * Max time in seconds spent on requests to key servers, for all keys in one plugin execution.
+     * <p>
+     * Time is counted when any request is in progress, including waits between retries.
+     * When budget is spent requests are not retried anymore and keys which are not in cache
+     * are not requested. Zero means no limit.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.keyserversTimeBudget", defaultValue = "0")
+    private int pgpKeyServerTimeBudget;
+
+    /**
+     * Store keys cache in one pack file with memory-mapped index of key IDs,
+     * instead of one file for each key ID.
+     * <p>
+     * Keys already stored in files are not moved to pack file, they can be exported from previous cache
+     * by {@link #pgpKeysCacheExport} and imported by {@link #importKeyRings}.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.keysCachePacked", defaultValue = "false")
+    private boolean pgpKeysCachePacked;
+
+    /**
+     * Export all keys from cache into one binary file after verification.
+     * <p>
+     * Exported file can be imported by {@link #importKeyRings}, so whole cache can be restored,
+     * for example on CI server.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.keysCacheExport")
+    private File pgpKeysCacheExport;
+
+    /**
+     * Verify signatures of sub keys only once for each cached key ring, instead of each time key is loaded from cache.
+     * <p>
+     * Digests of already verified key rings are stored as plain file in keys cache directory. It is not protected
+     * in any way, so who can write to keys cache, eg. by restoring CI cache from untrusted build, can add foreign
+     * sub key to trusted key ring and mark such key ring as verified. Enable only when keys cache is trusted.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.keysCacheVerifiedMarkers", defaultValue = "false")
+    private boolean pgpKeysCacheVerifiedMarkers;
+
+    /**
+     * Fetch keys given by full fingerprint in keys map in background, just after keys map is loaded.
+     * <p>
+     * Keys are downloaded in the same time as project artifacts are resolved, so verification
+     * does not wait for key servers. Keys are requested by fingerprint, or by key ID when key server
+     * does not support lookup by fingerprint.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.keysPrefetch", defaultValue = "false")
+    private boolean pgpKeysPrefetch;
+
+    /**
+     * Files with public keys which will be imported into keys cache before verification,
+     * so keys from them are never requested from key servers.
+     * <p>
+     * Supported are armored or binary exports of keys, like output of <code>gpg --export</code>,
+     * GnuPG public key ring <code>pubring.gpg</code> and key box <code>pubring.kbx</code>.
+     * <p>
+     * Each key is stored in cache for its master key ID and all sub keys IDs, keys already present in cache
+     * are not replaced.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.importKeyRings")
+    private List<File> importKeyRings;
+
+    /**
+     * Coordinates of artifacts with public keys in Maven repositories, keys are resolved
+     * from project repositories before key servers are asked.
+     * <p>
+     * Format is <code>groupId:artifactId:version[:type[:classifier]]</code>, where <code>{keyId}</code>
+     * is replaced by 16 upper case hex digits of key ID, eg: <code>org.example.pgpkeys:key-{keyId}:1.0:asc</code>.
+     * Default type is <code>asc</code>, artifact can contain armored or binary key rings.
+     * <p>
+     * Key artifacts are cached in local repository and by repository manager, like other dependencies.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.keysArtifact")
+    private String pgpKeysArtifact;
+
     /**
      * Fail the build if any dependency doesn't have a signature.
      *
@@ -188,6 +355,47 @@ public class PGPVerifyMojo extends AbstractMojo {
     @Parameter(property = "pgpgverify.failWeakSignature", defaultValue = "false")
     private boolean failWeakSignature;
 
+    /**
+     * Verify also checksums of signed artifacts, with checksum files <code>.sha1</code>, <code>.sha256</code>
+     * or <code>.sha512</code> stored in local repository next to artifact.
+     * <p>
+     * Checksums are computed while artifact is read for signature verification, so artifact is not read again.
+     * Artifact with not matching checksum fails verification, artifact without checksum files is not checked.
+     * Checksum files which can not be parsed are skipped with warning.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.verifyChecksums", defaultValue = "false")
+    private boolean verifyChecksums;
+
+    /**
+     * Implementation of digests and public key algorithms used for signature verification, one of:
+     * <ul>
+     *     <li><code>bc</code> - pure Java implementation from Bouncy Castle, supports all algorithms</li>
+     *     <li><code>jca</code> - default JCA providers of running JDK, with SHA digests accelerated
+     *     by CPU intrinsics, some algorithms like EdDSA require newer JDK</li>
+     * </ul>
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.contentVerifier", defaultValue = "bc")
+    private String contentVerifier;
+
+    /**
+     * Write times and counters of verification phases as JSON into given file, for example
+     * <code>${project.build.directory}/pgpverify-metrics.json</code>.
+     * <p>
+     * Report contains times of artifacts and signatures resolving, keys fetching and loading,
+     * signatures verification, and counters of artifacts, hashed bytes, keys cache hits and misses,
+     * key server requests and retries.
+     * <p>
+     * It is diagnostic report, so it is not written when not set.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.metricsFile")
+    private File metricsFile;
+
     /**
      * Verify pom files also.
      *
@@ -196,6 +404,17 @@ public class PGPVerifyMojo extends AbstractMojo {
     @Parameter(property = "pgpverify.verifyPomFiles", defaultValue = "true")
     private boolean verifyPomFiles;
 
+    /**
+     * Number of threads used for resolving artifacts together with their signatures.
+     * <p>
+     * Artifacts are verified in project order as soon as artifact and its signature are resolved,
+     * so verification does not wait for download of all artifacts.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.resolveThreads", defaultValue = "4")
+    private int resolveThreads;
+
     /**
      * Verify dependencies at a SNAPSHOT version, instead of only verifying full release version
      * dependencies.
@@ -213,6 +432,18 @@ public class PGPVerifyMojo extends AbstractMojo {
     @Parameter(property = "pgpverify.verifyPlugins", defaultValue = "false")
     private boolean verifyPlugins;
 
+    /**
+     * Verify also transitive dependencies of build plug-ins, of build plug-in dependencies
+     * and of annotation processors (when <code>verifyAtypical</code> is enabled).
+     * <p>
+     * By default only immediate dependencies are verified.
+     * Dependencies shared by many plug-ins are resolved only once per Maven session.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.verifyTransitivePluginDependencies", defaultValue = "false")
+    private boolean verifyTransitivePluginDependencies;
+
     /**
      * Verify dependency artifact in atypical locations:
      * <ul>
@@ -260,6 +491,32 @@ public class PGPVerifyMojo extends AbstractMojo {
     @Parameter(property = "pgpverify.verifyReactorDependencies", defaultValue = "false")
     private boolean verifyReactorDependencies;
 
+    /**
+     * Patterns of artifacts which should be verified, if not given all artifacts are verified.
+     * <p>
+     * Supported patterns are:
+     * <ul>
+     *     <li><code>groupId</code> - all artifacts with given groupId</li>
+     *     <li><code>groupId.*</code> - all artifacts with given groupId and all its sub-groups</li>
+     *     <li><code>groupId:artifactId</code> - only given artifact</li>
+     * </ul>
+     * Applies to dependencies and build plug-ins.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.includes")
+    private List<String> includes;
+
+    /**
+     * Patterns of artifacts which should not be verified, in the same format as <code>includes</code>.
+     * <p>
+     * Excluded artifacts are skipped before resolving, so they are not downloaded at all.
+     *
+     * @since 1.8.0
+     */
+    @Parameter(property = "pgpverify.excludes")
+    private List<String> excludes;
+
     /**
      * <p>
      * Specifies the location of a file that contains the map of dependencies to PGP key.
@@ -296,6 +553,10 @@ public class PGPVerifyMojo extends AbstractMojo {
 
     private PGPKeysCache pgpKeysCache;
 
+    private PGPContentVerifierBuilderProvider verifierProvider;
+
+    private final PhaseMetrics metrics = new PhaseMetrics();
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (skip) {
@@ -303,19 +564,92 @@ public class PGPVerifyMojo extends AbstractMojo {
         } else {
             final SkipFilter dependencyFilter = prepareDependencyFilters();
             final SkipFilter pluginFilter = preparePluginFilters();
-            prepareForKeys();
+            try (PhaseMetrics.Timer ignored = metrics.start(PhaseMetrics.EXECUTE)) {
+                prepareForKeys();
+                verifyArtifacts(dependencyFilter, pluginFilter);
+                exportKeysCache();
+            } finally {
+                closeKeysCache();
+                writeMetrics();
+            }
+        }
+    }
+
+    private void verifyArtifacts(SkipFilter dependencyFilter, SkipFilter pluginFilter)
+            throws MojoExecutionException, MojoFailureException {
+
+        final ArtifactResolver resolver = new ArtifactResolver(getLog(),
+                repositorySystem, localRepository, remoteRepositories, prepareGraphWalker())
+                .withMetrics(metrics);
+        final Configuration config = new Configuration(dependencyFilter, pluginFilter, this.verifyPomFiles,
+                this.verifyPlugins, this.verifyAtypical);
+        final List<ProjectArtifact> artifacts;
+        try (PhaseMetrics.Timer ignored = metrics.start(PhaseMetrics.RESOLVE_ARTIFACTS)) {
+            artifacts = resolver.collectProjectArtifacts(this.project, config);
+        }
+        final SignatureRequirement signaturePolicy = determineSignaturePolicy();
+        final SignatureVerificationPipeline pipeline = new SignatureVerificationPipeline(resolver,
+                SignatureVerificationPipeline.DEFAULT_QUEUE_CAPACITY, resolveThreads);
+        final boolean isAllSigOk;
+        try (PhaseMetrics.Timer ignored = metrics.start(PhaseMetrics.VERIFY_ARTIFACTS)) {
+            isAllSigOk = pipeline.process(artifacts, signaturePolicy, this::verifyArtifact);
+        }
+        if (!isAllSigOk) {
+            throw new MojoExecutionException("PGP signature error");
+        }
+    }
+
+    private void exportKeysCache() throws MojoExecutionException {
+        if (pgpKeysCacheExport == null) {
+            return;
+        }
 
-            final ArtifactResolver resolver = new ArtifactResolver(getLog(),
-                    repositorySystem, localRepository, remoteRepositories);
-            final Configuration config = new Configuration(dependencyFilter, pluginFilter, this.verifyPomFiles,
-                    this.verifyPlugins, this.verifyAtypical);
-            final Set<Artifact> artifacts = resolver.resolveProjectArtifacts(this.project, config);
-            final SignatureRequirement signaturePolicy = determineSignaturePolicy();
-            final Map<Artifact, Artifact> artifactMap = resolver.resolveSignatures(artifacts, signaturePolicy);
-            verifyArtifactSignatures(artifactMap);
+        try {
+            pgpKeysCache.exportKeyRings(pgpKeysCacheExport);
+        } catch (IOException e) {
+            throw new MojoExecutionException("export keys cache to: " + pgpKeysCacheExport, e);
         }
     }
 
+    private void closeKeysCache() {
+        if (pgpKeysCache == null) {
+            return;
+        }
+
+        try {
+            pgpKeysCache.close();
+        } catch (IOException e) {
+            getLog().warn("Can't close keys cache - " + e.getMessage());
+        }
+        pgpKeysCache = null;
+    }
+
+    private void writeMetrics() {
+        if (metricsFile == null) {
+            return;
+        }
+
+        try {
+            metrics.writeJson(metricsFile.toPath());
+            getLog().debug("Metrics written to: " + metricsFile);
+        } catch (IOException e) {
+            getLog().warn("Can't write metrics to: " + metricsFile + " - " + e.getMessage());
+        }
+    }
+
+    private DependencyGraphWalker prepareGraphWalker() {
+        if (!verifyTransitivePluginDependencies) {
+            return null;
+        }
+
+        final Map<String, RemoteRepository> repositories = new LinkedHashMap<>();
+        project.getRemotePluginRepositories().forEach(r -> repositories.putIfAbsent(r.getId(), r));
+        project.getRemoteProjectRepositories().forEach(r -> repositories.putIfAbsent(r.getId(), r));
+
+        return new DependencyGraphWalker(getLog(), resolverRepositorySystem, session.getRepositorySession(),
+                new ArrayList<>(repositories.values()));
+    }
+
     private SignatureRequirement determineSignaturePolicy() {
         if (failNoSignature) {
             return SignatureRequirement.REQUIRED;
@@ -347,6 +681,8 @@ public class PGPVerifyMojo extends AbstractMojo {
             filters.add(new ReactorDependencySkipper(this.project, this.session));
         }
 
+        addCoordinatesFilter(filters);
+
         return new CompositeSkipper(filters);
     }
 
@@ -357,9 +693,20 @@ public class PGPVerifyMojo extends AbstractMojo {
             filters.add(new SnapshotDependencySkipper());
         }
 
+        addCoordinatesFilter(filters);
+
         return new CompositeSkipper(filters);
     }
 
+    private void addCoordinatesFilter(List<SkipFilter> filters) {
+        final List<String> includePatterns = Optional.ofNullable(this.includes).orElse(Collections.emptyList());
+        final List<String> excludePatterns = Optional.ofNullable(this.excludes).orElse(Collections.emptyList());
+
+        if (!includePatterns.isEmpty() || !excludePatterns.isEmpty()) {
+            filters.add(new CoordinatesSkipper(includePatterns, excludePatterns));
+        }
+    }
+
     /**
      * Prepare cache and keys map.
      *
@@ -369,15 +716,42 @@ public class PGPVerifyMojo extends AbstractMojo {
      *         In case of errors while loading the keys map.
      */
     private void prepareForKeys() throws MojoFailureException, MojoExecutionException {
-        initCache();
+        try (PhaseMetrics.Timer ignored = metrics.start(PhaseMetrics.PREPARE_KEYS)) {
+            initCache();
+            importKeyRings();
+
+            try {
+                keysMap.load(getLog(), keysMapLocation);
+            } catch (ResourceNotFoundException | IOException e) {
+                throw new MojoExecutionException("load keys map", e);
+            }
 
-        try {
-            keysMap.load(getLog(), keysMapLocation);
-        } catch (ResourceNotFoundException | IOException e) {
-            throw new MojoExecutionException("load keys map", e);
+            if (pgpKeysPrefetch) {
+                // prefetch is stopped when keys cache is closed
+                pgpKeysCache.withSharedPrefetches(sessionPrefetches())
+                        .prefetchKeys(keysMap.getFingerprints());
+            }
         }
     }
 
+    /**
+     * Keys prefetches in progress, shared by all executions in Maven session.
+     * Only JDK types are stored in session, because it can be shared by different versions of plug-in.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, CompletableFuture<Void>> sessionPrefetches() {
+        final RepositorySystemSession repositorySession = session != null ? session.getRepositorySession() : null;
+        if (repositorySession == null) {
+            return new ConcurrentHashMap<>();
+        }
+
+        final Map<Long, CompletableFuture<Void>> newPrefetches = new ConcurrentHashMap<>();
+        if (repositorySession.getData().set(PREFETCHES_SESSION_KEY, null, newPrefetches)) {
+            return newPrefetches;
+        }
+        return (Map<Long, CompletableFuture<Void>>) repositorySession.getData().get(PREFETCHES_SESSION_KEY);
+    }
+
     private void initCache() throws MojoFailureException {
 
         List<String> keyServerList = Arrays.stream(KEY_SERVERS_SPLIT_PATTERN.split(pgpKeyServer))
@@ -386,103 +760,215 @@ public class PGPVerifyMojo extends AbstractMojo {
                 .collect(Collectors.toList());
 
         try {
-            pgpKeysCache = new PGPKeysCache(pgpKeysCachePath, keyServerList, pgpKeyServerLoadBalance, getMavenProxy());
-        } catch (IOException e) {
+            final ContentVerifierBackend verifierBackend = ContentVerifierBackend.fromName(contentVerifier);
+            verifierProvider = verifierBackend.getProvider();
+
+            pgpKeysCache = new PGPKeysCache(pgpKeysCachePath, keyServerList, pgpKeyServerLoadBalance,
+                    pgpKeyServerAdaptive, Duration.ofSeconds(pgpKeyServerCircuitBreakerInterval),
+                    pgpKeyServerParallelConnect, pgpKeysCachePacked, getMavenProxy())
+                    .withContentVerifier(verifierBackend)
+                    .withMetrics(metrics);
+            if (pgpKeysCacheVerifiedMarkers) {
+                pgpKeysCache.withVerifiedKeyRingsMarkers();
+            }
+            if (pgpKeyServerRetryBudget > 0 || pgpKeyServerTimeBudget > 0) {
+                pgpKeysCache.withBudget(pgpKeyServerRetryBudget, Duration.ofSeconds(pgpKeyServerTimeBudget));
+            }
+            if (pgpKeysArtifact != null && !pgpKeysArtifact.trim().isEmpty()) {
+                pgpKeysCache.withKeysSource(new ArtifactKeysSource(getLog(), repositorySystem, localRepository,
+                        remoteRepositories, pgpKeysArtifact));
+            }
+        } catch (IOException | IllegalArgumentException e) {
             throw new MojoFailureException(e.getMessage(), e);
         }
     }
 
-    private void verifyArtifactSignatures(Map<Artifact, Artifact> artifactToAsc)
-            throws MojoFailureException, MojoExecutionException {
-        boolean isAllSigOk = true;
-
-        for (Map.Entry<Artifact, Artifact> artifactEntry : artifactToAsc.entrySet()) {
-            final Artifact artifact = artifactEntry.getKey();
-            final Artifact ascArtifact = artifactEntry.getValue();
-            final boolean isLastOk = verifyPGPSignature(artifact, ascArtifact);
+    private void importKeyRings() throws MojoExecutionException {
+        if (importKeyRings == null) {
+            return;
+        }
 
-            isAllSigOk = isAllSigOk && isLastOk;
+        for (File keyRingsFile : importKeyRings) {
+            try {
+                pgpKeysCache.importKeyRings(keyRingsFile);
+            } catch (IOException | PGPException e) {
+                throw new MojoExecutionException("import key rings from: " + keyRingsFile, e);
+            }
         }
+    }
 
-        if (!isAllSigOk) {
-            throw new MojoExecutionException("PGP signature error");
+    private boolean verifyArtifact(Artifact artifact, Artifact ascArtifact) throws MojoFailureException {
+        try (PhaseMetrics.Timer ignored = metrics.start(PhaseMetrics.VERIFY_SIGNATURE);
+             FlightEvent event = FlightEvent.verifySignature(artifact)) {
+            final boolean verified = verifyPGPSignature(artifact, ascArtifact);
+            if (ascArtifact == null) {
+                event.outcome(verified ? "noSignature" : "failed");
+            } else {
+                event.outcome(verified ? "ok" : "failed").bytes(artifact.getFile());
+            }
+            return verified;
         }
     }
 
-    private boolean verifyPGPSignature(Artifact artifact, Artifact ascArtifact) throws MojoFailureException {
+    /**
+     * Verify artifact against all signatures from signature file.
+     * <p>
+     * When artifact is co-signed, every signature made by key allowed in keys map must be valid.
+     * Signatures made by keys which are not listed in keys map or which are not found on key servers are ignored,
+     * so at least one signature must be made by allowed key, or key missing must be consistent with keys map.
+     */
+    // used by test
+    boolean verifyPGPSignature(Artifact artifact, Artifact ascArtifact) throws MojoFailureException {
         if (ascArtifact == null) {
             return verifySignatureUnavailable(artifact);
         }
         final File artifactFile = artifact.getFile();
         final File signatureFile = ascArtifact.getFile();
-        final Map<Integer, String> weakSignatures = ImmutableMap.<Integer, String>builder()
-                .put(1, "MD5")
-                .put(4, "DOUBLE_SHA")
-                .put(5, "MD2")
-                .put(6, "TIGER_192")
-                .put(7, "HAVAL_5_160")
-                .put(11, "SHA224")
-                .build();
 
         getLog().debug("Artifact file: " + artifactFile);
         getLog().debug("Artifact sign: " + signatureFile);
 
         try {
-            InputStream sigInputStream = PGPUtil.getDecoderStream(new FileInputStream(signatureFile));
-            PGPObjectFactory pgpObjectFactory = new PGPObjectFactory(sigInputStream, new BcKeyFingerprintCalculator());
-            PGPSignatureList sigList = (PGPSignatureList) pgpObjectFactory.nextObject();
-            if (sigList == null) {
-                throw new MojoFailureException("Invalid signature file: " + signatureFile);
-            }
-            PGPSignature pgpSignature = sigList.get(0);
-
-            if (weakSignatures.containsKey(pgpSignature.getHashAlgorithm())) {
-                final String logMessageWeakSignature = "Weak signature algorithm used: "
-                        + weakSignatures.get(pgpSignature.getHashAlgorithm());
-                if (failWeakSignature) {
-                    getLog().error(logMessageWeakSignature);
-                    throw new MojoFailureException(logMessageWeakSignature);
-                } else {
-                    getLog().warn(logMessageWeakSignature);
+            final ArtifactChecksums checksums = verifyChecksums
+                    ? ArtifactChecksums.load(artifactFile, getLog()) : ArtifactChecksums.none();
+            final List<SignatureWithKey> signatures = new ArrayList<>();
+            IOException keyNotFound = null;
+            String notAllowedKey = null;
+            for (PGPSignature pgpSignature : readSignatures(signatureFile)) {
+                checkWeakSignature(pgpSignature);
+                long sigKeyID = pgpSignature.getKeyID();
+
+                PGPPublicKeyRing publicKeyRing;
+                try {
+                    publicKeyRing = pgpKeysCache.getKeyRing(sigKeyID);
+                } catch (IOException e) {
+                    if (!(e.getCause() instanceof PGPKeyNotFound)) {
+                        throw e;
+                    }
+                    getLog().debug(String.format("%s PGP Key 0x%016X not found on server",
+                            artifact.getId(), sigKeyID));
+                    keyNotFound = e;
+                    continue;
                 }
+                PGPPublicKey publicKey = publicKeyRing.getPublicKey(sigKeyID);
+
+                if (!keysMap.isValidKey(artifact, publicKey, publicKeyRing)) {
+                    String msg = String.format("%s = %s", ArtifactUtils.key(artifact),
+                            PublicKeyUtils.fingerprintForMaster(publicKey, publicKeyRing));
+                    String keyUrl = pgpKeysCache.getUrlForShowKey(publicKey.getKeyID());
+                    getLog().debug(String.format("%s PGP Signature by key not listed in keys map:%n\t%s%n\t%s",
+                            artifact.getId(), msg, keyUrl));
+                    if (notAllowedKey == null) {
+                        notAllowedKey = String.format("%n\t%s%n\t%s", msg, keyUrl);
+                    }
+                    continue;
+                }
+
+                pgpSignature.init(verifierProvider, publicKey);
+                signatures.add(new SignatureWithKey(pgpSignature, publicKey, publicKeyRing));
             }
-            long sigKeyID = pgpSignature.getKeyID();
 
-            PGPPublicKeyRing publicKeyRing = pgpKeysCache.getKeyRing(sigKeyID);
-            PGPPublicKey publicKey = publicKeyRing.getPublicKey(sigKeyID);
+            if (signatures.isEmpty()) {
+                if (keyNotFound != null && keysMap.isKeyMissing(artifact)) {
+                    final String logMessage = String.format(
+                            "%s PGP Key not found on server, consistent with keys map.", artifact.getId());
+                    if (quiet) {
+                        getLog().debug(logMessage);
+                    } else {
+                        getLog().info(logMessage);
+                    }
+                } else if (notAllowedKey != null) {
+                    getLog().error(String.format("Not allowed artifact %s and keyID:%s",
+                            artifact.getId(), notAllowedKey));
+                    return false;
+                } else if (keyNotFound != null) {
+                    throw keyNotFound;
+                }
 
-            if (!keysMap.isValidKey(artifact, publicKey, publicKeyRing)) {
-                String msg = String.format("%s = %s", ArtifactUtils.key(artifact),
-                        PublicKeyUtils.fingerprintForMaster(publicKey, publicKeyRing));
-                String keyUrl = pgpKeysCache.getUrlForShowKey(publicKey.getKeyID());
-                getLog().error(String.format("Not allowed artifact %s and keyID:%n\t%s%n\t%s",
-                        artifact.getId(), msg, keyUrl));
-                return false;
+                if (checksums.isEmpty()) {
+                    // keys of all signatures are missing, consistent with keys map
+                    return true;
+                }
             }
 
-            pgpSignature.init(new BcPGPContentVerifierBuilderProvider(), publicKey);
-            PGPSignatures.readFileContentInto(pgpSignature, artifactFile);
+            // all signatures and checksums are fed from one pass over artifact content
+            try (PhaseMetrics.Timer ignored = metrics.start(PhaseMetrics.VERIFY_HASH)) {
+                PGPSignatures.readFileContentInto(signatures.stream()
+                        .map(signatureWithKey -> signatureWithKey.signature)
+                        .collect(Collectors.toList()), checksums.getDigests(), artifactFile);
+            }
+            metrics.add(PhaseMetrics.BYTES_HASHED, artifactFile.length());
 
-            getLog().debug("signature.KeyAlgorithm: " + pgpSignature.getKeyAlgorithm()
-                    + " signature.hashAlgorithm: " + pgpSignature.getHashAlgorithm());
+            boolean result = verifyChecksumsStatus(checksums, artifact);
+            for (SignatureWithKey signatureWithKey : signatures) {
+                PGPSignature pgpSignature = signatureWithKey.signature;
+                getLog().debug("signature.KeyAlgorithm: " + pgpSignature.getKeyAlgorithm()
+                        + " signature.hashAlgorithm: " + pgpSignature.getHashAlgorithm());
 
-            return verifySignatureStatus(pgpSignature.verify(), artifact, publicKey, publicKeyRing);
-        } catch (IOException | PGPException e) {
-            if (e.getCause() instanceof PGPKeyNotFound && keysMap.isKeyMissing(artifact)) {
-                final String logMessage = String.format("%s PGP Key not found on server, consistent with keys map.",
-                        artifact.getId());
-                if (quiet) {
-                    getLog().debug(logMessage);
-                } else {
-                    getLog().info(logMessage);
-                }
-                return true;
+                result &= verifySignatureStatus(pgpSignature.verify(), artifact,
+                        signatureWithKey.publicKey, signatureWithKey.publicKeyRing);
             }
+            return result;
+        } catch (IOException | PGPException e) {
             throw new MojoFailureException("Failed to process signature '" + signatureFile + "' for artifact "
                     + artifact.getId(), e);
         }
     }
 
+    private boolean verifyChecksumsStatus(ArtifactChecksums checksums, Artifact artifact) {
+        if (!verifyChecksums) {
+            return true;
+        }
+
+        if (checksums.isEmpty()) {
+            getLog().debug("No checksum files for " + artifact.getId());
+            return true;
+        }
+
+        List<String> mismatches = checksums.mismatches();
+        if (mismatches.isEmpty()) {
+            getLog().debug(artifact.getId() + " checksums OK: " + checksums);
+            return true;
+        }
+
+        mismatches.forEach(mismatch -> getLog().error(String.format("%s checksum INVALID: %s",
+                artifact.getId(), mismatch)));
+        return false;
+    }
+
+    /**
+     * Read all signatures from signature file, many signatures are present when artifact is co-signed.
+     */
+    private static List<PGPSignature> readSignatures(File signatureFile) throws IOException, MojoFailureException {
+        try (InputStream sigInputStream = PGPUtil.getDecoderStream(new FileInputStream(signatureFile))) {
+            PGPObjectFactory pgpObjectFactory = new PGPObjectFactory(sigInputStream, new BcKeyFingerprintCalculator());
+            Object object = pgpObjectFactory.nextObject();
+            if (!(object instanceof PGPSignatureList) || ((PGPSignatureList) object).isEmpty()) {
+                throw new MojoFailureException("Invalid signature file: " + signatureFile);
+            }
+
+            PGPSignatureList sigList = (PGPSignatureList) object;
+            List<PGPSignature> signatures = new ArrayList<>(sigList.size());
+            for (int i = 0; i < sigList.size(); i++) {
+                signatures.add(sigList.get(i));
+            }
+            return signatures;
+        }
+    }
+
+    private void checkWeakSignature(PGPSignature pgpSignature) throws MojoFailureException {
+        if (WEAK_SIGNATURES.containsKey(pgpSignature.getHashAlgorithm())) {
+            final String logMessageWeakSignature = "Weak signature algorithm used: "
+                    + WEAK_SIGNATURES.get(pgpSignature.getHashAlgorithm());
+            if (failWeakSignature) {
+                getLog().error(logMessageWeakSignature);
+                throw new MojoFailureException(logMessageWeakSignature);
+            } else {
+                getLog().warn(logMessageWeakSignature);
+            }
+        }
+    }
+
     /**
      * Verify if unsigned artifact is correctly listed in keys map.
      *
@@ -558,4 +1044,19 @@ public class PGPVerifyMojo extends AbstractMojo {
             }
         }
     }
+
+    /**
+     * Signature initialized for verification with its public key.
+     */
+    private static final class SignatureWithKey {
+        private final PGPSignature signature;
+        private final PGPPublicKey publicKey;
+        private final PGPPublicKeyRing publicKeyRing;
+
+        private SignatureWithKey(PGPSignature signature, PGPPublicKey publicKey, PGPPublicKeyRing publicKeyRing) {
+            this.signature = signature;
+            this.publicKey = publicKey;
+            this.publicKeyRing = publicKeyRing;
+        }
+    }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.requireNonNull;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.simplify4u.plugins.ArtifactResolver.ProjectArtifact;
+import org.simplify4u.plugins.ArtifactResolver.SignatureRequirement;
+
+/**
+ * Streaming pipeline for artifact and signature resolution and verification.
+ * <p>
+ * Each artifact is resolved together with its signature by pool of background threads and handed over
+ * through a bounded queue in project order, so verification of an artifact starts as soon as the artifact
+ * and its signature are available, instead of waiting for all artifacts to be downloaded.
+ */
+final class SignatureVerificationPipeline {
+
+    static final int DEFAULT_QUEUE_CAPACITY = 32;
+
+    static final int DEFAULT_RESOLVE_THREADS = 4;
+
+    private static final Map.Entry<Artifact, Artifact> SKIPPED = new SimpleImmutableEntry<>(null, null);
+
+    private static final Future<Map.Entry<Artifact, Artifact>> END_OF_STREAM =
+            CompletableFuture.completedFuture(SKIPPED);
+
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    /**
+     * Verification step of pipeline.
+     */
+    @FunctionalInterface
+    interface SignatureVerifier {
+
+        /**
+         * Verify one artifact.
+         *
+         * @param artifact
+         *         artifact to verify
+         * @param ascArtifact
+         *         signature of artifact, {@code null} if signature is not available
+         *
+         * @return verification status
+         *
+         * @throws MojoFailureException
+         *         in case of verification failure which should break build immediately
+         */
+        boolean verify(Artifact artifact, Artifact ascArtifact) throws MojoFailureException;
+    }
+
+    private final ArtifactResolver resolver;
+    private final int queueCapacity;
+    private final int resolveThreads;
+
+    SignatureVerificationPipeline(ArtifactResolver resolver, int queueCapacity) {
+        this(resolver, queueCapacity, DEFAULT_RESOLVE_THREADS);
+    }
+
+    SignatureVerificationPipeline(ArtifactResolver resolver, int queueCapacity, int resolveThreads) {
+        this.resolver = requireNonNull(resolver);
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        }
+        if (resolveThreads < 1) {
+            throw new IllegalArgumentException("Number of resolve threads must be positive: " + resolveThreads);
+        }
+        this.queueCapacity = queueCapacity;
+        this.resolveThreads = resolveThreads;
+    }
+
+    /**
+     * Resolve given artifacts with their signatures and verify each of them as soon as both are available.
+     *
+     * @param artifacts
+     *         artifacts to resolve and verify
+     * @param requirement
+     *         signature requirement
+     * @param verifier
+     *         verification step
+     *
+     * @return {@code true} if all artifacts were verified successfully
+     *
+     * @throws MojoExecutionException
+     *         if artifact or signature resolving fails
+     * @throws MojoFailureException
+     *         if verification fails
+     */
+    boolean process(Iterable<ProjectArtifact> artifacts, SignatureRequirement requirement,
+            SignatureVerifier verifier) throws MojoExecutionException, MojoFailureException {
+
+        // results of resolving in project order, number of artifacts resolved ahead of verification is bounded
+        final BlockingQueue<Future<Map.Entry<Artifact, Artifact>>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final AtomicBoolean finished = new AtomicBoolean(false);
+
+        // Maven session data are not propagated to new thread,
+        // only context class loader is copied so plugin classes and extensions are visible for resolver
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        final ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "pgpverify-artifact-resolver");
+            thread.setContextClassLoader(contextClassLoader);
+            thread.setDaemon(true);
+            return thread;
+        };
+        final ExecutorService dispatcher = Executors.newSingleThreadExecutor(threadFactory);
+        final ExecutorService resolvers = Executors.newFixedThreadPool(resolveThreads, threadFactory);
+
+        try {
+            final Future<Void> producer = dispatcher.submit(() -> {
+                try {
+                    for (ProjectArtifact artifact : artifacts) {
+                        if (finished.get()) {
+                            return null;
+                        }
+                        send(queue, resolvers.submit(() -> resolve(artifact, requirement)), finished);
+                    }
+                } finally {
+                    send(queue, END_OF_STREAM, finished);
+                }
+                return null;
+            });
+
+            // the same coordinates can be resolved from many artifacts, e.g. version ranges
+            final Set<String> verified = new HashSet<>();
+            boolean isAllSigOk = true;
+            Future<Map.Entry<Artifact, Artifact>> next;
+            while ((next = takeNext(queue)) != END_OF_STREAM) {
+                final Map.Entry<Artifact, Artifact> entry = awaitResult(next);
+                if (entry == SKIPPED || !verified.add(ArtifactResolver.coordinatesKey(entry.getKey()))) {
+                    continue;
+                }
+                final boolean isLastOk = verifier.verify(entry.getKey(), entry.getValue());
+                isAllSigOk = isAllSigOk && isLastOk;
+            }
+
+            awaitResult(producer);
+            return isAllSigOk;
+        } finally {
+            // producer must not wait on full queue when nobody consumes it any more
+            finished.set(true);
+            dispatcher.shutdownNow();
+            resolvers.shutdownNow();
+        }
+    }
+
+    /**
+     * Resolve artifact and its signature.
+     */
+    private Map.Entry<Artifact, Artifact> resolve(ProjectArtifact projectArtifact, SignatureRequirement requirement)
+            throws MojoExecutionException {
+        final Artifact artifact = resolver.resolveProjectArtifact(projectArtifact);
+        if (artifact == null) {
+            return SKIPPED;
+        }
+        final Artifact ascArtifact = resolver.resolveSignature(artifact, requirement);
+        if (ascArtifact != null || requirement == SignatureRequirement.STRICT) {
+            return new SimpleImmutableEntry<>(artifact, ascArtifact);
+        }
+        return SKIPPED;
+    }
+
+    /**
+     * Put entry to queue, waiting for space only as long as consumer is still running.
+     */
+    private static <T> void send(BlockingQueue<T> queue, T entry, AtomicBoolean finished)
+            throws InterruptedException {
+        while (!finished.get()) {
+            if (queue.offer(entry, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    private static <T> T takeNext(BlockingQueue<T> queue) throws MojoExecutionException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for signatures", e);
+        }
+    }
+
+    private static <T> T awaitResult(Future<T> future) throws MojoExecutionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for signatures", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Failed to resolve signatures", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Staggered race of TCP connections to many addresses of one host, like <i>Happy Eyeballs</i> (RFC 8305).
+ * <p>
+ * Connection attempts are started one by one, next attempt is started when previous one fails
+ * or when stagger delay elapses. The first address which accepts connection wins,
+ * so unreachable addresses cost only stagger delay instead of full connect timeout.
+ */
+final class ConnectRace {
+
+    static final Duration DEFAULT_STAGGER_DELAY = Duration.ofMillis(250);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectRace.class);
+
+    private final Executor executor;
+    private final long staggerDelayMillis;
+    private final int connectTimeout;
+
+    ConnectRace(Executor executor, Duration staggerDelay, int connectTimeout) {
+        this.executor = requireNonNull(executor);
+        this.staggerDelayMillis = staggerDelay.toMillis();
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Find the first address which accepts connection.
+     *
+     * @param addresses candidate addresses
+     * @param port      target port
+     * @param onFailure called for each address which refused connection
+     *
+     * @return the first reachable address, empty if none of addresses is reachable
+     */
+    Optional<InetAddress> firstReachable(List<InetAddress> addresses, int port, Consumer<InetAddress> onFailure) {
+
+        final CompletionService<Attempt> completionService = new ExecutorCompletionService<>(executor);
+        final List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+        final Deque<InetAddress> pending = new ArrayDeque<>(interleaveFamilies(addresses));
+
+        int running = 0;
+        try {
+            while (!pending.isEmpty() || running > 0) {
+                if (!pending.isEmpty()) {
+                    InetAddress address = pending.poll();
+                    completionService.submit(() -> tryConnect(address, port, sockets));
+                    running++;
+                }
+
+                Future<Attempt> future = pending.isEmpty()
+                        ? completionService.take()
+                        : completionService.poll(staggerDelayMillis, TimeUnit.MILLISECONDS);
+
+                if (future != null) {
+                    running--;
+                    Attempt attempt = future.get();
+                    if (attempt.success) {
+                        LOGGER.debug("Connection race won by: {}", attempt.address);
+                        return Optional.of(attempt.address);
+                    }
+                    onFailure.accept(attempt.address);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.debug("Connection race failed", e);
+        } finally {
+            // abort attempts which are still in progress
+            synchronized (sockets) {
+                sockets.forEach(ConnectRace::closeQuietly);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private Attempt tryConnect(InetAddress address, int port, List<Socket> sockets) {
+        Socket socket = new Socket();
+        sockets.add(socket);
+        try {
+            socket.connect(new InetSocketAddress(address, port), connectTimeout);
+            return new Attempt(address, true);
+        } catch (IOException e) {
+            LOGGER.debug("Connection race attempt to {} failed: {}", address, e.getMessage());
+            return new Attempt(address, false);
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Order addresses so that IPv6 and IPv4 alternates, starting with family of the first address.
+     */
+    static List<InetAddress> interleaveFamilies(List<InetAddress> addresses) {
+        if (addresses.isEmpty()) {
+            return addresses;
+        }
+
+        final boolean firstIsV6 = addresses.get(0) instanceof Inet6Address;
+        final Deque<InetAddress> first = new ArrayDeque<>();
+        final Deque<InetAddress> second = new ArrayDeque<>();
+        addresses.forEach(a -> ((a instanceof Inet6Address) == firstIsV6 ? first : second).add(a));
+
+        final List<InetAddress> result = new ArrayList<>(addresses.size());
+        while (!first.isEmpty() || !second.isEmpty()) {
+            Optional.ofNullable(first.poll()).ifPresent(result::add);
+            Optional.ofNullable(second.poll()).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    private static final class Attempt {
+        private final InetAddress address;
+        private final boolean success;
+
+        private Attempt(InetAddress address, boolean success) {
+            this.address = address;
+            this.success = success;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Resolved addresses of key server hosts and addresses which failed recently.
+ * <p>
+ * One instance is shared by all requests of key server client, so host names are not resolved for each key
+ * and an address which failed for one key is not used for next keys until its ban expires.
+ * Address which won connection race is also remembered, so race is not repeated for each request.
+ */
+final class HostAddressCache {
+
+    static final Duration DEFAULT_RESOLVE_TTL = Duration.ofMinutes(5);
+    static final Duration DEFAULT_FAILED_TTL = Duration.ofMinutes(10);
+
+    @FunctionalInterface
+    interface Resolver {
+        InetAddress[] resolve(String hostName) throws UnknownHostException;
+    }
+
+    private final Resolver resolver;
+    private final long resolveTtlNanos;
+    private final long failedTtlNanos;
+    private final LongSupplier nanoClock;
+
+    private final Map<String, ResolvedHost> resolvedHosts = new ConcurrentHashMap<>();
+    private final Map<InetAddress, Long> failedAddresses = new ConcurrentHashMap<>();
+    private final Map<String, ReachableAddress> reachableAddresses = new ConcurrentHashMap<>();
+
+    HostAddressCache() {
+        this(InetAddress::getAllByName, DEFAULT_RESOLVE_TTL, DEFAULT_FAILED_TTL, System::nanoTime);
+    }
+
+    // used by test
+    HostAddressCache(Resolver resolver, Duration resolveTtl, Duration failedTtl, LongSupplier nanoClock) {
+        this.resolver = requireNonNull(resolver);
+        this.resolveTtlNanos = resolveTtl.toNanos();
+        this.failedTtlNanos = failedTtl.toNanos();
+        this.nanoClock = requireNonNull(nanoClock);
+    }
+
+    /**
+     * Resolve host name, result is cached for resolve TTL.
+     *
+     * @param hostName host name to resolve
+     *
+     * @return all IP addresses of host
+     *
+     * @throws UnknownHostException if host can not be resolved
+     */
+    List<InetAddress> resolve(String hostName) throws UnknownHostException {
+        long now = nanoClock.getAsLong();
+        ResolvedHost resolvedHost = resolvedHosts.get(hostName);
+        if (resolvedHost == null || now - resolvedHost.resolvedAt >= resolveTtlNanos) {
+            resolvedHost = new ResolvedHost(Arrays.asList(resolver.resolve(hostName)), now);
+            resolvedHosts.put(hostName, resolvedHost);
+        }
+        return resolvedHost.addresses;
+    }
+
+    /**
+     * Remember address of host which accepted connection, for resolve TTL.
+     *
+     * @param hostName host name
+     * @param address  reachable address of host
+     */
+    void markReachable(String hostName, InetAddress address) {
+        reachableAddresses.put(hostName, new ReachableAddress(address, nanoClock.getAsLong()));
+    }
+
+    /**
+     * Address of host which accepted connection recently.
+     *
+     * @param hostName host name
+     *
+     * @return reachable address, empty if not known, expired or failed since then
+     */
+    Optional<InetAddress> getReachable(String hostName) {
+        ReachableAddress reachable = reachableAddresses.get(hostName);
+        if (reachable == null) {
+            return Optional.empty();
+        }
+        if (nanoClock.getAsLong() - reachable.reachedAt >= resolveTtlNanos || isFailed(reachable.address)) {
+            reachableAddresses.remove(hostName, reachable);
+            return Optional.empty();
+        }
+        return Optional.of(reachable.address);
+    }
+
+    /**
+     * Ban address for failed TTL.
+     *
+     * @param address failed address
+     */
+    void markFailed(InetAddress address) {
+        failedAddresses.put(address, nanoClock.getAsLong());
+    }
+
+    /**
+     * Check if address failed recently.
+     *
+     * @param address address to check
+     *
+     * @return {@code true} if address failed and its ban is not expired
+     */
+    boolean isFailed(InetAddress address) {
+        Long failedAt = failedAddresses.get(address);
+        if (failedAt == null) {
+            return false;
+        }
+        if (nanoClock.getAsLong() - failedAt >= failedTtlNanos) {
+            failedAddresses.remove(address, failedAt);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remove ban for given addresses.
+     *
+     * @param addresses addresses to clear
+     */
+    void clearFailed(Collection<InetAddress> addresses) {
+        addresses.forEach(failedAddresses::remove);
+    }
+
+    private static final class ReachableAddress {
+        private final InetAddress address;
+        private final long reachedAt;
+
+        private ReachableAddress(InetAddress address, long reachedAt) {
+            this.address = address;
+            this.reachedAt = reachedAt;
+        }
+    }
+
+    private static final class ResolvedHost {
+        private final List<InetAddress> addresses;
+        private final long resolvedAt;
+
+        private ResolvedHost(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = Collections.unmodifiableList(addresses);
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Budget of retries and time spent on key server requests, shared by all requests of one keys cache.
+ * <p>
+ * Time is measured as wall-clock time when any request is in progress, so concurrent requests
+ * are counted once. When budget is exhausted requests are not retried and keys which are not
+ * in cache are not requested at all.
+ */
+final class KeyServerBudget {
+
+    private final int maxRetries;
+    private final long maxTimeNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger retries = new AtomicInteger();
+    private final AtomicInteger deniedRetries = new AtomicInteger();
+    private final AtomicInteger skippedRequests = new AtomicInteger();
+
+    private int inProgress;
+    private long busySince;
+    private long busyNanos;
+
+    /**
+     * Budget without limits, only statistics are collected.
+     *
+     * @return unlimited budget
+     */
+    static KeyServerBudget unlimited() {
+        return new KeyServerBudget(0, Duration.ZERO);
+    }
+
+    /**
+     * Construction of budget.
+     *
+     * @param maxRetries max number of retries for all requests, zero or less means no limit
+     * @param maxTime    max time of all requests, zero means no limit
+     */
+    KeyServerBudget(int maxRetries, Duration maxTime) {
+        this(maxRetries, maxTime, System::nanoTime);
+    }
+
+    // used by test
+    KeyServerBudget(int maxRetries, Duration maxTime, LongSupplier nanoClock) {
+        this.maxRetries = maxRetries;
+        this.maxTimeNanos = requireNonNull(maxTime).toNanos();
+        this.nanoClock = requireNonNull(nanoClock);
+    }
+
+    /**
+     * Mark request start, must be paired with {@link #requestFinished()}.
+     */
+    synchronized void requestStarted() {
+        requests.incrementAndGet();
+        if (inProgress++ == 0) {
+            busySince = nanoClock.getAsLong();
+        }
+    }
+
+    synchronized void requestFinished() {
+        if (--inProgress == 0) {
+            busyNanos += nanoClock.getAsLong() - busySince;
+        }
+    }
+
+    /**
+     * Check if next retry is permitted, not permitted retry is counted in summary.
+     *
+     * @return {@code true} if budget is not exhausted
+     */
+    boolean isRetryPermitted() {
+        if (isExhausted()) {
+            deniedRetries.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    void onRetry() {
+        retries.incrementAndGet();
+    }
+
+    /**
+     * Check if new request is permitted, not permitted request is counted in summary.
+     *
+     * @return {@code true} if budget is not exhausted
+     */
+    boolean tryRequest() {
+        if (isExhausted()) {
+            skippedRequests.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    boolean isExhausted() {
+        return isTimeExhausted() || (maxRetries > 0 && retries.get() >= maxRetries);
+    }
+
+    private boolean isTimeExhausted() {
+        return maxTimeNanos > 0 && getBusyTime().toNanos() >= maxTimeNanos;
+    }
+
+    synchronized Duration getBusyTime() {
+        long nanos = busyNanos;
+        if (inProgress > 0) {
+            nanos += nanoClock.getAsLong() - busySince;
+        }
+        return Duration.ofNanos(nanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("requests: ").append(requests.get())
+                .append(", retries: ").append(retries.get());
+        if (maxRetries > 0) {
+            summary.append(" of ").append(maxRetries);
+        }
+        summary.append(", time: ").append(getBusyTime().toMillis()).append(" ms");
+        if (maxTimeNanos > 0) {
+            summary.append(" of ").append(Duration.ofNanos(maxTimeNanos).toMillis()).append(" ms");
+        }
+        if (deniedRetries.get() > 0) {
+            summary.append(", not retried: ").append(deniedRetries.get());
+        }
+        if (skippedRequests.get() > 0) {
+            summary.append(", skipped requests: ").append(skippedRequests.get());
+        }
+        return summary.toString();
+    }
+}
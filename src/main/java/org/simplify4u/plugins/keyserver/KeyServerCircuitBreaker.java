@@ -0,0 +1,227 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Properties;
+
+import static java.util.Objects.requireNonNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker for key servers, with state persisted in keys cache directory.
+ * <p>
+ * When request to key server fails after all retries, key server is not used for open interval.
+ * Afterwards only one probe request is permitted (half-open state) - it is executed without retries,
+ * its result closes the circuit or opens it for the next interval.
+ * <p>
+ * State is stored in files, so it is shared by all modules of build, concurrent builds and next builds.
+ */
+final class KeyServerCircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyServerCircuitBreaker.class);
+
+    private static final String STATE_DIR = "keyservers-state";
+    private static final String OPEN_UNTIL = "openUntil";
+
+    // file lock can be acquired only once in JVM
+    private static final Object FILE_LOCK = new Object();
+
+    private final Path stateDir;
+    private final Duration openInterval;
+    private final Clock clock;
+
+    KeyServerCircuitBreaker(Path cachePath, Duration openInterval) {
+        this(cachePath, openInterval, Clock.systemUTC());
+    }
+
+    // used by test
+    KeyServerCircuitBreaker(Path cachePath, Duration openInterval, Clock clock) {
+        this.stateDir = cachePath.resolve(STATE_DIR);
+        this.openInterval = requireNonNull(openInterval);
+        this.clock = requireNonNull(clock);
+    }
+
+    /**
+     * Check if request to key server is permitted.
+     *
+     * @param client key server client
+     *
+     * @return {@code false} if key server failed recently and open interval is not elapsed yet
+     */
+    boolean isCallPermitted(PGPKeysServerClient client) {
+        Optional<Instant> openUntil = readOpenUntil(client);
+        if (!openUntil.isPresent()) {
+            return true;
+        }
+
+        if (clock.instant().isBefore(openUntil.get())) {
+            LOGGER.debug("Key server {} is skipped until {}", client, openUntil.get());
+            return false;
+        }
+
+        return tryProbe(client);
+    }
+
+    /**
+     * Permit only one probe after open interval, also across processes - circuit is opened for the next
+     * interval under lock of state, so concurrent callers see open circuit until result of probe is recorded.
+     */
+    private boolean tryProbe(PGPKeysServerClient client) {
+        Path lockFile = stateDir.resolve(stateName(client) + ".lock");
+        synchronized (FILE_LOCK) {
+            try (FileChannel lockChannel = FileChannel.open(lockFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+
+                Optional<Instant> openUntil = readOpenUntil(client);
+                if (!openUntil.isPresent()) {
+                    // closed by other probe in the meantime
+                    return true;
+                }
+                if (clock.instant().isBefore(openUntil.get())) {
+                    LOGGER.debug("Key server {} is probed by other request", client);
+                    return false;
+                }
+                writeOpenUntil(client, clock.instant().plus(openInterval));
+            } catch (IOException e) {
+                LOGGER.warn("Can't lock key server state: {} - {}", lockFile, e.getMessage());
+            }
+        }
+
+        LOGGER.info("Key server {} failed before, checking if it is available again", client);
+        client.setProbing(true);
+        return true;
+    }
+
+    /**
+     * Check if exception means that key server is not available.
+     * <p>
+     * Only transport errors and 429 or 5xx responses are failures of server, key not found,
+     * other error responses and invalid content are valid answers of working server.
+     *
+     * @param e exception thrown by request
+     *
+     * @return {@code true} if exception should open circuit
+     */
+    static boolean isServerFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof PGPKeyNotFound || t instanceof PGPKeyInvalid) {
+                return false;
+            }
+            if (t instanceof KeyServerStatusException) {
+                return ((KeyServerStatusException) t).isOverloaded();
+            }
+        }
+        return e instanceof IOException;
+    }
+
+    /**
+     * Record result of request to key server.
+     *
+     * @param client key server client
+     * @param e exception thrown by request, {@code null} for success
+     */
+    void onResult(PGPKeysServerClient client, Throwable e) {
+        if (e != null && isServerFailure(e)) {
+            onFailure(client);
+        } else {
+            onSuccess(client);
+        }
+    }
+
+    void onSuccess(PGPKeysServerClient client) {
+        client.setProbing(false);
+        Path stateFile = stateFile(client);
+        try {
+            Files.deleteIfExists(stateFile);
+        } catch (IOException e) {
+            LOGGER.warn("Can't delete: {}", stateFile);
+        }
+    }
+
+    void onFailure(PGPKeysServerClient client) {
+        client.setProbing(false);
+        Instant openUntil = clock.instant().plus(openInterval);
+        LOGGER.warn("Key server {} will be skipped until {}", client, openUntil);
+        writeOpenUntil(client, openUntil);
+    }
+
+    private void writeOpenUntil(PGPKeysServerClient client, Instant openUntil) {
+        Path stateFile = stateFile(client);
+        try {
+            Files.createDirectories(stateDir);
+            Path partFile = Files.createTempFile(stateDir, stateFile.getFileName().toString(), ".part");
+            Properties state = new Properties();
+            state.setProperty(OPEN_UNTIL, openUntil.toString());
+            try (OutputStream outputStream = Files.newOutputStream(partFile)) {
+                state.store(outputStream, client.toString());
+            }
+            Files.move(partFile, stateFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Can't write key server state: {} - {}", stateFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Time to which circuit for key server is open.
+     *
+     * @param client key server client
+     *
+     * @return open circuit time, empty for closed circuit
+     */
+    Optional<Instant> readOpenUntil(PGPKeysServerClient client) {
+        Path stateFile = stateFile(client);
+        if (!Files.exists(stateFile)) {
+            return Optional.empty();
+        }
+
+        Properties state = new Properties();
+        try (InputStream inputStream = Files.newInputStream(stateFile)) {
+            state.load(inputStream);
+            return Optional.ofNullable(state.getProperty(OPEN_UNTIL)).map(Instant::parse);
+        } catch (IOException | RuntimeException e) {
+            // broken state file should not break build
+            LOGGER.warn("Can't read key server state: {} - {}", stateFile, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Path stateFile(PGPKeysServerClient client) {
+        return stateDir.resolve(stateName(client) + ".properties");
+    }
+
+    private static String stateName(PGPKeysServerClient client) {
+        URI uri = client.getKeyserver();
+        String name = uri.getScheme() + "_" + uri.getHost() + "_" + uri.getPort();
+        return name.replaceAll("[^A-Za-z0-9.\\-_]", "_");
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adaptive limit of concurrent requests to one key server, with additive increase and multiplicative
+ * decrease (AIMD) of limit.
+ * <p>
+ * Limit grows by one after each fully used window of successful requests, but only while latency stays
+ * close to the lowest observed one. Limit is halved when server is overloaded: on 429 and 5xx responses
+ * and on timeouts. Requests over the limit wait in queue, asynchronous callers are not blocked.
+ */
+final class KeyServerConcurrencyLimiter {
+
+    static final int DEFAULT_INITIAL_LIMIT = 4;
+    static final int DEFAULT_MAX_LIMIT = 16;
+
+    private static final int MIN_LIMIT = 1;
+    private static final double BACKOFF_RATIO = 0.5;
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyServerConcurrencyLimiter.class);
+
+    /**
+     * Result of request, used for limit adjustment.
+     */
+    enum Outcome {
+        /**
+         * Server responded normally, latency is measured.
+         */
+        SUCCESS,
+        /**
+         * Server is overloaded, limit is decreased.
+         */
+        DROPPED,
+        /**
+         * Result not related to server load, limit is not changed.
+         */
+        IGNORED
+    }
+
+    private final String name;
+    private final int maxLimit;
+    private final LongSupplier nanoClock;
+
+    private final Deque<CompletableFuture<Permit>> waiting = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long minLatency = Long.MAX_VALUE;
+
+    KeyServerConcurrencyLimiter(String name) {
+        this(name, DEFAULT_INITIAL_LIMIT, DEFAULT_MAX_LIMIT, System::nanoTime);
+    }
+
+    // used by test
+    KeyServerConcurrencyLimiter(String name, int initialLimit, int maxLimit, LongSupplier nanoClock) {
+        this.name = name;
+        this.limit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.nanoClock = requireNonNull(nanoClock);
+    }
+
+    /**
+     * Acquire permit for one request, permit must be released when request is finished.
+     *
+     * @return future completed when request can be started
+     */
+    CompletableFuture<Permit> acquire() {
+        CompletableFuture<Permit> result = new CompletableFuture<>();
+        Permit permit = null;
+        synchronized (this) {
+            if (inFlight < getLimit()) {
+                inFlight++;
+                permit = new Permit(nanoClock.getAsLong());
+            } else {
+                waiting.add(result);
+            }
+        }
+
+        if (permit != null) {
+            result.complete(permit);
+        }
+        return result;
+    }
+
+    /**
+     * Acquire permit for synchronous request, waits for permit at most given time.
+     *
+     * @param timeoutMillis max time of waiting for permit
+     *
+     * @return permit, which must be released when request is finished
+     *
+     * @throws InterruptedIOException if permit is not granted in given time or waiting thread is interrupted
+     */
+    Permit acquire(long timeoutMillis) throws InterruptedIOException {
+        CompletableFuture<Permit> result = acquire();
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancel(result);
+            throw new InterruptedIOException(
+                    String.format("No permit for request to %s in %d ms", name, timeoutMillis));
+        } catch (InterruptedException e) {
+            cancel(result);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for permit for request to " + name);
+        } catch (ExecutionException e) {
+            // permits are never completed exceptionally
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Give up waiting for permit, permit granted in the meantime is released.
+     */
+    private void cancel(CompletableFuture<Permit> result) {
+        synchronized (this) {
+            if (waiting.remove(result)) {
+                return;
+            }
+        }
+        result.join().release(Outcome.IGNORED);
+    }
+
+    synchronized int getLimit() {
+        return Math.max(MIN_LIMIT, (int) limit);
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void release(Permit permit, Outcome outcome) {
+        List<CompletableFuture<Permit>> granted = new ArrayList<>();
+        List<Permit> permits = new ArrayList<>();
+
+        synchronized (this) {
+            long now = nanoClock.getAsLong();
+            int previousLimit = getLimit();
+            updateLimit(outcome, now - permit.startTime);
+            inFlight--;
+
+            if (previousLimit != getLimit()) {
+                LOGGER.debug("Concurrency limit for {} changed from {} to {}", name, previousLimit, getLimit());
+            }
+
+            while (!waiting.isEmpty() && inFlight < getLimit()) {
+                inFlight++;
+                granted.add(waiting.poll());
+                permits.add(new Permit(now));
+            }
+        }
+
+        // complete out of lock, dependent actions can start next requests
+        for (int i = 0; i < granted.size(); i++) {
+            granted.get(i).complete(permits.get(i));
+        }
+    }
+
+    private void updateLimit(Outcome outcome, long latency) {
+        switch (outcome) {
+            case SUCCESS:
+                minLatency = Math.min(minLatency, latency);
+                // increase only when limit is fully used and latency does not grow
+                if (inFlight >= getLimit() && latency <= minLatency * LATENCY_TOLERANCE) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+                break;
+            case DROPPED:
+                limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Permit for one request.
+     */
+    final class Permit {
+        private final long startTime;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startTime) {
+            this.startTime = startTime;
+        }
+
+        /**
+         * Release permit, next calls are ignored.
+         *
+         * @param outcome result of request
+         */
+        void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                KeyServerConcurrencyLimiter.this.release(this, outcome);
+            }
+        }
+    }
+}
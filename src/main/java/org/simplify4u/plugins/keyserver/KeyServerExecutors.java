@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executors used by asynchronous key server requests.
+ * <p>
+ * Requests are executed by I/O executor, which uses virtual threads when running JDK supports them,
+ * and a cached pool of daemon threads otherwise. Waits between retries are only scheduled
+ * on one scheduler thread, so they do not occupy any I/O thread.
+ */
+final class KeyServerExecutors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyServerExecutors.class);
+
+    private static final class SharedHolder {
+        private static final KeyServerExecutors INSTANCE = new KeyServerExecutors(createIoExecutor(),
+                Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("pgpverify-keyserver-scheduler")));
+    }
+
+    private final ExecutorService ioExecutor;
+    private final ScheduledExecutorService scheduler;
+
+    KeyServerExecutors(ExecutorService ioExecutor, ScheduledExecutorService scheduler) {
+        this.ioExecutor = requireNonNull(ioExecutor);
+        this.scheduler = requireNonNull(scheduler);
+    }
+
+    /**
+     * Executors shared by all key server clients, threads are daemons so they never block JVM exit.
+     *
+     * @return shared executors
+     */
+    static KeyServerExecutors shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    ExecutorService getIoExecutor() {
+        return ioExecutor;
+    }
+
+    ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    private static ExecutorService createIoExecutor() {
+        try {
+            // available since JDK 21, plug-in is still built for older versions
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) method.invoke(null);
+            LOGGER.debug("Virtual threads are used for key server requests");
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debug("Virtual threads are not available - platform threads are used for key server requests");
+            return Executors.newCachedThreadPool(daemonThreadFactory("pgpverify-keyserver-io"));
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.IOException;
+
+import org.apache.http.StatusLine;
+
+/**
+ * Inform about error response of key server.
+ */
+final class KeyServerStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+
+    private final int statusCode;
+
+    KeyServerStatusException(StatusLine statusLine) {
+        super("PGP server returned an error: " + statusLine);
+        this.statusCode = statusLine.getStatusCode();
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Server is overloaded or limits our requests.
+     *
+     * @return {@code true} for 429 and 5xx responses
+     */
+    boolean isOverloaded() {
+        return statusCode == TOO_MANY_REQUESTS || statusCode >= SERVER_ERROR;
+    }
+}
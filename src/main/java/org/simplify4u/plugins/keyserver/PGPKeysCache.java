@@ -17,31 +17,56 @@
 package org.simplify4u.plugins.keyserver;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.URI;
-import java.nio.file.FileSystemException;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import java.security.SecureRandom;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
-import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
 import static org.simplify4u.plugins.utils.ExceptionUtils.getMessage;
 
 import io.vavr.control.Try;
 import org.apache.maven.settings.Proxy;
 import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.operator.PGPContentVerifierBuilderProvider;
+import org.bouncycastle.util.encoders.Hex;
+import org.simplify4u.plugins.utils.ContentVerifierBackend;
+import org.simplify4u.plugins.utils.FlightEvent;
+import org.simplify4u.plugins.utils.PhaseMetrics;
 import org.simplify4u.plugins.utils.PublicKeyUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,27 +74,62 @@ import org.slf4j.LoggerFactory;
 /**
  * @author Slawomir Jaranowski.
  */
-public class PGPKeysCache {
+public class PGPKeysCache implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PGPKeysCache.class);
     private static final String NL = System.lineSeparator();
 
     private final File cachePath;
     private final KeyServerList keyServerList;
+    private final PGPKeysStore keysStore;
+    private VerifiedKeyRings verifiedKeyRings;
+    private KeyServerBudget budget;
+    private PGPKeysSource keysSource;
+    private PGPContentVerifierBuilderProvider verifierProvider = ContentVerifierBackend.BC.getProvider();
+    private PhaseMetrics metrics = new PhaseMetrics();
 
     private static final Object LOCK = new Object();
 
-    public PGPKeysCache(File cachePath, List<String> pgpKeysServerList, boolean loadBalance, Proxy proxy)
+    // real concurrency is adapted by limiter of each key server
+    private static final int PREFETCH_CONCURRENCY = KeyServerConcurrencyLimiter.DEFAULT_MAX_LIMIT;
+
+    // how long close waits for prefetch of keys already in progress
+    private static final Duration PREFETCH_CLOSE_TIMEOUT = Duration.ofSeconds(5);
+
+    // in progress prefetches by key ID, can be shared with other caches in the same Maven session
+    private Map<Long, CompletableFuture<Void>> prefetches = new ConcurrentHashMap<>();
+    // prefetches and key server requests started by this cache
+    private final Set<CompletableFuture<Void>> ownPrefetches = ConcurrentHashMap.newKeySet();
+    private final Set<CompletableFuture<byte[]>> prefetchRequests = ConcurrentHashMap.newKeySet();
+    private Duration prefetchCloseTimeout = PREFETCH_CLOSE_TIMEOUT;
+    private volatile boolean closed;
+
+    public PGPKeysCache(File cachePath, List<String> pgpKeysServerList, boolean loadBalance, boolean adaptive,
+            Duration circuitBreakerInterval, boolean parallelConnect, boolean packedStore, Proxy proxy)
             throws IOException {
-        this(cachePath, prepareClients(pgpKeysServerList, proxy), loadBalance);
+        this(cachePath, prepareClients(pgpKeysServerList, proxy, parallelConnect), loadBalance, adaptive,
+                packedStore);
+        if (circuitBreakerInterval != null && !circuitBreakerInterval.isZero()) {
+            withCircuitBreaker(new KeyServerCircuitBreaker(cachePath.toPath(), circuitBreakerInterval));
+        }
     }
 
     // used be test
     PGPKeysCache(File cachePath, List<PGPKeysServerClient> pgpKeysServerClients, boolean loadBalance)
             throws IOException {
+        this(cachePath, pgpKeysServerClients, loadBalance, false);
+    }
+
+    PGPKeysCache(File cachePath, List<PGPKeysServerClient> pgpKeysServerClients, boolean loadBalance,
+            boolean adaptive) throws IOException {
+        this(cachePath, pgpKeysServerClients, loadBalance, adaptive, false);
+    }
+
+    PGPKeysCache(File cachePath, List<PGPKeysServerClient> pgpKeysServerClients, boolean loadBalance,
+            boolean adaptive, boolean packedStore) throws IOException {
 
         this.cachePath = cachePath;
-        this.keyServerList = createKeyServerList(pgpKeysServerClients, loadBalance);
+        this.keyServerList = createKeyServerList(pgpKeysServerClients, loadBalance, adaptive);
 
         LOGGER.info("Key server(s) - {}", keyServerList);
 
@@ -85,17 +145,129 @@ public class PGPKeysCache {
                     throw new IOException("Cache directory create error");
                 }
             }
+
+            this.keysStore = packedStore
+                    ? new PGPKeysPackStore(cachePath.toPath())
+                    : new PGPKeysFileStore(cachePath);
+        }
+    }
+
+    /**
+     * Limit retries and time spent on key servers requests for all keys.
+     * <p>
+     * When budget is exhausted requests are not retried and keys which are not in cache
+     * are not requested, so verification of such keys fails fast.
+     *
+     * @param maxRetries
+     *         max number of retries for all requests, zero means no limit
+     * @param maxTime
+     *         max time of all requests, zero means no limit
+     *
+     * @return this cache
+     */
+    public PGPKeysCache withBudget(int maxRetries, Duration maxTime) {
+        budget = new KeyServerBudget(maxRetries, maxTime);
+        keyServerList.keysServerClients.forEach(client -> client.withBudget(budget));
+        return this;
+    }
+
+    /**
+     * Look up keys in given source before key servers are asked.
+     *
+     * @param keysSource
+     *         source of keys
+     *
+     * @return this cache
+     */
+    public PGPKeysCache withKeysSource(PGPKeysSource keysSource) {
+        this.keysSource = keysSource;
+        return this;
+    }
+
+    /**
+     * Use given implementation for verification of sub keys signatures.
+     *
+     * @param backend
+     *         implementation of content verifiers
+     *
+     * @return this cache
+     */
+    public PGPKeysCache withContentVerifier(ContentVerifierBackend backend) {
+        this.verifierProvider = backend.getProvider();
+        return this;
+    }
+
+    /**
+     * Verify signatures of sub keys only once for each key ring, digests of verified key rings are stored
+     * in keys cache directory.
+     * <p>
+     * Stored digests are not protected in any way, so who can write to keys cache directory can also mark
+     * modified key ring as verified, eg. key ring with foreign sub key. Should be used only when keys cache
+     * directory is trusted.
+     *
+     * @return this cache
+     */
+    public PGPKeysCache withVerifiedKeyRingsMarkers() {
+        synchronized (LOCK) {
+            verifiedKeyRings = new VerifiedKeyRings(cachePath.toPath(),
+                    keyRing -> PublicKeyUtils.verifyPublicKeyRing(keyRing, verifierProvider));
         }
+        return this;
+    }
+
+    /**
+     * Collect cache hits, key server requests and times of keys operations in given metrics.
+     *
+     * @param metrics
+     *         metrics of verification phases
+     *
+     * @return this cache
+     */
+    public PGPKeysCache withMetrics(PhaseMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Share prefetches in progress with other caches, so the same key is not fetched in the same time
+     * by many modules of build.
+     *
+     * @param prefetches
+     *         prefetches in progress by key ID, shared in Maven session
+     *
+     * @return this cache
+     */
+    public PGPKeysCache withSharedPrefetches(Map<Long, CompletableFuture<Void>> prefetches) {
+        this.prefetches = prefetches;
+        return this;
     }
 
-    static List<PGPKeysServerClient> prepareClients(List<String> keyServers, Proxy proxy) {
+    // used by test
+    PGPKeysCache withPrefetchCloseTimeout(Duration prefetchCloseTimeout) {
+        this.prefetchCloseTimeout = prefetchCloseTimeout;
+        return this;
+    }
+
+    // used by test
+    PGPKeysCache withCircuitBreaker(KeyServerCircuitBreaker circuitBreaker) {
+        keyServerList.withCircuitBreaker(circuitBreaker);
+        return this;
+    }
+
+    static List<PGPKeysServerClient> prepareClients(List<String> keyServers, Proxy proxy, boolean parallelConnect) {
 
         return keyServers.stream()
                 .map(keyserver -> Try.of(() -> PGPKeysServerClient.getClient(keyserver, proxy)).get())
+                .map(client -> parallelConnect ? client.withParallelConnect(ConnectRace.DEFAULT_STAGGER_DELAY) : client)
                 .collect(Collectors.toList());
     }
 
     static KeyServerList createKeyServerList(List<PGPKeysServerClient> pgpKeysServerClients, boolean loadBalance) {
+        return createKeyServerList(pgpKeysServerClients, loadBalance, false);
+    }
+
+    static KeyServerList createKeyServerList(List<PGPKeysServerClient> pgpKeysServerClients, boolean loadBalance,
+            boolean adaptive) {
 
         if (pgpKeysServerClients == null || pgpKeysServerClients.isEmpty()) {
             throw new IllegalArgumentException("Not allowed empty key server clients list ");
@@ -105,7 +277,9 @@ public class PGPKeysCache {
         if (pgpKeysServerClients.size() == 1) {
             ret = new KeyServerListOne();
         } else {
-            if (loadBalance) {
+            if (adaptive) {
+                ret = new KeyServerListAdaptive();
+            } else if (loadBalance) {
                 ret = new KeyServerListLoadBalance();
             } else {
                 ret = new KeyServerListFallback();
@@ -129,95 +303,503 @@ public class PGPKeysCache {
 
     public PGPPublicKeyRing getKeyRing(long keyID) throws IOException, PGPException {
 
-        Optional<PGPPublicKeyRing> keyRing = Optional.empty();
+        try (PhaseMetrics.Timer ignored = metrics.start(PhaseMetrics.KEYS_GET);
+             FlightEvent event = FlightEvent.getKeyRing(keyID)) {
+            awaitPrefetch(keyID);
 
-        String path = String.format("%02X/%02X/%016X.asc", (byte) (keyID >> 56), (byte) (keyID >> 48 & 0xff), keyID);
-        File keyFile = new File(cachePath, path);
+            synchronized (LOCK) {
+                boolean cached = keysStore.contains(keyID);
+                metrics.increment(cached ? PhaseMetrics.KEYS_CACHE_HITS : PhaseMetrics.KEYS_CACHE_MISSES);
 
-        synchronized (LOCK) {
+                final String source;
+                if (cached) {
+                    source = "cached";
+                } else if (receiveKeyFromSource(keyID)) {
+                    source = "keysSource";
+                } else {
+                    if (budget != null && !budget.tryRequest()) {
+                        throw new IOException(String.format(
+                                "Key servers budget exhausted - %s, key 0x%016X is not requested", budget, keyID));
+                    }
+                    keyServerList.execute(keysServerClient -> receiveKey(keyID, keysServerClient));
+                    source = "keyServer";
+                }
 
-            if (!keyFile.exists()) {
-                keyServerList.execute(keysServerClient -> receiveKey(keyFile, keyID, keysServerClient));
+                PGPPublicKeyRing keyRing = loadKeyRing(keyID);
+                event.outcome(source);
+                return keyRing;
             }
+        }
+    }
 
-            try (InputStream keyFileStream = new FileInputStream(keyFile)) {
-                keyRing = PublicKeyUtils.loadPublicKeyRing(keyFileStream, keyID);
-                return keyRing.orElseThrow(() ->
+    /**
+     * Wait for background fetch which can bring given key, result of prefetch is not important.
+     */
+    private void awaitPrefetch(long keyID) {
+
+        if (prefetches.isEmpty()) {
+            return;
+        }
+
+        CompletableFuture<Void> prefetch = prefetches.get(keyID);
+        if (prefetch != null) {
+            prefetch.join();
+            return;
+        }
+
+        if (!isCached(keyID)) {
+            // key ID can belong to sub key of key which is just fetching,
+            // sub keys are known only when key ring is received
+            CompletableFuture.allOf(prefetches.values().toArray(new CompletableFuture<?>[0])).join();
+        }
+    }
+
+    private boolean isCached(long keyID) {
+        synchronized (LOCK) {
+            return keysStore.contains(keyID);
+        }
+    }
+
+    /**
+     * Load and verify key ring from store, not valid key is removed from store.
+     */
+    private PGPPublicKeyRing loadKeyRing(long keyID) throws IOException, PGPException {
+
+        Optional<PGPPublicKeyRing> keyRing = Optional.empty();
+
+        try (PhaseMetrics.Timer ignored = metrics.start(PhaseMetrics.KEYS_LOAD)) {
+            try (InputStream keyStream = keysStore.open(keyID)) {
+                keyRing = PublicKeyUtils.loadPublicKeyRing(keyStream, keyID, false);
+                PGPPublicKeyRing publicKeyRing = keyRing.orElseThrow(() ->
                         new PGPException(String.format("Can't find public key 0x%016X in download file: %s",
-                                keyID, keyFile)));
+                                keyID, keysStore.location(keyID))));
+                try {
+                    if (verifiedKeyRings != null) {
+                        verifiedKeyRings.verify(publicKeyRing);
+                    } else {
+                        PublicKeyUtils.verifyPublicKeyRing(publicKeyRing, verifierProvider);
+                    }
+                } catch (PGPException | RuntimeException e) {
+                    keyRing = Optional.empty();
+                    throw e;
+                }
+                return publicKeyRing;
             } finally {
                 if (!keyRing.isPresent()) {
-                    deleteFile(keyFile);
+                    keysStore.remove(keyID);
                 }
             }
         }
     }
 
-    private void receiveKey(File keyFile, long keyId, PGPKeysServerClient keysServerClient) throws IOException {
-        File dir = keyFile.getParentFile();
+    /**
+     * Import key rings from local file into cache, so they will be never requested from key servers.
+     * <p>
+     * Each key ring is stored for every key ID of its master key and sub keys. Keys which already exist
+     * in cache are not replaced.
+     *
+     * @param keyRingsFile
+     *         file with key rings, armored or binary, GnuPG key ring and key box are also supported
+     *
+     * @return number of imported keys
+     *
+     * @throws IOException
+     *         if problem with reading or writing files
+     * @throws PGPException
+     *         if problem with PGP data
+     */
+    public int importKeyRings(File keyRingsFile) throws IOException, PGPException {
+
+        List<PGPPublicKeyRing> keyRings = PublicKeyUtils.loadPublicKeyRings(Files.readAllBytes(keyRingsFile.toPath()));
 
-        if (dir == null) {
-            throw new IOException("No parent dir for: " + keyFile);
+        int imported = 0;
+        for (PGPPublicKeyRing keyRing : keyRings) {
+            imported += storeKeyRing(keyRing);
         }
 
-        if (dir.exists() && !dir.isDirectory()) {
-            throw new IOException("Path exist but it isn't directory: " + dir);
+        LOGGER.info("Import {} keys from {} key rings in: {}", imported, keyRings.size(), keyRingsFile);
+        return imported;
+    }
+
+    /**
+     * Fetch keys with given fingerprints from key servers in background, keys already present in cache are skipped.
+     * <p>
+     * Keys are requested by fingerprint, when key server responds that key is not found by fingerprint
+     * it is requested by key ID. Failures are only logged, such key will be requested again when needed.
+     * {@link #getKeyRing(long)} for key, or possible sub key of key, which is currently fetched
+     * waits for the result. Keys which are just fetched by other cache sharing prefetches are skipped.
+     * <p>
+     * Prefetch is stopped when cache is closed.
+     *
+     * @param fingerprints
+     *         full fingerprints of keys
+     *
+     * @return future completed when all keys are processed
+     */
+    public CompletableFuture<Void> prefetchKeys(Collection<byte[]> fingerprints) {
+
+        final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+        synchronized (LOCK) {
+            fingerprints.stream()
+                    .filter(fingerprint -> {
+                        long keyId = PublicKeyUtils.keyIdFromFingerprint(fingerprint);
+                        return !keysStore.contains(keyId) && !prefetches.containsKey(keyId);
+                    })
+                    .forEach(queue::add);
         }
 
-        // result is ignored, in this place we suspect that nothing wrong can happen
-        // in multi process mode it can happen that two process check for existing directory
-        // in the same time, one create it
-        dir.mkdirs();
+        LOGGER.info("Prefetch {} keys of {} from keys map", queue.size(), fingerprints.size());
 
-        File partFile = File.createTempFile(String.valueOf(keyId), "pgp-public-key");
+        final AtomicInteger fetched = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[PREFETCH_CONCURRENCY];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = prefetchNext(queue, fetched);
+        }
 
+        return CompletableFuture.allOf(workers)
+                .thenRun(() -> LOGGER.info("Prefetch done, received {} keys", fetched.get()));
+    }
+
+    private CompletableFuture<Void> prefetchNext(Queue<byte[]> queue, AtomicInteger fetched) {
+
+        final CompletableFuture<Void> prefetch = new CompletableFuture<>();
+        byte[] nextFingerprint;
+        long nextKeyId;
+        do {
+            nextFingerprint = closed ? null : queue.poll();
+            if (nextFingerprint == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            nextKeyId = PublicKeyUtils.keyIdFromFingerprint(nextFingerprint);
+            // key can be fetched by other cache in the meantime
+        } while (prefetches.putIfAbsent(nextKeyId, prefetch) != null);
+        ownPrefetches.add(prefetch);
+
+        final byte[] fingerprint = nextFingerprint;
+        final long keyId = nextKeyId;
+
+        fetchKeyFromSourceAsync(keyId)
+                .thenCompose(received -> {
+                    if (received) {
+                        return CompletableFuture.completedFuture(true);
+                    }
+                    if (closed || isCached(keyId)) {
+                        // received meanwhile with other key ring
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    if (budget != null && !budget.tryRequest()) {
+                        queue.clear();
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return fetchKeyAsync(fingerprint, keyId, keyServerList.keysServerClients.iterator())
+                            .thenApply(content -> {
+                                storeFetchedKey(fingerprint, content);
+                                return true;
+                            });
+                })
+                .whenComplete((received, e) -> {
+                    if (e != null) {
+                        LOGGER.debug("Prefetch key 0x{} failed: {}", Hex.toHexString(fingerprint), getMessage(e));
+                    } else if (received) {
+                        fetched.incrementAndGet();
+                    }
+                    finishPrefetch(keyId, prefetch);
+                });
+
+        // next key is started by executor, not inline, so completed futures can not overflow the stack
+        return prefetch.thenComposeAsync(r -> prefetchNext(queue, fetched),
+                KeyServerExecutors.shared().getIoExecutor());
+    }
+
+    private void finishPrefetch(long keyId, CompletableFuture<Void> prefetch) {
+        prefetches.remove(keyId, prefetch);
+        ownPrefetches.remove(prefetch);
+        // result of prefetch is not important, waiting for key is only released
+        prefetch.complete(null);
+    }
+
+    private CompletableFuture<Boolean> fetchKeyFromSourceAsync(long keyId) {
+        if (keysSource == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return CompletableFuture.supplyAsync(() -> receiveKeyFromSource(keyId),
+                KeyServerExecutors.shared().getIoExecutor());
+    }
+
+    private CompletableFuture<byte[]> fetchKeyAsync(byte[] fingerprint, long keyId,
+            Iterator<PGPKeysServerClient> clients) {
+
+        PGPKeysServerClient client = null;
+        while (clients.hasNext() && client == null) {
+            client = clients.next();
+            if (keyServerList.circuitBreaker != null && !keyServerList.circuitBreaker.isCallPermitted(client)) {
+                client = null;
+            }
+        }
+
+        if (client == null) {
+            return failedFuture(new IOException("No key server available"));
+        }
+
+        final PGPKeysServerClient currentClient = client;
+        final KeyServerExecutors executors = KeyServerExecutors.shared();
+
+        metrics.increment(PhaseMetrics.KEYSERVER_REQUESTS);
+        return recordResult(currentClient, track(currentClient.getKeyAsync(fingerprint, executors, this::onRetry)))
+                .handle((content, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.completedFuture(content);
+                    }
+                    if (!(unwrap(e) instanceof PGPKeyNotFound)) {
+                        // lookup by key ID has no chance when server is not available
+                        return PGPKeysCache.<byte[]>failedFuture(unwrap(e));
+                    }
+                    metrics.increment(PhaseMetrics.KEYSERVER_REQUESTS);
+                    return recordResult(currentClient,
+                            track(currentClient.getKeyAsync(keyId, executors, this::onRetry)));
+                })
+                .thenCompose(Function.identity())
+                .handle((content, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.completedFuture(content);
+                    }
+                    if (closed) {
+                        return PGPKeysCache.<byte[]>failedFuture(unwrap(e));
+                    }
+                    return fetchKeyAsync(fingerprint, keyId, clients);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Remember key server request in progress, so it can be cancelled when cache is closed.
+     */
+    private CompletableFuture<byte[]> track(CompletableFuture<byte[]> request) {
+        prefetchRequests.add(request);
+        request.whenComplete((content, e) -> prefetchRequests.remove(request));
+        return request;
+    }
+
+    private CompletableFuture<byte[]> recordResult(PGPKeysServerClient client,
+            CompletableFuture<byte[]> request) {
+        final KeyServerCircuitBreaker circuitBreaker = keyServerList.circuitBreaker;
+        if (circuitBreaker == null) {
+            return request;
+        }
+        return request.whenComplete((content, e) -> {
+            // cancelled request says nothing about key server
+            if (!(unwrap(e) instanceof CancellationException)) {
+                circuitBreaker.onResult(client, e == null ? null : unwrap(e));
+            }
+        });
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(e);
+        return result;
+    }
+
+    private void storeFetchedKey(byte[] fingerprint, byte[] content) {
         try {
-            try (BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(partFile))) {
-                keysServerClient.copyKeyToOutputStream(keyId, outputStream, this::onRetry);
+            PGPPublicKeyRing keyRing = PublicKeyUtils.loadPublicKeyRings(content).stream()
+                    .filter(ring -> Arrays.equals(ring.getPublicKey().getFingerprint(), fingerprint))
+                    .findFirst()
+                    .orElseThrow(() -> new PGPException("Key not found in received content"));
+            storeKeyRing(keyRing);
+        } catch (IOException | PGPException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Store key ring in cache for every key ID of its master key and sub keys.
+     *
+     * @return number of stored keys
+     */
+    private int storeKeyRing(PGPPublicKeyRing keyRing) throws IOException {
+        synchronized (LOCK) {
+            if (closed) {
+                // background prefetch finished after cache was closed
+                throw new IOException("Keys cache is closed");
             }
-            moveFile(partFile, keyFile);
-        } catch (IOException e) {
-            // if error try remove file
-            deleteFile(keyFile);
-            deleteFile(partFile);
-            throw e;
+            List<Long> keyIds = new ArrayList<>();
+            for (PGPPublicKey key : keyRing) {
+                if (!keysStore.contains(key.getKeyID())) {
+                    keyIds.add(key.getKeyID());
+                }
+            }
+
+            if (!keyIds.isEmpty()) {
+                keysStore.store(keyIds, Collections.singletonList(PublicKeyUtils.minimizeKeyRing(keyRing)));
+            }
+            return keyIds.size();
         }
+    }
 
-        LOGGER.info("Receive key: {}{}\tto {}", keysServerClient.getUriForGetKey(keyId), NL, keyFile);
+    /**
+     * Export all key rings from cache into one binary file, which can be imported by
+     * {@link #importKeyRings(File)}.
+     *
+     * @param exportFile
+     *         destination file
+     *
+     * @return number of exported key rings
+     *
+     * @throws IOException
+     *         if problem with reading or writing files
+     */
+    public int exportKeyRings(File exportFile) throws IOException {
+
+        Set<String> exported = new HashSet<>();
+
+        synchronized (LOCK) {
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(exportFile))) {
+                keysStore.forEach(content -> {
+                    List<PGPPublicKeyRing> keyRings;
+                    try {
+                        keyRings = PublicKeyUtils.loadPublicKeyRings(content);
+                    } catch (IOException | PGPException e) {
+                        LOGGER.warn("Skip broken key in cache - {}", getMessage(e));
+                        return;
+                    }
+
+                    for (PGPPublicKeyRing keyRing : keyRings) {
+                        if (exported.add(Hex.toHexString(keyRing.getPublicKey().getFingerprint()))) {
+                            keyRing.encode(outputStream, true);
+                        }
+                    }
+                });
+            }
+        }
+
+        LOGGER.info("Export {} key rings to: {}", exported.size(), exportFile);
+        return exported.size();
+    }
+
+    /**
+     * Store key rings from keys source, if source is configured and contains given key.
+     *
+     * @return {@code true} if key is stored in cache
+     */
+    private boolean receiveKeyFromSource(long keyId) {
+        if (keysSource == null) {
+            return false;
+        }
+
+        final String keyIdHex = String.format("0x%016X", keyId);
+        try {
+            Optional<byte[]> content = keysSource.getKeyRing(keyId);
+            if (!content.isPresent()) {
+                LOGGER.debug("Key {} not found in keys source", keyIdHex);
+                return false;
+            }
+
+            synchronized (LOCK) {
+                for (PGPPublicKeyRing keyRing : PublicKeyUtils.loadPublicKeyRings(content.get())) {
+                    storeKeyRing(keyRing);
+                }
+                if (!keysStore.contains(keyId)) {
+                    LOGGER.warn("Key {} not found in key rings from keys source", keyIdHex);
+                    return false;
+                }
+            }
+        } catch (IOException | PGPException e) {
+            LOGGER.warn("Can't receive key {} from keys source - {}", keyIdHex, getMessage(e));
+            return false;
+        }
+
+        metrics.increment(PhaseMetrics.KEYS_FROM_SOURCE);
+        LOGGER.info("Receive key: {} from keys source{}\tto {}", keyIdHex, NL,
+                keysStore.location(keyId));
+        return true;
+    }
+
+    private void receiveKey(long keyId, PGPKeysServerClient keysServerClient) throws IOException {
+
+        metrics.increment(PhaseMetrics.KEYSERVER_REQUESTS);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (PhaseMetrics.Timer ignored = metrics.start(PhaseMetrics.KEYS_FETCH)) {
+            keysServerClient.copyKeyToOutputStream(keyId, outputStream, this::onRetry);
+        }
+
+        List<PGPPublicKeyRing> keyRings = new ArrayList<>();
+        try {
+            for (PGPPublicKeyRing keyRing : PublicKeyUtils.loadPublicKeyRings(outputStream.toByteArray())) {
+                keyRings.add(PublicKeyUtils.minimizeKeyRing(keyRing));
+            }
+        } catch (PGPException e) {
+            throw new PGPKeyInvalid("Invalid key received from: " + keysServerClient.getUriForGetKey(keyId), e);
+        }
+
+        if (keyRings.isEmpty()) {
+            // e.g. html page returned with 200 status, nothing to store
+            throw new PGPKeyNotFound("No key received from: " + keysServerClient.getUriForGetKey(keyId));
+        }
+
+        keysStore.store(Collections.singletonList(keyId), keyRings);
+
+        LOGGER.info("Receive key: {}{}\tto {}", keysServerClient.getUriForGetKey(keyId), NL,
+                keysStore.location(keyId));
     }
 
     private void onRetry(InetAddress address, int numberOfRetryAttempts, Duration waitInterval,
             Throwable lastThrowable) {
 
+        metrics.increment(PhaseMetrics.KEYSERVER_RETRIES);
         LOGGER.warn("[Retry #{} waiting: {}] Last address {} with problem: [{}] {}",
                 numberOfRetryAttempts, waitInterval, address,
                 lastThrowable.getClass().getName(), getMessage(lastThrowable));
     }
 
-    private void deleteFile(File file) {
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        stopPrefetch();
 
-        Optional.ofNullable(file)
-                .map(File::toPath)
-                .ifPresent(filePath -> {
-                            try {
-                                Files.deleteIfExists(filePath);
-                            } catch (IOException e) {
-                                LOGGER.warn("Can't delete: {}", filePath);
-                            }
-                        }
-                );
+        if (budget != null) {
+            if (budget.isExhausted()) {
+                LOGGER.warn("Key servers budget exhausted - {}", budget);
+            } else {
+                LOGGER.info("Key servers budget - {}", budget);
+            }
+        }
+
+        synchronized (LOCK) {
+            keysStore.close();
+        }
     }
 
-    private void moveFile(File source, File destination) throws IOException {
+    /**
+     * Wait for prefetches in progress with timeout, not finished ones are cancelled.
+     */
+    private void stopPrefetch() {
+        if (ownPrefetches.isEmpty()) {
+            return;
+        }
+
         try {
-            Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        } catch (FileSystemException fse) {
-            // on windows system we can get:
-            // The process cannot access the file because it is being used by another process.
-            // so wait ... and try again
-            sleepUninterruptibly(250L + new SecureRandom().nextInt(1000), TimeUnit.MILLISECONDS);
-            Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            CompletableFuture.allOf(ownPrefetches.toArray(new CompletableFuture<?>[0]))
+                    .get(prefetchCloseTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warn("Prefetch of {} keys is not finished in {}, it is cancelled",
+                    ownPrefetches.size(), prefetchCloseTimeout);
+        } catch (ExecutionException e) {
+            // result of prefetch is not important
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+
+        prefetchRequests.forEach(request -> request.cancel(false));
+        prefetches.forEach((keyId, prefetch) -> {
+            if (ownPrefetches.contains(prefetch)) {
+                finishPrefetch(keyId, prefetch);
+            }
+        });
     }
 
     @FunctionalInterface
@@ -233,6 +815,7 @@ public class PGPKeysCache {
         protected List<PGPKeysServerClient> keysServerClients = new ArrayList<>();
         protected PGPKeysServerClient lastClient;
         protected IOException lastException;
+        protected KeyServerCircuitBreaker circuitBreaker;
 
         KeyServerList withClients(List<PGPKeysServerClient> keysServerClients) {
             this.keysServerClients = keysServerClients;
@@ -240,13 +823,41 @@ public class PGPKeysCache {
             return this;
         }
 
+        KeyServerList withCircuitBreaker(KeyServerCircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
         URI getUriForShowKey(long keyID) {
             return lastClient.getUriForShowKey(keyID);
         }
 
-        boolean isSuccessExecute(KeyServerExecutor executor, PGPKeysServerClient client) {
+        /**
+         * Run executor on client, guarded by circuit breaker if configured.
+         */
+        protected void runOnClient(KeyServerExecutor executor, PGPKeysServerClient client) throws IOException {
+            if (circuitBreaker == null) {
+                executor.run(client);
+                return;
+            }
+
+            if (!circuitBreaker.isCallPermitted(client)) {
+                throw new IOException("Key server " + client + " failed recently, it is skipped until "
+                        + circuitBreaker.readOpenUntil(client).map(Object::toString).orElse("now"));
+            }
+
             try {
                 executor.run(client);
+                circuitBreaker.onSuccess(client);
+            } catch (IOException e) {
+                circuitBreaker.onResult(client, e);
+                throw e;
+            }
+        }
+
+        boolean isSuccessExecute(KeyServerExecutor executor, PGPKeysServerClient client) {
+            try {
+                runOnClient(executor, client);
                 lastClient = client;
                 return true;
             } catch (IOException e) {
@@ -278,7 +889,7 @@ public class PGPKeysCache {
 
         @Override
         void execute(KeyServerExecutor executor) throws IOException {
-            executor.run(lastClient);
+            runOnClient(executor, lastClient);
         }
 
         @Override
@@ -339,4 +950,98 @@ public class PGPKeysCache {
         }
 
     }
+
+    /**
+     * Choose the best server for each request, by measured latency and failure rate.
+     * <p>
+     * Statistics are exponentially weighted moving averages, so they follow current state of servers.
+     * Servers without any statistics are tried first, in order to measure them.
+     */
+    static class KeyServerListAdaptive extends KeyServerList {
+
+        // weight of the last sample in moving averages
+        private static final double ALPHA = 0.3;
+
+        // how many times a server which always fails is considered slower than one with the same latency
+        private static final double FAILURE_PENALTY = 10.0;
+
+        private final LongSupplier nanoClock;
+        private final Map<PGPKeysServerClient, ServerStats> stats = new IdentityHashMap<>();
+
+        KeyServerListAdaptive() {
+            this(System::nanoTime);
+        }
+
+        // used by test
+        KeyServerListAdaptive(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+        }
+
+        @Override
+        KeyServerList withClients(List<PGPKeysServerClient> keysServerClients) {
+            stats.clear();
+            keysServerClients.forEach(client -> stats.put(client, new ServerStats()));
+            return super.withClients(keysServerClients);
+        }
+
+        @Override
+        String getName() {
+            return "adaptive";
+        }
+
+        @Override
+        void execute(KeyServerExecutor executor) throws IOException {
+
+            List<PGPKeysServerClient> ordered = new ArrayList<>(keysServerClients);
+            ordered.sort(Comparator.comparingDouble(client -> stats.get(client).score()));
+
+            try {
+                for (PGPKeysServerClient client : ordered) {
+                    long start = nanoClock.getAsLong();
+                    boolean success = isSuccessExecute(executor, client);
+                    // key not found is valid response of server
+                    stats.get(client).update(nanoClock.getAsLong() - start,
+                            success || lastException instanceof PGPKeyNotFound);
+                    if (success) {
+                        return;
+                    }
+                }
+            } finally {
+                LOGGER.debug("Key servers statistics: {}", stats);
+            }
+
+            throw new IOException("All servers from list was failed", lastException);
+        }
+
+        /**
+         * Statistics of one server.
+         */
+        private static final class ServerStats {
+            private long requests;
+            private double latencyNanos;
+            private double failureRate;
+
+            private void update(long elapsedNanos, boolean success) {
+                double failure = success ? 0.0 : 1.0;
+                if (requests == 0) {
+                    latencyNanos = elapsedNanos;
+                    failureRate = failure;
+                } else {
+                    latencyNanos = ALPHA * elapsedNanos + (1 - ALPHA) * latencyNanos;
+                    failureRate = ALPHA * failure + (1 - ALPHA) * failureRate;
+                }
+                requests++;
+            }
+
+            private double score() {
+                return requests == 0 ? 0.0 : latencyNanos * (1.0 + FAILURE_PENALTY * failureRate);
+            }
+
+            @Override
+            public String toString() {
+                return String.format(Locale.US, "{requests: %d, latency: %.1f ms, failures: %.1f%%}",
+                        requests, latencyNanos / 1_000_000, failureRate * 100);
+            }
+        }
+    }
 }
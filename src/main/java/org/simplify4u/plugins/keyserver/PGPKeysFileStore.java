@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+
+import org.bouncycastle.bcpg.ArmoredOutputStream;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Store with one armored file per key ID, in two level directory tree: <code>XX/YY/KEYID.asc</code>.
+ */
+final class PGPKeysFileStore implements PGPKeysStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PGPKeysFileStore.class);
+
+    private static final Pattern KEY_FILE_NAME = Pattern.compile("[0-9A-F]{16}\\.asc");
+
+    private final File cachePath;
+
+    PGPKeysFileStore(File cachePath) {
+        this.cachePath = cachePath;
+    }
+
+    @Override
+    public boolean contains(long keyId) {
+        return keyFile(keyId).exists();
+    }
+
+    @Override
+    public InputStream open(long keyId) throws IOException {
+        return new FileInputStream(keyFile(keyId));
+    }
+
+    @Override
+    public void store(Collection<Long> keyIds, List<PGPPublicKeyRing> keyRings) throws IOException {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (PGPPublicKeyRing keyRing : keyRings) {
+            try (ArmoredOutputStream armoredOutputStream = new ArmoredOutputStream(outputStream)) {
+                keyRing.encode(armoredOutputStream, true);
+            }
+        }
+
+        byte[] content = outputStream.toByteArray();
+        for (Long keyId : keyIds) {
+            writeKeyFile(keyFile(keyId), content);
+        }
+    }
+
+    @Override
+    public void remove(long keyId) {
+        deleteFile(keyFile(keyId));
+    }
+
+    @Override
+    public String location(long keyId) {
+        return keyFile(keyId).toString();
+    }
+
+    @Override
+    public void forEach(KeyRingsConsumer consumer) throws IOException {
+        try (Stream<Path> paths = Files.walk(cachePath.toPath(), 3)) {
+            Iterator<Path> iterator = paths
+                    .filter(path -> KEY_FILE_NAME.matcher(path.getFileName().toString()).matches())
+                    .filter(Files::isRegularFile)
+                    .iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(Files.readAllBytes(iterator.next()));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+
+    private File keyFile(long keyID) {
+        String path = String.format("%02X/%02X/%016X.asc", (byte) (keyID >> 56), (byte) (keyID >> 48 & 0xff), keyID);
+        return new File(cachePath, path);
+    }
+
+    private static void writeKeyFile(File keyFile, byte[] content) throws IOException {
+        File dir = keyFile.getParentFile();
+        if (dir == null) {
+            throw new IOException("No parent dir for: " + keyFile);
+        }
+
+        if (dir.exists() && !dir.isDirectory()) {
+            throw new IOException("Path exist but it isn't directory: " + dir);
+        }
+
+        // result is ignored, in this place we suspect that nothing wrong can happen
+        // in multi process mode it can happen that two process check for existing directory
+        // in the same time, one create it
+        dir.mkdirs();
+
+        File partFile = File.createTempFile(keyFile.getName(), "pgp-public-key", dir);
+        try {
+            Files.write(partFile.toPath(), content);
+            moveFile(partFile, keyFile);
+        } catch (IOException e) {
+            // if error try remove file
+            deleteFile(keyFile);
+            deleteFile(partFile);
+            throw e;
+        }
+    }
+
+    private static void deleteFile(File file) {
+
+        Optional.ofNullable(file)
+                .map(File::toPath)
+                .ifPresent(filePath -> {
+                            try {
+                                Files.deleteIfExists(filePath);
+                            } catch (IOException e) {
+                                LOGGER.warn("Can't delete: {}", filePath);
+                            }
+                        }
+                );
+    }
+
+    private static void moveFile(File source, File destination) throws IOException {
+        try {
+            Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileSystemException fse) {
+            // on windows system we can get:
+            // The process cannot access the file because it is being used by another process.
+            // so wait ... and try again
+            sleepUninterruptibly(250L + new SecureRandom().nextInt(1000), TimeUnit.MILLISECONDS);
+            Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
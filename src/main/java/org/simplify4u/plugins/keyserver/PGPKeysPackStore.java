@@ -0,0 +1,446 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Store with all key rings in one append-only pack file and memory-mapped index of key IDs.
+ * <p>
+ * Pack file <code>keys.pack</code> contains records, each record has key IDs and binary key rings:
+ * <pre>
+ * int recordLength, int keyCount, long[keyCount] keyIds, byte[] keyRings
+ * </pre>
+ * Record without key rings removes given key IDs.
+ * <p>
+ * Index file <code>keys-&lt;length&gt;.idx</code> contains key IDs sorted with offsets of records in pack file
+ * and length of pack file which is indexed, the same length is in file name. Records appended after index
+ * was written are read from pack file into memory, new index is written when store is closed.
+ * <p>
+ * Index file is never replaced, because it can be still mapped by this or other process - on Windows
+ * mapped file can not be replaced or removed until buffer is garbage collected. Index with the biggest
+ * indexed length is used, older ones are removed when possible.
+ * <p>
+ * Pack file is locked during writes, so many processes can share it.
+ */
+final class PGPKeysPackStore implements PGPKeysStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PGPKeysPackStore.class);
+
+    static final String PACK_FILE = "keys.pack";
+    static final String INDEX_FILE_PREFIX = "keys-";
+    static final String INDEX_FILE_SUFFIX = ".idx";
+    private static final Pattern INDEX_FILE_PATTERN = Pattern.compile("keys-([0-9a-f]{16})\\.idx");
+
+    private static final long PACK_MAGIC = 0x5047505650414B31L;  // PGPVPAK1
+    private static final long INDEX_MAGIC = 0x5047505649445831L; // PGPVIDX1
+
+    private static final int PACK_HEADER_SIZE = Long.BYTES;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int INDEX_HEADER_SIZE = 2 * Long.BYTES + Integer.BYTES;
+    private static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+
+    private static final long NOT_FOUND = -1L;
+
+    // file lock can be acquired only once in JVM
+    private static final Object FILE_LOCK = new Object();
+
+    private final Path cachePath;
+    private final Path packPath;
+    private final FileChannel packChannel;
+
+    private MappedByteBuffer index;
+    private int indexCount;
+
+    // records which are not in index, removed key IDs have NOT_FOUND offset
+    private final NavigableMap<Long, Long> journal = new ConcurrentSkipListMap<>();
+    private volatile long scannedLength;
+
+    PGPKeysPackStore(Path cachePath) throws IOException {
+        this.cachePath = cachePath;
+        this.packPath = cachePath.resolve(PACK_FILE);
+        this.packChannel = FileChannel.open(packPath,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+
+        try {
+            synchronized (FILE_LOCK) {
+                try (FileLock ignored = packChannel.lock()) {
+                    initPack();
+                    // under lock, so index is not removed by other process before it is mapped
+                    scannedLength = mapIndex();
+                }
+            }
+            refresh();
+        } catch (IOException e) {
+            packChannel.close();
+            throw e;
+        }
+
+        LOGGER.debug("Keys pack: {} indexed keys: {}, not indexed keys: {}", packPath, indexCount, journal.size());
+    }
+
+    private void initPack() throws IOException {
+        if (packChannel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(PACK_HEADER_SIZE).putLong(PACK_MAGIC);
+            header.flip();
+            writeFully(header, 0);
+        } else if (packChannel.size() < PACK_HEADER_SIZE || readBuffer(0, PACK_HEADER_SIZE).getLong() != PACK_MAGIC) {
+            throw new IOException("Invalid keys pack file: " + packPath);
+        }
+    }
+
+    static Path indexFile(Path cachePath, long packLength) {
+        return cachePath.resolve(String.format("%s%016x%s", INDEX_FILE_PREFIX, packLength, INDEX_FILE_SUFFIX));
+    }
+
+    /**
+     * Index files by indexed length of pack.
+     */
+    private NavigableMap<Long, Path> indexFiles() throws IOException {
+        NavigableMap<Long, Path> indexFiles = new TreeMap<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(cachePath,
+                INDEX_FILE_PREFIX + "*" + INDEX_FILE_SUFFIX)) {
+            for (Path path : paths) {
+                Matcher matcher = INDEX_FILE_PATTERN.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    indexFiles.put(Long.parseUnsignedLong(matcher.group(1), 16), path);
+                }
+            }
+        }
+        return indexFiles;
+    }
+
+    /**
+     * Map the newest index file if it is valid for current pack.
+     *
+     * @return length of indexed part of pack
+     */
+    private long mapIndex() throws IOException {
+        Map.Entry<Long, Path> lastIndex = indexFiles().lastEntry();
+        if (lastIndex == null) {
+            return PACK_HEADER_SIZE;
+        }
+
+        Path indexPath = lastIndex.getValue();
+        try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long indexSize = indexChannel.size();
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+            while (indexSize >= INDEX_HEADER_SIZE && header.hasRemaining()) {
+                indexChannel.read(header, header.position());
+            }
+            header.flip();
+
+            // index is checked before it is mapped, so not valid index can be removed also on Windows
+            if (!header.hasRemaining() || header.getLong() != INDEX_MAGIC
+                    || !isValidIndex(header.getLong(), header.getInt(), indexSize, lastIndex.getKey())) {
+                indexChannel.close();
+                LOGGER.warn("Keys pack index is not valid, pack will be scanned: {}", indexPath);
+                removeIndex(indexPath);
+                return PACK_HEADER_SIZE;
+            }
+
+            index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexSize);
+            indexCount = index.getInt(2 * Long.BYTES);
+            return lastIndex.getKey();
+        }
+    }
+
+    private boolean isValidIndex(long packLength, int count, long indexSize, long indexFileLength)
+            throws IOException {
+        return count >= 0 && indexSize == INDEX_HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE
+                && packLength == indexFileLength
+                && packLength >= PACK_HEADER_SIZE && packLength <= packChannel.size();
+    }
+
+    /**
+     * Read records appended to pack after last scan, also by other processes.
+     */
+    private synchronized void refresh() throws IOException {
+        final long size = packChannel.size();
+        long position = scannedLength;
+
+        while (position + RECORD_HEADER_SIZE <= size) {
+            ByteBuffer header = readBuffer(position, RECORD_HEADER_SIZE);
+            int recordLength = header.getInt();
+            int keyCount = header.getInt();
+            long keyIdsLength = (long) keyCount * Long.BYTES;
+
+            if (keyCount < 0 || recordLength < Integer.BYTES + keyIdsLength
+                    || position + Integer.BYTES + recordLength > size) {
+                // not complete record - interrupted or in progress write
+                break;
+            }
+
+            ByteBuffer keyIds = readBuffer(position + RECORD_HEADER_SIZE, (int) keyIdsLength);
+            long offset = recordLength == Integer.BYTES + keyIdsLength ? NOT_FOUND : position;
+            for (int i = 0; i < keyCount; i++) {
+                journal.put(keyIds.getLong(), offset);
+            }
+
+            position += Integer.BYTES + recordLength;
+        }
+
+        scannedLength = position;
+    }
+
+    private long find(long keyId) {
+        Long offset = journal.get(keyId);
+        if (offset != null) {
+            return offset;
+        }
+        return findInIndex(keyId);
+    }
+
+    private long findInIndex(long keyId) {
+        int low = 0;
+        int high = indexCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = INDEX_HEADER_SIZE + mid * INDEX_ENTRY_SIZE;
+            long midKeyId = index.getLong(entry);
+            if (midKeyId < keyId) {
+                low = mid + 1;
+            } else if (midKeyId > keyId) {
+                high = mid - 1;
+            } else {
+                return index.getLong(entry + Long.BYTES);
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private long findWithRefresh(long keyId) throws IOException {
+        long offset = find(keyId);
+        if (offset == NOT_FOUND && packChannel.size() > scannedLength) {
+            refresh();
+            offset = find(keyId);
+        }
+        return offset;
+    }
+
+    @Override
+    public boolean contains(long keyId) {
+        try {
+            return findWithRefresh(keyId) != NOT_FOUND;
+        } catch (IOException e) {
+            LOGGER.warn("Can't read keys pack: {} - {}", packPath, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public InputStream open(long keyId) throws IOException {
+        long offset = findWithRefresh(keyId);
+        if (offset == NOT_FOUND) {
+            throw new IOException(String.format("Key 0x%016X not found in: %s", keyId, packPath));
+        }
+        return new ByteArrayInputStream(readKeyRings(offset));
+    }
+
+    private byte[] readKeyRings(long offset) throws IOException {
+        ByteBuffer header = readBuffer(offset, RECORD_HEADER_SIZE);
+        int recordLength = header.getInt();
+        int keyCount = header.getInt();
+        int keyIdsLength = keyCount * Long.BYTES;
+
+        ByteBuffer keyRings = readBuffer(offset + RECORD_HEADER_SIZE + keyIdsLength,
+                recordLength - Integer.BYTES - keyIdsLength);
+        return keyRings.array();
+    }
+
+    @Override
+    public void store(Collection<Long> keyIds, List<PGPPublicKeyRing> keyRings) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (PGPPublicKeyRing keyRing : keyRings) {
+            keyRing.encode(outputStream, true);
+        }
+        append(keyIds, outputStream.toByteArray());
+    }
+
+    @Override
+    public void remove(long keyId) {
+        try {
+            append(Collections.singletonList(keyId), new byte[0]);
+        } catch (IOException e) {
+            LOGGER.warn("Can't remove key 0x{} from: {} - {}", Long.toHexString(keyId), packPath, e.getMessage());
+        }
+    }
+
+    private void append(Collection<Long> keyIds, byte[] keyRings) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyIds.size() * Long.BYTES + keyRings.length);
+        record.putInt(record.capacity() - Integer.BYTES);
+        record.putInt(keyIds.size());
+        keyIds.forEach(record::putLong);
+        record.put(keyRings);
+        record.flip();
+
+        synchronized (FILE_LOCK) {
+            try (FileLock ignored = packChannel.lock()) {
+                refresh();
+                if (packChannel.size() > scannedLength) {
+                    // rest of record interrupted during write
+                    packChannel.truncate(scannedLength);
+                }
+                writeFully(record, scannedLength);
+                refresh();
+            }
+        }
+    }
+
+    @Override
+    public String location(long keyId) {
+        return String.format("%s [0x%016X]", packPath, keyId);
+    }
+
+    @Override
+    public void forEach(KeyRingsConsumer consumer) throws IOException {
+        refresh();
+        for (long offset : new TreeSet<>(liveEntries().values())) {
+            consumer.accept(readKeyRings(offset));
+        }
+    }
+
+    /**
+     * Merge of index and journal.
+     */
+    private Map<Long, Long> liveEntries() {
+        Map<Long, Long> entries = new TreeMap<>();
+        for (int i = 0; i < indexCount; i++) {
+            int entry = INDEX_HEADER_SIZE + i * INDEX_ENTRY_SIZE;
+            entries.put(index.getLong(entry), index.getLong(entry + Long.BYTES));
+        }
+        journal.forEach((keyId, offset) -> {
+            if (offset == NOT_FOUND) {
+                entries.remove(keyId);
+            } else {
+                entries.put(keyId, offset);
+            }
+        });
+        return entries;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!journal.isEmpty()) {
+                synchronized (FILE_LOCK) {
+                    try (FileLock ignored = packChannel.lock()) {
+                        refresh();
+                        writeIndex();
+                    }
+                }
+            }
+        } finally {
+            packChannel.close();
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Path indexPath = indexFile(cachePath, scannedLength);
+        if (Files.exists(indexPath)) {
+            // the same part of pack was already indexed by other process
+            removeOldIndexes();
+            return;
+        }
+
+        Map<Long, Long> entries = liveEntries();
+
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER_SIZE + entries.size() * INDEX_ENTRY_SIZE);
+        buffer.putLong(INDEX_MAGIC);
+        buffer.putLong(scannedLength);
+        buffer.putInt(entries.size());
+        entries.forEach((keyId, offset) -> buffer.putLong(keyId).putLong(offset));
+
+        Path partFile = Files.createTempFile(cachePath, INDEX_FILE_PREFIX, ".part");
+        try {
+            Files.write(partFile, buffer.array());
+            try {
+                Files.move(partFile, indexPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partFile, indexPath);
+            }
+            LOGGER.debug("Keys pack index written: {} keys: {}", indexPath, entries.size());
+        } catch (IOException e) {
+            // index is only optimization, pack will be scanned next time
+            LOGGER.warn("Can't write keys pack index: {} - {}", indexPath, e.getMessage());
+            Files.deleteIfExists(partFile);
+            return;
+        }
+
+        removeOldIndexes();
+    }
+
+    /**
+     * Remove indexes older than current pack length, index which is still mapped will be removed next time.
+     */
+    private void removeOldIndexes() throws IOException {
+        for (Path oldIndex : indexFiles().headMap(scannedLength).values()) {
+            removeIndex(oldIndex);
+        }
+    }
+
+    private static void removeIndex(Path indexPath) {
+        try {
+            Files.deleteIfExists(indexPath);
+        } catch (IOException e) {
+            LOGGER.debug("Can't remove keys pack index: {} - {}", indexPath, e.getMessage());
+        }
+    }
+
+    private ByteBuffer readBuffer(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (packChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of keys pack: " + packPath);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            packChannel.write(buffer, position + buffer.position());
+        }
+    }
+}
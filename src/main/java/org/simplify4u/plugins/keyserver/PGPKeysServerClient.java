@@ -15,7 +15,9 @@
  */
 package org.simplify4u.plugins.keyserver;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
@@ -25,9 +27,15 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 import io.github.resilience4j.core.IntervalFunction;
 import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.retry.RetryConfig;
@@ -52,7 +60,9 @@ import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.ProxyAuthenticationStrategy;
 import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
 import org.apache.maven.settings.Proxy;
+import org.bouncycastle.util.encoders.Hex;
 import org.simplify4u.plugins.utils.ExceptionUtils;
+import org.simplify4u.plugins.utils.FlightEvent;
 
 /**
  * Abstract base client for requesting keys from PGP key servers over HKP/HTTP and HKPS/HTTPS.
@@ -71,12 +81,19 @@ abstract class PGPKeysServerClient {
     public static final int DEFAULT_MAX_RETRIES = 10;
 
     private static final List<Class<? extends Throwable>> IGNORE_EXCEPTION_FOR_RETRY =
-            Arrays.asList(PGPKeyNotFound.class, UnknownHostException.class);
+            Arrays.asList(PGPKeyNotFound.class, UnknownHostException.class, CancellationException.class);
 
     private final URI keyserver;
+    // resolved and failed addresses are shared by all requests of client
+    private final HostAddressCache addressCache = new HostAddressCache();
+    private final KeyServerConcurrencyLimiter limiter;
+    private ConnectRace connectRace;
+    private KeyServerBudget budget = KeyServerBudget.unlimited();
     private final int connectTimeout;
     private final int readTimeout;
     private final int maxAttempts;
+    // probe of key server after failures is not retried
+    private volatile boolean probing;
 
     /**
      * Protected constructor for {@code PGPKeysServerClient}.
@@ -96,6 +113,7 @@ abstract class PGPKeysServerClient {
      */
     protected PGPKeysServerClient(URI keyserver, int connectTimeout, int readTimeout, int maxAttempts, Proxy proxy) {
         this.keyserver = keyserver;
+        this.limiter = new KeyServerConcurrencyLimiter(String.valueOf(keyserver));
         this.connectTimeout = connectTimeout;
         this.readTimeout = readTimeout;
         this.maxAttempts = maxAttempts;
@@ -155,6 +173,15 @@ abstract class PGPKeysServerClient {
         }
     }
 
+    /**
+     * Address of key server.
+     *
+     * @return key server URI
+     */
+    URI getKeyserver() {
+        return keyserver;
+    }
+
     private String getQueryStringForGetKey(long keyID) {
         return String.format("op=get&options=mr&search=0x%016X", keyID);
     }
@@ -173,6 +200,24 @@ abstract class PGPKeysServerClient {
                 "/pks/lookup", getQueryStringForGetKey(keyID), null)).get();
     }
 
+    private String getQueryStringForGetKey(byte[] fingerprint) {
+        return "op=get&options=mr&search=0x" + Hex.toHexString(fingerprint).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Create URI for key download by full fingerprint.
+     *
+     * @param fingerprint
+     *         key fingerprint
+     *
+     * @return URI with given key
+     */
+    URI getUriForGetKey(byte[] fingerprint) {
+        return Try.of(() -> new URI(keyserver.getScheme(), keyserver.getUserInfo(),
+                keyserver.getHost(), keyserver.getPort(),
+                "/pks/lookup", getQueryStringForGetKey(fingerprint), null)).get();
+    }
+
     private String getQueryStringForShowKey(long keyID) {
         return String.format("op=vindex&fingerprint=on&search=0x%016X", keyID);
     }
@@ -216,35 +261,235 @@ abstract class PGPKeysServerClient {
         final HttpUriRequest request = new HttpGet(keyUri);
 
         // use one instance of planer in order to remember failed hosts
-        final HttpRoutePlanner planer = proxy == null ? new RoundRobinRouterPlaner() : getNewProxyRoutePlanner();
+        final HttpRoutePlanner planer = createRoutePlanner();
+
+        Retry retry = createRetry(planer, onRetryConsumer);
+
+        CheckedRunnable checkedRunnable = Retry.decorateCheckedRunnable(retry,
+                () -> executeLimitedRequest(request, planer, outputStream));
+
+        budget.requestStarted();
+        try {
+            checkedRunnable.run();
+        } catch (Throwable e) {
+            throw mapException(e, keyUri);
+        } finally {
+            budget.requestFinished();
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #copyKeyToOutputStream(long, OutputStream, OnRetryConsumer)}.
+     *
+     * <p>Each attempt is executed by I/O executor, waits between attempts are only scheduled,
+     * so no thread is blocked during backoff. Many requests can be in flight in the same time.
+     *
+     * @param keyId
+     *         The ID of the key to request from the server.
+     * @param executors
+     *         The executors used for requests and for scheduling of retries.
+     * @param onRetryConsumer
+     *         The consumer which will be call on retry occurs
+     *
+     * @return future completed with the key content, or exceptionally with {@link IOException}
+     */
+    CompletableFuture<byte[]> getKeyAsync(long keyId, KeyServerExecutors executors,
+            OnRetryConsumer onRetryConsumer) {
+        return getKeyAsync(getUriForGetKey(keyId), executors, onRetryConsumer);
+    }
+
+    /**
+     * Asynchronous request for key by its full fingerprint.
+     *
+     * <p>Lookup by fingerprint is not ambiguous like lookup by 64-bit key ID,
+     * but not all key servers support it.
+     *
+     * @param fingerprint
+     *         The fingerprint of the key to request from the server.
+     * @param executors
+     *         The executors used for requests and for scheduling of retries.
+     * @param onRetryConsumer
+     *         The consumer which will be call on retry occurs
+     *
+     * @return future completed with the key content, or exceptionally with {@link IOException}
+     *
+     * @see #getKeyAsync(long, KeyServerExecutors, OnRetryConsumer)
+     */
+    CompletableFuture<byte[]> getKeyAsync(byte[] fingerprint, KeyServerExecutors executors,
+            OnRetryConsumer onRetryConsumer) {
+        return getKeyAsync(getUriForGetKey(fingerprint), executors, onRetryConsumer);
+    }
+
+    private CompletableFuture<byte[]> getKeyAsync(URI keyUri, KeyServerExecutors executors,
+            OnRetryConsumer onRetryConsumer) {
+
+        final HttpUriRequest request = new HttpGet(keyUri);
+
+        // use one instance of planer in order to remember failed hosts
+        final HttpRoutePlanner planer = createRoutePlanner();
+
+        Retry retry = createRetry(planer, onRetryConsumer);
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+        Supplier<CompletionStage<byte[]>> attempt = () -> {
+            // not composed by thenCompose, retry predicate must see original exception, not CompletionException
+            CompletableFuture<byte[]> attemptResult = new CompletableFuture<>();
+            if (result.isCancelled()) {
+                // nobody waits for result, next attempts are not needed
+                attemptResult.completeExceptionally(new CancellationException());
+                return attemptResult;
+            }
+            limiter.acquire().thenAccept(permit -> {
+                try {
+                    executors.getIoExecutor().execute(() -> {
+                        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+                            executeRequest(request, planer, outputStream);
+                            permit.release(KeyServerConcurrencyLimiter.Outcome.SUCCESS);
+                            attemptResult.complete(outputStream.toByteArray());
+                        } catch (Throwable e) {
+                            permit.release(limiterOutcome(e));
+                            attemptResult.completeExceptionally(e);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // request was not started, so permit is not related to server load
+                    permit.release(KeyServerConcurrencyLimiter.Outcome.IGNORED);
+                    attemptResult.completeExceptionally(e);
+                }
+            });
+            return attemptResult;
+        };
+
+        budget.requestStarted();
+        result.whenComplete((key, e) -> budget.requestFinished());
+        Retry.decorateCompletionStage(retry, executors.getScheduler(), attempt).get()
+                .whenComplete((key, e) -> {
+                    if (e == null) {
+                        result.complete(key);
+                    } else {
+                        result.completeExceptionally(mapException(e, keyUri));
+                    }
+                });
+        return result;
+    }
+
+    private Retry createRetry(HttpRoutePlanner planer, OnRetryConsumer onRetryConsumer) {
 
         RetryConfig config = RetryConfig.custom()
                 .maxAttempts(maxAttempts)
                 .waitDuration(Duration.ofMillis(500))
                 .intervalFunction(IntervalFunction.ofExponentialBackoff())
-                .retryOnException(this::shouldRetryOnException)
+                .retryOnException(e -> !probing && shouldRetryOnException(e) && budget.isRetryPermitted())
                 .build();
 
         Retry retry = Retry.of("id", config);
 
         retry.getEventPublisher()
-                .onRetry(event -> processOnRetry(event, event.getWaitInterval(), planer, onRetryConsumer))
+                .onRetry(event -> {
+                    budget.onRetry();
+                    processOnRetry(event, event.getWaitInterval(), planer, onRetryConsumer);
+                })
                 .onError(event -> processOnRetry(event, Duration.ZERO, planer, onRetryConsumer));
 
-        CheckedRunnable checkedRunnable = Retry.decorateCheckedRunnable(retry, () -> {
+        return retry;
+    }
+
+    /**
+     * Execute request when concurrency limiter permits it, waits for permit if needed.
+     * <p>
+     * Caller can hold keys cache lock, so waiting for permit is limited by read timeout.
+     */
+    private void executeLimitedRequest(HttpUriRequest request, HttpRoutePlanner planer, OutputStream outputStream)
+            throws IOException {
+
+        KeyServerConcurrencyLimiter.Permit permit = limiter.acquire(readTimeout);
+        KeyServerConcurrencyLimiter.Outcome outcome = KeyServerConcurrencyLimiter.Outcome.IGNORED;
+        try {
+            executeRequest(request, planer, outputStream);
+            outcome = KeyServerConcurrencyLimiter.Outcome.SUCCESS;
+        } catch (IOException | RuntimeException e) {
+            outcome = limiterOutcome(e);
+            throw e;
+        } finally {
+            permit.release(outcome);
+        }
+    }
+
+    private static KeyServerConcurrencyLimiter.Outcome limiterOutcome(Throwable e) {
+        if (e instanceof PGPKeyNotFound) {
+            // server responded normally
+            return KeyServerConcurrencyLimiter.Outcome.SUCCESS;
+        }
+        if (e instanceof InterruptedIOException
+                || (e instanceof KeyServerStatusException && ((KeyServerStatusException) e).isOverloaded())) {
+            // timeouts, 429 and 5xx responses
+            return KeyServerConcurrencyLimiter.Outcome.DROPPED;
+        }
+        return KeyServerConcurrencyLimiter.Outcome.IGNORED;
+    }
+
+    private void executeRequest(HttpUriRequest request, HttpRoutePlanner planer, OutputStream outputStream)
+            throws IOException {
+        try (FlightEvent event = FlightEvent.keyServerRequest(request.getURI())) {
+            final CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
             try (final CloseableHttpClient client = this.buildClient(planer);
                  final CloseableHttpResponse response = client.execute(request)) {
-                this.processKeyResponse(response, outputStream);
+                this.processKeyResponse(response, countingOutputStream);
+            } catch (IOException | RuntimeException e) {
+                event.failed(e);
+                throw e;
             }
-        });
+            event.outcome("ok").bytes(countingOutputStream.getCount());
+        }
+    }
 
-        try {
-            checkedRunnable.run();
-        } catch (PGPKeyNotFound e) {
-            throw new PGPKeyNotFound("PGP server returned an error: HTTP/1.1 404 Not Found for: " + keyUri);
-        } catch (Throwable e) {
-            throw new IOException(ExceptionUtils.getMessage(e) + " for: " + keyUri, e);
+    private static IOException mapException(Throwable e, URI keyUri) {
+        if (e instanceof PGPKeyNotFound) {
+            return new PGPKeyNotFound("PGP server returned an error: HTTP/1.1 404 Not Found for: " + keyUri);
         }
+        return new IOException(ExceptionUtils.getMessage(e) + " for: " + keyUri, e);
+    }
+
+    /**
+     * Race connections to all resolved addresses of key server and use the first reachable one,
+     * instead of waiting for connect timeout of unreachable address.
+     * <p>
+     * Not used when proxy is configured.
+     *
+     * @param staggerDelay delay between starting connection attempts to next addresses
+     *
+     * @return this client
+     */
+    PGPKeysServerClient withParallelConnect(Duration staggerDelay) {
+        this.connectRace = new ConnectRace(KeyServerExecutors.shared().getIoExecutor(), staggerDelay, connectTimeout);
+        return this;
+    }
+
+    /**
+     * Requests started when set are executed only once, without retries, so failed key server
+     * is probed quickly by circuit breaker.
+     *
+     * @param probing
+     *         {@code true} for probe of key server
+     */
+    void setProbing(boolean probing) {
+        this.probing = probing;
+    }
+
+    /**
+     * Share retries and time budget with other clients.
+     *
+     * @param budget budget of all key server requests
+     *
+     * @return this client
+     */
+    PGPKeysServerClient withBudget(KeyServerBudget budget) {
+        this.budget = budget;
+        return this;
+    }
+
+    private HttpRoutePlanner createRoutePlanner() {
+        return proxy == null ? new RoundRobinRouterPlaner(addressCache, connectRace) : getNewProxyRoutePlanner();
     }
 
     private HttpRoutePlanner getNewProxyRoutePlanner() {
@@ -322,7 +567,7 @@ abstract class PGPKeysServerClient {
                 }
             }
         } else {
-            throw new IOException("PGP server returned an error: " + statusLine);
+            throw new KeyServerStatusException(statusLine);
         }
     }
 
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Additional source of public keys, asked before key servers.
+ * <p>
+ * Keys from source are stored in keys cache like keys received from key servers.
+ */
+@FunctionalInterface
+public interface PGPKeysSource {
+
+    /**
+     * Look up public key ring for given key ID.
+     *
+     * @param keyId
+     *         key ID of master key or sub key
+     *
+     * @return content of key rings, armored or binary, empty when source does not have given key
+     *
+     * @throws IOException
+     *         if problem with access to source, key servers are used in such case
+     */
+    Optional<byte[]> getKeyRing(long keyId) throws IOException;
+}
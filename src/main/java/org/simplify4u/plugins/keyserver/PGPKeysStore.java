@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+
+/**
+ * Storage of key rings in keys cache.
+ * <p>
+ * Implementations are not synchronized, callers take care of it.
+ */
+interface PGPKeysStore extends Closeable {
+
+    @FunctionalInterface
+    interface KeyRingsConsumer {
+        void accept(byte[] keyRings) throws IOException;
+    }
+
+    /**
+     * Check if key rings for given key ID are stored.
+     *
+     * @param keyId key ID
+     *
+     * @return {@code true} if key rings are stored
+     */
+    boolean contains(long keyId);
+
+    /**
+     * Open stored key rings for given key ID.
+     *
+     * @param keyId key ID
+     *
+     * @return stream with key rings, armored or binary
+     *
+     * @throws IOException if key is not stored or can not be read
+     */
+    InputStream open(long keyId) throws IOException;
+
+    /**
+     * Store key rings for given key IDs.
+     *
+     * @param keyIds   key IDs under which key rings will be found
+     * @param keyRings key rings to store
+     *
+     * @throws IOException if problem with writing
+     */
+    void store(Collection<Long> keyIds, List<PGPPublicKeyRing> keyRings) throws IOException;
+
+    /**
+     * Remove key rings stored for given key ID.
+     *
+     * @param keyId key ID
+     */
+    void remove(long keyId);
+
+    /**
+     * Location of key, used in messages.
+     *
+     * @param keyId key ID
+     *
+     * @return human readable location of key
+     */
+    String location(long keyId);
+
+    /**
+     * Read all stored key rings, the same key rings can be passed more than once.
+     *
+     * @param consumer consumer of stored content
+     *
+     * @throws IOException if problem with reading
+     */
+    void forEach(KeyRingsConsumer consumer) throws IOException;
+}
@@ -17,10 +17,9 @@ package org.simplify4u.plugins.keyserver;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.apache.http.HttpException;
 import org.apache.http.HttpHost;
@@ -31,11 +30,24 @@ import org.apache.http.protocol.HttpContext;
 
 class RoundRobinRouterPlaner implements HttpRoutePlanner {
 
+    private final HostAddressCache addressCache;
+    private final ConnectRace connectRace;
     private HttpRoute lastRoute;
-    private List<InetAddress> errorAddresses = new ArrayList<>();
 
     public RoundRobinRouterPlaner() {
-        // default constructor
+        this(new HostAddressCache(), null);
+    }
+
+    /**
+     * Planer with resolved and failed addresses shared with other planers.
+     *
+     * @param addressCache shared address state
+     * @param connectRace  race used to choose reachable address, {@code null} if first not failed address
+     *                     should be used
+     */
+    RoundRobinRouterPlaner(HostAddressCache addressCache, ConnectRace connectRace) {
+        this.addressCache = addressCache;
+        this.connectRace = connectRace;
     }
 
     @Override
@@ -46,13 +58,24 @@ class RoundRobinRouterPlaner implements HttpRoutePlanner {
             List<InetAddress> resolvedAddresses = resolve(target.getHostName());
 
             // filter failed IP
-            Optional<InetAddress> address = resolvedAddresses.stream()
-                    .filter(a -> !errorAddresses.contains(a))
-                    .findFirst();
+            List<InetAddress> candidates = resolvedAddresses.stream()
+                    .filter(a -> !addressCache.isFailed(a))
+                    .collect(Collectors.toList());
+
+            Optional<InetAddress> address;
+            if (connectRace != null && candidates.size() > 1) {
+                address = addressCache.getReachable(target.getHostName()).filter(candidates::contains);
+                if (!address.isPresent()) {
+                    address = connectRace.firstReachable(candidates, targetPort(target), addressCache::markFailed);
+                    address.ifPresent(a -> addressCache.markReachable(target.getHostName(), a));
+                }
+            } else {
+                address = candidates.stream().findFirst();
+            }
 
             if (!address.isPresent()) {
                 // all address was baned - try again
-                errorAddresses.removeIf(resolvedAddresses::contains);
+                addressCache.clearFailed(resolvedAddresses);
                 address = Optional.of(resolvedAddresses.get(0));
             }
 
@@ -65,6 +88,13 @@ class RoundRobinRouterPlaner implements HttpRoutePlanner {
         return lastRoute;
     }
 
+    private static int targetPort(HttpHost target) {
+        if (target.getPort() > 0) {
+            return target.getPort();
+        }
+        return "https".equalsIgnoreCase(target.getSchemeName()) ? 443 : 80;
+    }
+
     /**
      * Resolve hostname and return all IP address as list
      *
@@ -74,7 +104,7 @@ class RoundRobinRouterPlaner implements HttpRoutePlanner {
     private List<InetAddress> resolve(String hostName) throws HttpException {
 
         try {
-            return Arrays.asList(InetAddress.getAllByName(hostName));
+            return addressCache.resolve(hostName);
         } catch (UnknownHostException e) {
             throw new HttpException("UnknownHostException: " + hostName, e);
         }
@@ -88,7 +118,7 @@ class RoundRobinRouterPlaner implements HttpRoutePlanner {
     public HttpRoute lastRouteCauseError() {
         HttpRoute ret = lastRoute;
         if (lastRoute != null) {
-            errorAddresses.add(lastRoute.getTargetHost().getAddress());
+            addressCache.markFailed(lastRoute.getTargetHost().getAddress());
             lastRoute = null;
         }
         return ret;
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.requireNonNull;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.util.encoders.Hex;
+import org.simplify4u.plugins.utils.PublicKeyUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Key rings for which signatures of sub keys were already verified.
+ * <p>
+ * Key rings are identified by SHA-256 digest of their encoded content, digests are persisted
+ * in keys cache directory, so unchanged key ring is verified only once, not in each build.
+ * Any change of key ring, like new sub key or signature, gives new digest, so such key ring is verified again.
+ */
+final class VerifiedKeyRings {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VerifiedKeyRings.class);
+
+    private static final String MARKERS_FILE = "verified-keyrings";
+    private static final Pattern DIGEST_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    @FunctionalInterface
+    interface Verifier {
+        void verify(PGPPublicKeyRing keyRing) throws PGPException;
+    }
+
+    private final Path markersFile;
+    private final Verifier verifier;
+    private final Set<String> verified = Collections.synchronizedSet(new HashSet<>());
+    private boolean lastLineBroken;
+
+    VerifiedKeyRings(Path cachePath) {
+        this(cachePath, PublicKeyUtils::verifyPublicKeyRing);
+    }
+
+    VerifiedKeyRings(Path cachePath, Verifier verifier) {
+        this.markersFile = cachePath.resolve(MARKERS_FILE);
+        this.verifier = requireNonNull(verifier);
+        load();
+    }
+
+    private void load() {
+        if (!Files.exists(markersFile)) {
+            return;
+        }
+
+        try {
+            String content = new String(Files.readAllBytes(markersFile), StandardCharsets.US_ASCII);
+            lastLineBroken = !content.isEmpty() && !content.endsWith("\n");
+            Arrays.stream(content.split("\n"))
+                    .map(String::trim)
+                    // line can be broken by interrupted write, such key ring is simply verified again
+                    .filter(line -> DIGEST_PATTERN.matcher(line).matches())
+                    .forEach(verified::add);
+        } catch (IOException e) {
+            LOGGER.warn("Can't read verified key rings: {} - {}", markersFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Verify signatures of sub keys in key ring, if key ring with the same content was not verified before.
+     *
+     * @param keyRing
+     *         key ring to verify
+     *
+     * @throws PGPException
+     *         if key ring is not valid
+     * @throws IOException
+     *         if key ring can not be encoded
+     */
+    void verify(PGPPublicKeyRing keyRing) throws PGPException, IOException {
+        String digest = digest(keyRing);
+        if (verified.contains(digest)) {
+            return;
+        }
+
+        verifier.verify(keyRing);
+
+        if (verified.add(digest)) {
+            store(digest);
+        }
+    }
+
+    private synchronized void store(String digest) {
+        String line = (lastLineBroken ? "\n" : "") + digest + "\n";
+        try {
+            Files.write(markersFile, line.getBytes(StandardCharsets.US_ASCII),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            lastLineBroken = false;
+        } catch (IOException e) {
+            LOGGER.warn("Can't write verified key rings: {} - {}", markersFile, e.getMessage());
+        }
+    }
+
+    private static String digest(PGPPublicKeyRing keyRing) throws IOException {
+        try {
+            return Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(keyRing.getEncoded()));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required by Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
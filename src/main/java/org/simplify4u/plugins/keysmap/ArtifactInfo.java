@@ -19,6 +19,7 @@ import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
@@ -138,6 +139,10 @@ class ArtifactInfo {
         return keyInfo.isKeyMatch(key, keyRing);
     }
 
+    public Stream<byte[]> getFingerprints() {
+        return keyInfo.getFingerprints();
+    }
+
     public boolean isNoSignature() {
         return keyInfo.isNoSignature();
     }
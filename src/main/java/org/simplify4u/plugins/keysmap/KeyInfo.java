@@ -81,6 +81,13 @@ class KeyInfo {
         return keys.stream().anyMatch(keyInfoItem -> keyInfoItem.isKeyMatch(pgpPublicKey, pgpPublicKeyRing));
     }
 
+    public Stream<byte[]> getFingerprints() {
+        return keys.stream()
+                .map(KeyInfoItem::getFingerprint)
+                .filter(Optional::isPresent)
+                .map(Optional::get);
+    }
+
     public boolean isNoSignature() {
         return keys.stream().anyMatch(KeyInfoItem::isNoSignature);
     }
@@ -15,6 +15,8 @@
  */
 package org.simplify4u.plugins.keysmap;
 
+import java.util.Optional;
+
 import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPPublicKeyRing;
 
@@ -58,4 +60,13 @@ public interface KeyInfoItem {
     default boolean isKeyMatch(PGPPublicKey pgpPublicKey, PGPPublicKeyRing pgpPublicKeyRing) {
         return false;
     }
+
+    /**
+     * Full fingerprint of key, if it is given in keys map.
+     *
+     * @return key fingerprint
+     */
+    default Optional<byte[]> getFingerprint() {
+        return Optional.empty();
+    }
 }
@@ -25,10 +25,15 @@ import org.simplify4u.plugins.utils.PublicKeyUtils;
 
 public class KeyInfoItemKey implements KeyInfoItem {
 
+    private static final int FINGERPRINT_LENGTH = 20;
+
     private final byte[] fingerPrint;
+    private final boolean fullFingerprint;
 
     public KeyInfoItemKey(String key) {
-        fingerPrint = strKeyToBytes(key.substring(2));
+        String strKey = key.substring(2);
+        fingerPrint = strKeyToBytes(strKey);
+        fullFingerprint = strKey.replace(" ", "").length() == FINGERPRINT_LENGTH * 2;
     }
 
     @Override
@@ -42,6 +47,18 @@ public class KeyInfoItemKey implements KeyInfoItem {
         return masterKey.filter(publicKey -> isKeyMatch(publicKey, pgpPublicKeyRing)).isPresent();
     }
 
+    @Override
+    public Optional<byte[]> getFingerprint() {
+        if (!fullFingerprint) {
+            return Optional.empty();
+        }
+
+        // leading zeros was removed during conversion
+        byte[] result = new byte[FINGERPRINT_LENGTH];
+        System.arraycopy(fingerPrint, 0, result, FINGERPRINT_LENGTH - fingerPrint.length, fingerPrint.length);
+        return Optional.of(result);
+    }
+
     private byte[] strKeyToBytes(String key) {
 
         BigInteger bigInteger = new BigInteger(key.replace(" ", ""), 16);
@@ -21,12 +21,16 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.logging.Log;
 import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.util.encoders.Hex;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.resource.ResourceManager;
@@ -114,6 +118,19 @@ public class KeysMap {
                 .anyMatch(artifactInfo -> artifactInfo.isKeyMatch(key, keyRing));
     }
 
+    /**
+     * Full fingerprints of all keys given in keys map, keys given only by key ID are omitted.
+     *
+     * @return distinct keys fingerprints
+     */
+    public Collection<byte[]> getFingerprints() {
+        Map<String, byte[]> fingerprints = new LinkedHashMap<>();
+        keysMapList.stream()
+                .flatMap(ArtifactInfo::getFingerprints)
+                .forEach(fingerprint -> fingerprints.putIfAbsent(Hex.toHexString(fingerprint), fingerprint));
+        return fingerprints.values();
+    }
+
     private void loadKeysMap(final InputStream inputStream) throws IOException {
         BufferedReader mapReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.US_ASCII));
         String currentLine;
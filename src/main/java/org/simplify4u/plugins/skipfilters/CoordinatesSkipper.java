@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.simplify4u.plugins.skipfilters;
+
+import org.apache.maven.artifact.Artifact;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A filter that skips artifacts by declarative include and exclude patterns of coordinates.
+ * <p>
+ * Supported patterns are:
+ * <ul>
+ *     <li><code>groupId</code> - all artifacts with given groupId</li>
+ *     <li><code>groupId.*</code> - all artifacts with given groupId and all its sub-groups</li>
+ *     <li><code>groupId:artifactId</code> - only given artifact</li>
+ * </ul>
+ * <p>
+ * An artifact is skipped if it matches any of excludes, or when includes are given and artifact
+ * does not match any of them.
+ * <p>
+ * Patterns are compiled into trie indexed by groupId segments, so matching cost depends only
+ * on depth of artifact groupId, not on number of patterns.
+ */
+public class CoordinatesSkipper implements SkipFilter {
+
+    private static final Pattern SEGMENT_SPLITTER = Pattern.compile("\\.");
+
+    private final Node includes;
+    private final Node excludes;
+
+    /**
+     * Construction of coordinates filter.
+     *
+     * @param includes patterns of artifacts which should be verified, empty means all artifacts
+     * @param excludes patterns of artifacts which should be skipped
+     */
+    public CoordinatesSkipper(Collection<String> includes, Collection<String> excludes) {
+        this.includes = requireNonNull(includes).isEmpty() ? null : compile(includes);
+        this.excludes = compile(requireNonNull(excludes));
+    }
+
+    @Override
+    public boolean shouldSkipArtifact(Artifact artifact) {
+        if (includes != null && !includes.matches(artifact)) {
+            return true;
+        }
+        return excludes.matches(artifact);
+    }
+
+    private static Node compile(Collection<String> patterns) {
+        final Node root = new Node();
+        for (String pattern : patterns) {
+            root.add(pattern);
+        }
+        return root;
+    }
+
+    /**
+     * Node of groupId trie, each level of trie is one segment of groupId.
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final Set<String> artifactIds = new HashSet<>();
+        private boolean allArtifacts;
+        private boolean subGroups;
+
+        private void add(String pattern) {
+            final String[] parts = requireNonNull(pattern).trim().split(":", -1);
+            if (parts.length > 2 || parts[0].isEmpty() || (parts.length == 2 && parts[1].isEmpty())) {
+                throw new IllegalArgumentException("Invalid coordinates pattern: " + pattern);
+            }
+
+            String groupId = parts[0];
+            final boolean withSubGroups = groupId.endsWith(".*");
+            if (withSubGroups) {
+                if (parts.length == 2) {
+                    throw new IllegalArgumentException("Sub-groups pattern can not contain artifactId: " + pattern);
+                }
+                groupId = groupId.substring(0, groupId.length() - 2);
+            }
+
+            Node node = this;
+            for (String segment : SEGMENT_SPLITTER.split(groupId)) {
+                if (segment.isEmpty() || segment.contains("*")) {
+                    throw new IllegalArgumentException("Invalid coordinates pattern: " + pattern);
+                }
+                node = node.children.computeIfAbsent(segment, s -> new Node());
+            }
+
+            if (withSubGroups) {
+                node.subGroups = true;
+            } else if (parts.length == 2) {
+                node.artifactIds.add(parts[1]);
+            } else {
+                node.allArtifacts = true;
+            }
+        }
+
+        private boolean matches(Artifact artifact) {
+            final String[] segments = SEGMENT_SPLITTER.split(artifact.getGroupId());
+            Node node = this;
+            for (String segment : segments) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    return false;
+                }
+                if (node.subGroups) {
+                    return true;
+                }
+            }
+            return node.allArtifacts || node.artifactIds.contains(artifact.getArtifactId());
+        }
+    }
+}
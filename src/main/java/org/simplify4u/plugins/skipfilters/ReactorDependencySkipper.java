@@ -19,15 +19,28 @@ package org.simplify4u.plugins.skipfilters;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystemSession;
 
-import java.util.List;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * A filter that always skips verification of upstream dependencies that are being built as part of
  * the current build reactor.
+ * <p>
+ * Coordinates of upstream projects are kept in a hash set, which is computed only once per project
+ * in the Maven session, so checking of artifact takes constant time.
  */
 public class ReactorDependencySkipper implements SkipFilter {
-    private final List<MavenProject> upstreamProjects;
+
+    private static final String SESSION_KEY = ReactorDependencySkipper.class.getName() + ".upstreamProjects";
+
+    private final Set<String> upstreamProjectsKeys;
 
     /**
      * Constructor for {@code ReactorDependencySkipper}.
@@ -39,74 +52,72 @@ public class ReactorDependencySkipper implements SkipFilter {
      */
     public ReactorDependencySkipper(final MavenProject currentProject,
                                     final MavenSession session) {
-        this.upstreamProjects =
-            session.getProjectDependencyGraph().getUpstreamProjects(currentProject, true);
-    }
-
-    @Override
-    public boolean shouldSkipArtifact(Artifact artifact) {
-        return this.isUpstreamReactorDependency(artifact);
+        this.upstreamProjectsKeys = sessionIndex(session)
+            .computeIfAbsent(currentProject.getId(), id -> upstreamProjectsKeys(currentProject, session));
     }
 
     /**
-     * Check whether or not the specified artifact is an upstream dependency of this project in the
-     * current Maven build.
+     * Index of upstream projects keys for each project in reactor, shared by all executions in Maven session.
+     * Only JDK types are stored in session, because it can be shared by different versions of plug-in.
      *
-     * @param   artifact
-     *          The to check against upstream reactor dependencies.
+     * @param session
+     *   The current maven session.
      *
-     * @return  {@code true} if the specified artifact is in the current Maven reactor build and is
-     *          a direct or transitive dependency of the current project; {@code false} if it is
-     *          not either.
+     * @return index of upstream projects keys
      */
-    private boolean isUpstreamReactorDependency(final Artifact artifact) {
-        for (final MavenProject upstreamProject : this.upstreamProjects) {
-            if (this.artifactMatchesProject(artifact, upstreamProject)) {
-                return true;
-            }
+    @SuppressWarnings("unchecked")
+    private static Map<String, Set<String>> sessionIndex(final MavenSession session) {
+        final RepositorySystemSession repositorySession = session.getRepositorySession();
+        if (repositorySession == null) {
+            return new HashMap<>();
+        }
+
+        final Map<String, Set<String>> newIndex = new ConcurrentHashMap<>();
+        if (repositorySession.getData().set(SESSION_KEY, null, newIndex)) {
+            return newIndex;
         }
+        return (Map<String, Set<String>>) repositorySession.getData().get(SESSION_KEY);
+    }
 
-        return false;
+    private static Set<String> upstreamProjectsKeys(final MavenProject currentProject,
+                                                    final MavenSession session) {
+        return Collections.unmodifiableSet(
+            session.getProjectDependencyGraph().getUpstreamProjects(currentProject, true).stream()
+                .map(MavenProject::getArtifact)
+                .filter(Objects::nonNull)
+                .map(ReactorDependencySkipper::artifactKey)
+                .collect(Collectors.toSet()));
     }
 
     /**
-     * Check whether the specified artifact belongs to the specified Maven project.
+     * Key identifying the same group, artifact ID, and version.
      *
      * @param artifact
-     *   The artifact being checked.
-     * @param project
-     *   The project to which the artifact will be compared.
+     *   The artifact.
      *
-     * @return
-     *   {@code true} if the artifact was produced by the specified project; or
-     *   {@code false} if it is not.
+     * @return key of artifact
      */
-    private boolean artifactMatchesProject(final Artifact artifact,
-                                           final MavenProject project) {
-        final Artifact projectArtifact = project.getArtifact();
+    private static String artifactKey(final Artifact artifact) {
+        return artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getVersion();
+    }
 
-        return projectArtifact != null
-               && this.artifactsMatch(projectArtifact, artifact);
+    @Override
+    public boolean shouldSkipArtifact(Artifact artifact) {
+        return this.isUpstreamReactorDependency(artifact);
     }
 
     /**
-     * Check whether the specified artifacts are equivalent, or at least
-     * identify the same group, artifact ID, and version.
+     * Check whether or not the specified artifact is an upstream dependency of this project in the
+     * current Maven build.
      *
-     * @param artifact1
-     *   The first artifact.
-     * @param artifact2
-     *   The second artifact.
+     * @param   artifact
+     *          The to check against upstream reactor dependencies.
      *
-     * @return
-     *   If either the two artifacts are equal or correspond to the same Maven
-     *   coordinates.
+     * @return  {@code true} if the specified artifact is in the current Maven reactor build and is
+     *          a direct or transitive dependency of the current project; {@code false} if it is
+     *          not either.
      */
-    private boolean artifactsMatch(final Artifact artifact1,
-                                   final Artifact artifact2) {
-        return artifact1.equals(artifact2)
-            || (artifact1.getGroupId().equals(artifact2.getGroupId())
-                && artifact1.getArtifactId().equals(artifact2.getArtifactId())
-                && artifact1.getVersion().equals(artifact2.getVersion()));
+    private boolean isUpstreamReactorDependency(final Artifact artifact) {
+        return this.upstreamProjectsKeys.contains(artifactKey(artifact));
     }
 }
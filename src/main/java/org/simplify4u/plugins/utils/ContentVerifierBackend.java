@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.bouncycastle.openpgp.operator.PGPContentVerifierBuilderProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentVerifierBuilderProvider;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPContentVerifierBuilderProvider;
+
+/**
+ * Implementation of digests and public key algorithms used for signature verification.
+ */
+public enum ContentVerifierBackend {
+
+    /**
+     * Pure Java implementation from Bouncy Castle, supports all algorithms on all JDK versions.
+     */
+    BC {
+        @Override
+        public PGPContentVerifierBuilderProvider getProvider() {
+            return new BcPGPContentVerifierBuilderProvider();
+        }
+    },
+
+    /**
+     * Implementation from default JCA providers of running JDK, which use CPU intrinsics for SHA digests
+     * on modern CPUs. Some algorithms, like EdDSA, are available only on newer JDK versions.
+     */
+    JCA {
+        @Override
+        public PGPContentVerifierBuilderProvider getProvider() {
+            return new JcaPGPContentVerifierBuilderProvider();
+        }
+    };
+
+    /**
+     * Provider of content verifiers for signatures.
+     *
+     * @return new provider
+     */
+    public abstract PGPContentVerifierBuilderProvider getProvider();
+
+    /**
+     * Backend by name, case insensitive.
+     *
+     * @param name
+     *         name of backend
+     *
+     * @return backend for given name
+     *
+     * @throws IllegalArgumentException
+     *         for unknown name
+     */
+    public static ContentVerifierBackend fromName(String name) {
+        return Arrays.stream(values())
+                .filter(backend -> backend.name().equals(name.trim().toUpperCase(Locale.ROOT)))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown content verifier: " + name
+                        + ", supported are: " + Arrays.stream(values())
+                        .map(backend -> backend.name().toLowerCase(Locale.ROOT))
+                        .collect(Collectors.joining(", "))));
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.utils;
+
+import java.io.File;
+import java.net.URI;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Event of verification phase recorded by Java Flight Recorder.
+ * <p>
+ * Events are recorded only when JFR is available in running JVM and recording is started,
+ * e.g. by <code>MAVEN_OPTS=-XX:StartFlightRecording=filename=pgpverify.jfr</code>,
+ * otherwise all operations do nothing. Event is committed when closed, event closed without
+ * outcome has outcome <code>error</code>.
+ */
+public abstract class FlightEvent implements AutoCloseable {
+
+    /**
+     * Types of events.
+     */
+    enum Type {
+        RESOLVE_ARTIFACT,
+        RESOLVE_SIGNATURE,
+        GET_KEY_RING,
+        KEY_SERVER_REQUEST,
+        VERIFY_SIGNATURE
+    }
+
+    private static final FlightEvent NONE = new FlightEvent() {
+        @Override
+        public FlightEvent bytes(long bytes) {
+            return this;
+        }
+
+        @Override
+        public FlightEvent bytes(File file) {
+            return this;
+        }
+
+        @Override
+        public FlightEvent outcome(String outcome) {
+            return this;
+        }
+
+        @Override
+        public FlightEvent failed(Throwable e) {
+            return this;
+        }
+
+        @Override
+        public void close() {
+            // nothing to commit
+        }
+    };
+
+    /**
+     * Backend of events, implemented only when plugin is built with JFR support.
+     */
+    interface Recorder {
+
+        boolean isAvailable();
+
+        FlightEvent begin(Type type, Object subject, FlightEvent disabled);
+    }
+
+    private static final String JFR_RECORDER = "org.simplify4u.plugins.utils.JfrFlightEvent$JfrRecorder";
+
+    private static final Recorder RECORDER = loadRecorder();
+
+    /**
+     * Resolving of artifact or pom, bytes are size of resolved file.
+     */
+    public static FlightEvent resolveArtifact(Artifact artifact) {
+        return begin(Type.RESOLVE_ARTIFACT, artifact);
+    }
+
+    /**
+     * Resolving of artifact signature.
+     */
+    public static FlightEvent resolveSignature(Artifact artifact) {
+        return begin(Type.RESOLVE_SIGNATURE, artifact);
+    }
+
+    /**
+     * Taking key ring from keys cache, outcome is source of key.
+     */
+    public static FlightEvent getKeyRing(long keyId) {
+        return begin(Type.GET_KEY_RING, keyId);
+    }
+
+    /**
+     * One HTTP attempt of key server request, bytes are size of received content.
+     */
+    public static FlightEvent keyServerRequest(URI uri) {
+        return begin(Type.KEY_SERVER_REQUEST, uri);
+    }
+
+    /**
+     * Verification of artifact, bytes are size of verified file.
+     */
+    public static FlightEvent verifySignature(Artifact artifact) {
+        return begin(Type.VERIFY_SIGNATURE, artifact);
+    }
+
+    /**
+     * Number of processed bytes, ignored by events without bytes.
+     *
+     * @param bytes
+     *         number of bytes
+     *
+     * @return this event
+     */
+    public abstract FlightEvent bytes(long bytes);
+
+    /**
+     * Size of processed file, file size is read only when event is recorded.
+     *
+     * @param file
+     *         processed file, can be {@code null}
+     *
+     * @return this event
+     */
+    public abstract FlightEvent bytes(File file);
+
+    /**
+     * Outcome of event, like <code>ok</code>, <code>cached</code> or <code>missing</code>.
+     *
+     * @param outcome
+     *         outcome of event
+     *
+     * @return this event
+     */
+    public abstract FlightEvent outcome(String outcome);
+
+    /**
+     * Set outcome to message of exception.
+     *
+     * @param e
+     *         exception which fails event
+     *
+     * @return this event
+     */
+    public abstract FlightEvent failed(Throwable e);
+
+    /**
+     * Commit event.
+     */
+    @Override
+    public abstract void close();
+
+    private static FlightEvent begin(Type type, Object subject) {
+        return RECORDER != null ? RECORDER.begin(type, subject, NONE) : NONE;
+    }
+
+    private static Recorder loadRecorder() {
+        try {
+            Recorder recorder = (Recorder) Class.forName(JFR_RECORDER).getDeclaredConstructor().newInstance();
+            return recorder.isAvailable() ? recorder : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // plugin built without JFR support or JVM without jdk.jfr module, like JDK 8 before 8u262
+            return null;
+        }
+    }
+}
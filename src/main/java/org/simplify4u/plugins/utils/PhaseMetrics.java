@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timers and counters of verification phases.
+ * <p>
+ * Phases are executed by many threads, so time of phase is summed over all threads
+ * and can be longer than wall time of whole build.
+ */
+public final class PhaseMetrics {
+
+    // timers
+    public static final String EXECUTE = "execute";
+    public static final String PREPARE_KEYS = "prepareKeys";
+    public static final String RESOLVE_ARTIFACTS = "resolveArtifacts";
+    public static final String VERIFY_ARTIFACTS = "verifyArtifacts";
+    public static final String RESOLVE_ARTIFACT = "resolve.artifact";
+    public static final String RESOLVE_POM = "resolve.pom";
+    public static final String RESOLVE_SIGNATURE = "resolve.signature";
+    public static final String KEYS_GET = "keys.get";
+    public static final String KEYS_FETCH = "keys.fetch";
+    public static final String KEYS_LOAD = "keys.load";
+    public static final String VERIFY_SIGNATURE = "verify.signature";
+    public static final String VERIFY_HASH = "verify.hash";
+
+    // counters
+    public static final String ARTIFACTS = "artifacts";
+    public static final String SIGNATURES_MISSING = "signatures.missing";
+    public static final String BYTES_HASHED = "bytes.hashed";
+    public static final String KEYS_CACHE_HITS = "keys.cache.hits";
+    public static final String KEYS_CACHE_MISSES = "keys.cache.misses";
+    public static final String KEYS_FROM_SOURCE = "keys.source";
+    public static final String KEYSERVER_REQUESTS = "keyserver.requests";
+    public static final String KEYSERVER_RETRIES = "keyserver.retries";
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+
+    /**
+     * Increment counter by one.
+     *
+     * @param counter
+     *         counter name
+     */
+    public void increment(String counter) {
+        add(counter, 1);
+    }
+
+    /**
+     * Add value to counter.
+     *
+     * @param counter
+     *         counter name
+     * @param value
+     *         value to add
+     */
+    public void add(String counter, long value) {
+        counters.computeIfAbsent(counter, k -> new LongAdder()).add(value);
+    }
+
+    /**
+     * Start measure of phase, phase is measured until returned timer is closed.
+     *
+     * @param phase
+     *         phase name
+     *
+     * @return timer of phase
+     */
+    public Timer start(String phase) {
+        return new Timer(timings.computeIfAbsent(phase, k -> new Timing()));
+    }
+
+    /**
+     * Current value of counter.
+     *
+     * @param counter
+     *         counter name
+     *
+     * @return value, zero for not used counter
+     */
+    public long getCounter(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * Number of finished measures of phase.
+     *
+     * @param phase
+     *         phase name
+     *
+     * @return number of measures, zero for not measured phase
+     */
+    public long getCount(String phase) {
+        Timing timing = timings.get(phase);
+        return timing == null ? 0 : timing.count.sum();
+    }
+
+    /**
+     * Total time of all finished measures of phase.
+     *
+     * @param phase
+     *         phase name
+     *
+     * @return total time
+     */
+    public Duration getTime(String phase) {
+        Timing timing = timings.get(phase);
+        return Duration.ofNanos(timing == null ? 0 : timing.nanos.sum());
+    }
+
+    /**
+     * Write all timers and counters as JSON object, names are sorted so reports are easy to compare.
+     *
+     * @param file
+     *         destination file, parent directories are created if needed
+     *
+     * @throws IOException
+     *         if problem with writing file
+     */
+    public void writeJson(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        Map<String, String> timers = new TreeMap<>();
+        timings.forEach((name, timing) -> timers.put(name, String.format(Locale.ROOT,
+                "{\"count\": %d, \"totalMillis\": %.3f}",
+                timing.count.sum(), timing.nanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1))));
+
+        Map<String, String> values = new TreeMap<>();
+        counters.forEach((name, value) -> values.put(name, String.valueOf(value.sum())));
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\n");
+            writeJsonObject(writer, "timers", timers);
+            writer.write(",\n");
+            writeJsonObject(writer, "counters", values);
+            writer.write("\n}\n");
+        }
+    }
+
+    private static void writeJsonObject(BufferedWriter writer, String name, Map<String, String> values)
+            throws IOException {
+        writer.write("  \"" + name + "\": {");
+        Iterator<Map.Entry<String, String>> iterator = values.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, String> entry = iterator.next();
+            writer.write("\n    \"" + entry.getKey() + "\": " + entry.getValue());
+            if (iterator.hasNext()) {
+                writer.write(",");
+            }
+        }
+        writer.write(values.isEmpty() ? "}" : "\n  }");
+    }
+
+    /**
+     * Measure of one phase execution.
+     */
+    public static final class Timer implements AutoCloseable {
+
+        private final Timing timing;
+        private final long start = System.nanoTime();
+        private boolean closed;
+
+        private Timer(Timing timing) {
+            this.timing = timing;
+        }
+
+        /**
+         * Finish measure, next calls have no effect.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                timing.nanos.add(System.nanoTime() - start);
+                timing.count.increment();
+            }
+        }
+    }
+
+    private static final class Timing {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+}
@@ -15,12 +15,16 @@
  */
 package org.simplify4u.plugins.utils;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -28,14 +32,18 @@ import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import io.vavr.control.Try;
+import org.bouncycastle.gpg.keybox.KeyBlob;
+import org.bouncycastle.gpg.keybox.PublicKeyRingBlob;
+import org.bouncycastle.gpg.keybox.bc.BcKeyBox;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPPublicKeyRing;
 import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
 import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPUserAttributeSubpacketVector;
 import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.operator.PGPContentVerifierBuilderProvider;
 import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
-import org.bouncycastle.openpgp.operator.bc.BcPGPContentVerifierBuilderProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -160,30 +168,216 @@ public final class PublicKeyUtils {
      */
     public static Optional<PGPPublicKeyRing> loadPublicKeyRing(InputStream keyStream, long keyId)
             throws IOException, PGPException {
+        return loadPublicKeyRing(keyStream, keyId, true);
+    }
+
+    /**
+     * Load Public Keys ring from stream for given keyId.
+     *
+     * @param keyStream
+     *         input stream with public keys
+     * @param keyId
+     *         key ID for find proper key ring
+     * @param verify
+     *         if signatures for subKeys should be verified, when {@code false} caller is responsible
+     *         for calling {@link #verifyPublicKeyRing(PGPPublicKeyRing)}
+     *
+     * @return key ring with given key id
+     *
+     * @throws IOException
+     *         if problem with comunication
+     * @throws PGPException
+     *         if problem with PGP data
+     */
+    public static Optional<PGPPublicKeyRing> loadPublicKeyRing(InputStream keyStream, long keyId, boolean verify)
+            throws IOException, PGPException {
 
         InputStream keyIn = PGPUtil.getDecoderStream(keyStream);
         PGPPublicKeyRingCollection pgpRing = new PGPPublicKeyRingCollection(keyIn, new BcKeyFingerprintCalculator());
 
         Optional<PGPPublicKeyRing> publicKeyRing = Optional.ofNullable(pgpRing.getPublicKeyRing(keyId));
-        publicKeyRing.ifPresent(PublicKeyUtils::verifyPublicKeyRing);
+        if (verify && publicKeyRing.isPresent()) {
+            verifyPublicKeyRing(publicKeyRing.get());
+        }
 
         return publicKeyRing;
     }
 
+    /**
+     * Remove from key ring all packets which are not needed for signature verification.
+     * <p>
+     * Third-party certifications of user IDs, user attributes (like photos) and user IDs without self signature
+     * are removed. Master key, sub keys, their binding and revocation signatures and self signed user IDs are kept.
+     *
+     * @param publicKeyRing
+     *         key ring to minimize
+     *
+     * @return minimized key ring
+     */
+    public static PGPPublicKeyRing minimizeKeyRing(PGPPublicKeyRing publicKeyRing) {
+
+        final PGPPublicKey masterKey = publicKeyRing.getPublicKey();
+        final long masterKeyId = masterKey.getKeyID();
+
+        PGPPublicKey minimizedKey = masterKey;
+
+        List<PGPUserAttributeSubpacketVector> userAttributes = new ArrayList<>();
+        masterKey.getUserAttributes().forEachRemaining(userAttributes::add);
+        for (PGPUserAttributeSubpacketVector userAttribute : userAttributes) {
+            minimizedKey = removedOrSame(PGPPublicKey.removeCertification(minimizedKey, userAttribute), minimizedKey);
+        }
+
+        List<byte[]> userIds = new ArrayList<>();
+        masterKey.getRawUserIDs().forEachRemaining(userIds::add);
+        for (byte[] userId : userIds) {
+            List<PGPSignature> signatures = new ArrayList<>();
+            masterKey.getSignaturesForID(userId).forEachRemaining(signatures::add);
+
+            if (signatures.stream().noneMatch(sig -> sig.getKeyID() == masterKeyId)) {
+                minimizedKey = removedOrSame(PGPPublicKey.removeCertification(minimizedKey, userId), minimizedKey);
+                continue;
+            }
+
+            for (PGPSignature signature : signatures) {
+                if (signature.getKeyID() != masterKeyId) {
+                    minimizedKey = removedOrSame(
+                            PGPPublicKey.removeCertification(minimizedKey, userId, signature), minimizedKey);
+                }
+            }
+        }
+
+        List<PGPPublicKey> keys = new ArrayList<>();
+        keys.add(minimizedKey);
+        StreamSupport.stream(publicKeyRing.spliterator(), false)
+                .filter(key -> !key.isMasterKey())
+                .forEach(keys::add);
+
+        return new PGPPublicKeyRing(keys);
+    }
+
+    /**
+     * BC returns {@code null} when removed item is not found.
+     */
+    private static PGPPublicKey removedOrSame(PGPPublicKey removed, PGPPublicKey key) {
+        return removed != null ? removed : key;
+    }
+
+    /**
+     * Key ID of key with given fingerprint, for version 4 keys it is the lowest 64 bits of fingerprint.
+     *
+     * @param fingerprint
+     *         key fingerprint
+     *
+     * @return key ID
+     */
+    public static long keyIdFromFingerprint(byte[] fingerprint) {
+        long keyId = 0;
+        for (int i = Math.max(0, fingerprint.length - 8); i < fingerprint.length; i++) {
+            keyId = (keyId << 8) | (fingerprint[i] & 0xff);
+        }
+        return keyId;
+    }
+
+    /**
+     * Load all public key rings from given content.
+     * <p>
+     * Supported formats are armored or binary key rings, also many concatenated armored blocks,
+     * like output of <code>gpg --export</code>, GnuPG public key ring (<code>pubring.gpg</code>)
+     * and GnuPG key box (<code>pubring.kbx</code>).
+     *
+     * @param content
+     *         content of key rings file
+     *
+     * @return all key rings
+     *
+     * @throws IOException
+     *         if problem with reading data
+     * @throws PGPException
+     *         if problem with PGP data
+     */
+    public static List<PGPPublicKeyRing> loadPublicKeyRings(byte[] content) throws IOException, PGPException {
+
+        List<PGPPublicKeyRing> result = new ArrayList<>();
+
+        if (isKeyBox(content)) {
+            for (KeyBlob keyBlob : new BcKeyBox(content).getKeyBlobs()) {
+                if (keyBlob instanceof PublicKeyRingBlob) {
+                    result.add(((PublicKeyRingBlob) keyBlob).getPGPPublicKeyRing());
+                }
+            }
+            return result;
+        }
+
+        try (BufferedInputStream inputStream = new BufferedInputStream(new ByteArrayInputStream(content))) {
+            while (skipWhitespaces(inputStream)) {
+                InputStream keyIn = PGPUtil.getDecoderStream(inputStream);
+                new PGPPublicKeyRingCollection(keyIn, new BcKeyFingerprintCalculator())
+                        .getKeyRings()
+                        .forEachRemaining(result::add);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isKeyBox(byte[] content) {
+        return content.length > 12 && content[8] == 'K' && content[9] == 'B' && content[10] == 'X'
+                && content[11] == 'f';
+    }
+
+    /**
+     * Skip white spaces between armored blocks.
+     *
+     * @return {@code false} if end of stream was reached
+     */
+    private static boolean skipWhitespaces(InputStream inputStream) throws IOException {
+        while (true) {
+            inputStream.mark(1);
+            int ch = inputStream.read();
+            if (ch < 0) {
+                return false;
+            }
+            if (!Character.isWhitespace(ch)) {
+                inputStream.reset();
+                return true;
+            }
+        }
+    }
+
     /**
      * Validate signatures for subKeys in given key ring.
      *
      * @param publicKeyRing
      *         keys to verify
+     *
+     * @throws PGPException
+     *         if sub key has not valid binding or revocation signature
+     */
+    public static void verifyPublicKeyRing(PGPPublicKeyRing publicKeyRing) throws PGPException {
+        verifyPublicKeyRing(publicKeyRing, ContentVerifierBackend.BC.getProvider());
+    }
+
+    /**
+     * Validate signatures for subKeys in given key ring.
+     *
+     * @param publicKeyRing
+     *         keys to verify
+     * @param verifierProvider
+     *         provider of content verifiers for signatures
+     *
+     * @throws PGPException
+     *         if sub key has not valid binding or revocation signature
      */
-    private static void verifyPublicKeyRing(PGPPublicKeyRing publicKeyRing) {
+    @SuppressWarnings("java:S1130")
+    public static void verifyPublicKeyRing(PGPPublicKeyRing publicKeyRing,
+            PGPContentVerifierBuilderProvider verifierProvider) throws PGPException {
 
         StreamSupport.stream(publicKeyRing.spliterator(), false)
                 .filter(key -> !key.isMasterKey())
-                .forEach(key -> Try.run(() -> verifySigForSubKey(key, publicKeyRing)).get());
+                .forEach(key -> Try.run(() -> verifySigForSubKey(key, publicKeyRing, verifierProvider)).get());
     }
 
-    private static void verifySigForSubKey(PGPPublicKey subKey, PGPPublicKeyRing publicKeyRing) throws PGPException {
+    private static void verifySigForSubKey(PGPPublicKey subKey, PGPPublicKeyRing publicKeyRing,
+            PGPContentVerifierBuilderProvider verifierProvider) throws PGPException {
 
         int signatureTypeToCheck = subKey.hasRevocation()
                 ? PGPSignature.SUBKEY_REVOCATION : PGPSignature.SUBKEY_BINDING;
@@ -195,7 +389,7 @@ public final class PublicKeyUtils {
 
                     PGPPublicKey masterKey = publicKeyRing.getPublicKey(sig.getKeyID());
                     if (masterKey != null) {
-                        sig.init(new BcPGPContentVerifierBuilderProvider(), masterKey);
+                        sig.init(verifierProvider, masterKey);
                         if (sig.verifyCertification(masterKey, subKey)) {
                             hasValidSignature.set(true);
                         } else {
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.utils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.simplify4u.plugins.TestArtifactBuilder.testArtifact;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class FlightEventTest {
+
+    private static final String[] EVENTS = {
+            "org.simplify4u.pgpverify.ResolveArtifact",
+            "org.simplify4u.pgpverify.ResolveSignature",
+            "org.simplify4u.pgpverify.GetKeyRing",
+            "org.simplify4u.pgpverify.KeyServerRequest",
+            "org.simplify4u.pgpverify.VerifySignature"
+    };
+
+    @BeforeClass
+    public void checkJfr() {
+        if (!FlightRecorder.isAvailable()) {
+            throw new SkipException("JFR is not available");
+        }
+    }
+
+    @Test
+    public void eventsAreNotRecordedWithoutRecording() {
+        try (FlightEvent event = FlightEvent.getKeyRing(0x1234L)) {
+            assertThat(event).isNotInstanceOf(JfrFlightEvent.class);
+            event.outcome("cached");
+        }
+    }
+
+    @Test
+    public void eventsAreRecorded() throws IOException {
+        Path file = Files.createTempFile("pgpverify", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                for (String event : EVENTS) {
+                    recording.enable(event);
+                }
+                recording.start();
+
+                try (FlightEvent event = FlightEvent.getKeyRing(0x1234L)) {
+                    event.outcome("cached");
+                }
+                try (FlightEvent event = FlightEvent.keyServerRequest(URI.create("http://localhost/pks/lookup"))) {
+                    event.outcome("ok").bytes(100);
+                }
+                try (FlightEvent event = FlightEvent.verifySignature(testArtifact().build())) {
+                    event.failed(new IOException("bad signature"));
+                }
+                try (FlightEvent ignored = FlightEvent.resolveSignature(testArtifact().build())) {
+                    // closed without outcome
+                }
+
+                recording.stop();
+                recording.dump(file);
+            }
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+            assertThat(events).extracting(event -> event.getEventType().getName()).containsExactly(
+                    "org.simplify4u.pgpverify.GetKeyRing",
+                    "org.simplify4u.pgpverify.KeyServerRequest",
+                    "org.simplify4u.pgpverify.VerifySignature",
+                    "org.simplify4u.pgpverify.ResolveSignature");
+
+            assertThat(events.get(0).getString("keyId")).isEqualTo("0x0000000000001234");
+            assertThat(events.get(0).getString("outcome")).isEqualTo("cached");
+
+            assertThat(events.get(1).getString("uri")).isEqualTo("http://localhost/pks/lookup");
+            assertThat(events.get(1).getLong("bytes")).isEqualTo(100);
+            assertThat(events.get(1).getString("outcome")).isEqualTo("ok");
+
+            assertThat(events.get(2).getString("artifact")).isEqualTo("test.group:test:jar:1.1.1");
+            assertThat(events.get(2).getString("outcome")).isEqualTo("bad signature");
+
+            assertThat(events.get(3).getString("outcome")).isEqualTo("error");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.simplify4u.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ArtifactChecksumsTest {
+
+    private static final byte[] CONTENT = "artifact content".getBytes(StandardCharsets.US_ASCII);
+    private static final String SHA1 = "1cf80df7d11d9e5e5fe9e8cfb19fcd767b3b78bc";
+    private static final String SHA256 = "42bd420cc2f99e68e60005fa7c28fc2f60e4e04ee160d9dd3b98e72fc2954f98";
+
+    private Path directory;
+    private File artifactFile;
+    private Log log;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("checksums-test");
+        artifactFile = directory.resolve("artifact-1.0.jar").toFile();
+        Files.write(artifactFile.toPath(), CONTENT);
+        log = mock(Log.class);
+    }
+
+    @AfterMethod
+    public void cleanup() throws IOException {
+        MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    private void writeChecksum(String extension, String content) throws IOException {
+        Files.write(new File(artifactFile.getPath() + "." + extension).toPath(),
+                content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static ArtifactChecksums update(ArtifactChecksums checksums) {
+        for (MessageDigest digest : checksums.getDigests()) {
+            digest.update(CONTENT);
+        }
+        return checksums;
+    }
+
+    @Test
+    public void noChecksumFiles() throws IOException {
+        ArtifactChecksums checksums = ArtifactChecksums.load(artifactFile, log);
+
+        assertThat(checksums.isEmpty()).isTrue();
+        assertThat(checksums.getDigests()).isEmpty();
+        assertThat(checksums.mismatches()).isEmpty();
+    }
+
+    @Test
+    public void matchingChecksums() throws IOException {
+        writeChecksum("sha1", SHA1.toUpperCase() + "  artifact-1.0.jar\n");
+        writeChecksum("sha256", SHA256);
+
+        ArtifactChecksums checksums = update(ArtifactChecksums.load(artifactFile, log));
+
+        assertThat(checksums.getDigests()).hasSize(2);
+        assertThat(checksums.mismatches()).isEmpty();
+    }
+
+    @Test
+    public void notMatchingChecksum() throws IOException {
+        writeChecksum("sha1", "0000000000000000000000000000000000000000");
+
+        ArtifactChecksums checksums = update(ArtifactChecksums.load(artifactFile, log));
+
+        assertThat(checksums.mismatches())
+                .containsExactly("artifact-1.0.jar.sha1 expected: 0000000000000000000000000000000000000000 actual: "
+                        + SHA1);
+    }
+
+    @Test
+    public void invalidChecksumFileIsSkipped() throws IOException {
+        writeChecksum("sha256", SHA1);
+        writeChecksum("sha1", SHA1);
+
+        ArtifactChecksums checksums = update(ArtifactChecksums.load(artifactFile, log));
+
+        verify(log).warn("Skip invalid checksum file: " + artifactFile.getPath() + ".sha256");
+        assertThat(checksums.getDigests()).hasSize(1);
+        assertThat(checksums.mismatches()).isEmpty();
+    }
+
+    @Test
+    public void onlyInvalidChecksumFiles() throws IOException {
+        writeChecksum("sha512", "<html>Not Found</html>");
+
+        ArtifactChecksums checksums = ArtifactChecksums.load(artifactFile, log);
+
+        verify(log).warn("Skip invalid checksum file: " + artifactFile.getPath() + ".sha512");
+        assertThat(checksums.isEmpty()).isTrue();
+    }
+}
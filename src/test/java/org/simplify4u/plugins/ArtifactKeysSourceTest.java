@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.simplify4u.plugins;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.repository.RepositorySystem;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class ArtifactKeysSourceTest {
+
+    private RepositorySystem repositorySystem;
+
+    @BeforeMethod
+    public void setup() {
+        repositorySystem = mock(RepositorySystem.class);
+        when(repositorySystem.createArtifactWithClassifier(anyString(), anyString(), anyString(), anyString(), any()))
+                .thenAnswer(i -> new DefaultArtifact(i.getArgument(0), i.getArgument(1), i.<String>getArgument(2),
+                        null, i.getArgument(3), i.getArgument(4), new DefaultArtifactHandler(i.getArgument(3))));
+    }
+
+    private ArtifactKeysSource keysSource(String template) {
+        return new ArtifactKeysSource(mock(Log.class), repositorySystem, mock(ArtifactRepository.class), emptyList(),
+                template);
+    }
+
+    @DataProvider
+    public Object[][] invalidTemplates() {
+        return new Object[][]{
+                {"org.example:keys:1.0"},
+                {"org.example:key-{keyId}"},
+                {"org.example:key-{keyId}:1.0:asc:class:extra"},
+                {"org.example::1.0:{keyId}"}
+        };
+    }
+
+    @Test(dataProvider = "invalidTemplates")
+    public void invalidTemplateThrowsException(String template) {
+        assertThatCode(() -> keysSource(template))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(template);
+    }
+
+    @Test
+    public void keyIdIsReplacedInCoordinates() {
+        Artifact artifact = keysSource("org.example.{keyId}:key-{keyId}:1.0").keyArtifact(0xEFE8086F9E93774EL);
+
+        assertThat(artifact.getGroupId()).isEqualTo("org.example.EFE8086F9E93774E");
+        assertThat(artifact.getArtifactId()).isEqualTo("key-EFE8086F9E93774E");
+        assertThat(artifact.getVersion()).isEqualTo("1.0");
+        assertThat(artifact.getType()).isEqualTo("asc");
+        assertThat(artifact.getClassifier()).isNull();
+    }
+
+    @Test
+    public void typeAndClassifierFromTemplate() {
+        Artifact artifact = keysSource("org.example:keys:1.0:gpg:{keyId}").keyArtifact(0x1L);
+
+        assertThat(artifact.getType()).isEqualTo("gpg");
+        assertThat(artifact.getClassifier()).isEqualTo("0000000000000001");
+    }
+
+    @Test
+    public void resolvedKeyArtifactIsRead() throws IOException {
+        Path keyFile = Files.createTempFile("key-artifact", ".asc");
+        try {
+            Files.write(keyFile, "key content".getBytes(StandardCharsets.US_ASCII));
+            when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer(i -> {
+                Artifact artifact = i.<ArtifactResolutionRequest>getArgument(0).getArtifact();
+                artifact.setFile(keyFile.toFile());
+                artifact.setResolved(true);
+                return new ArtifactResolutionResult();
+            });
+
+            assertThat(keysSource("org.example:key-{keyId}:1.0").getKeyRing(0x1L))
+                    .hasValueSatisfying(content ->
+                            assertThat(new String(content, StandardCharsets.US_ASCII)).isEqualTo("key content"));
+        } finally {
+            Files.delete(keyFile);
+        }
+    }
+
+    @Test
+    public void notResolvedKeyArtifactIsEmpty() throws IOException {
+        when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer(i -> {
+            ArtifactResolutionResult result = new ArtifactResolutionResult();
+            result.addErrorArtifactException(new ArtifactResolutionException(
+                    "not found", i.<ArtifactResolutionRequest>getArgument(0).getArtifact()));
+            return result;
+        });
+
+        assertThat(keysSource("org.example:key-{keyId}:1.0").getKeyRing(0x1L)).isEmpty();
+    }
+}
@@ -26,28 +26,40 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.repository.RepositorySystem;
+import org.eclipse.aether.DefaultSessionData;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.collection.CollectResult;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
 import org.mockito.stubbing.Answer;
 import org.simplify4u.plugins.ArtifactResolver.Configuration;
+import org.simplify4u.plugins.ArtifactResolver.ProjectArtifact;
 import org.simplify4u.plugins.ArtifactResolver.SignatureRequirement;
 import org.simplify4u.plugins.skipfilters.CompositeSkipper;
+import org.simplify4u.plugins.skipfilters.CoordinatesSkipper;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertThrows;
 import static org.testng.Assert.assertTrue;
@@ -137,17 +149,130 @@ public class ArtifactResolverTest {
     }
 
     @Test
-    public void testResolveSignaturesEmpty() throws MojoExecutionException {
+    public void testResolveProjectArtifactsDuplicatesResolvedOnce() throws MojoExecutionException {
         final Log log = mock(Log.class);
         final RepositorySystem repositorySystem = mock(RepositorySystem.class);
+        when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer((Answer<ArtifactResolutionResult>) invocation -> {
+            final Artifact artifact = invocation.<ArtifactResolutionRequest>getArgument(0).getArtifact();
+            artifact.setResolved(true);
+            return new ArtifactResolutionResult();
+        });
+        when(repositorySystem.createProjectArtifact(eq("g"), eq("a"), eq("1.0")))
+                .thenAnswer(i -> new DefaultArtifact("g", "a", "1.0", "compile", "pom", null, new DefaultArtifactHandler()));
+        final ArtifactResolver resolver = new ArtifactResolver(log, repositorySystem, mock(ArtifactRepository.class), emptyList());
+        final MavenProject project = mock(MavenProject.class);
+        final DefaultArtifact artifact = new DefaultArtifact("g", "a", "1.0", "compile", "jar", null, new DefaultArtifactHandler());
+        final DefaultArtifact artifactTests = new DefaultArtifact("g", "a", "1.0", "compile", "jar", "tests", new DefaultArtifactHandler());
+        final DefaultArtifact pluginArtifact = new DefaultArtifact("g", "a", "1.0", null, "jar", null, new DefaultArtifactHandler());
+        when(project.getArtifacts()).thenReturn(new LinkedHashSet<>(Arrays.asList(artifact, artifactTests)));
+        when(project.getPluginArtifacts()).thenReturn(singleton(pluginArtifact));
+
+        final Configuration config = new Configuration(new CompositeSkipper(emptyList()),
+                new CompositeSkipper(emptyList()), true, true, false);
+        final Set<Artifact> resolved = resolver.resolveProjectArtifacts(project, config);
+
+        assertEquals(resolved.size(), 3);
+        // jar, tests jar and one pom for both
+        verify(repositorySystem, times(3)).resolve(isA(ArtifactResolutionRequest.class));
+    }
+
+    @Test
+    public void testResolveProjectArtifactsSkippedAreNotResolved() throws MojoExecutionException {
+        final Log log = mock(Log.class);
+        final RepositorySystem repositorySystem = mock(RepositorySystem.class);
+        when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer((Answer<ArtifactResolutionResult>) invocation -> {
+            final Artifact artifact = invocation.<ArtifactResolutionRequest>getArgument(0).getArtifact();
+            artifact.setResolved(true);
+            return new ArtifactResolutionResult();
+        });
+        final ArtifactResolver resolver = new ArtifactResolver(log, repositorySystem, mock(ArtifactRepository.class), emptyList());
+        final MavenProject project = mock(MavenProject.class);
+        final DefaultArtifact artifact = new DefaultArtifact("g", "a", "1.0", "compile", "jar", null, new DefaultArtifactHandler());
+        final DefaultArtifact internalArtifact = new DefaultArtifact("internal.g", "a", "1.0", "compile", "jar", null, new DefaultArtifactHandler());
+        when(project.getArtifacts()).thenReturn(new LinkedHashSet<>(Arrays.asList(artifact, internalArtifact)));
+
+        final Configuration config = new Configuration(
+                new CoordinatesSkipper(emptyList(), singletonList("internal.*")),
+                new CompositeSkipper(emptyList()), false, false, false);
+        final Set<Artifact> resolved = resolver.resolveProjectArtifacts(project, config);
+
+        assertEquals(resolved, singleton(artifact));
+        verify(repositorySystem, times(1)).resolve(isA(ArtifactResolutionRequest.class));
+    }
+
+    @Test
+    public void testCollectProjectArtifactsDoesNotResolve() throws MojoExecutionException {
+        final Log log = mock(Log.class);
+        final RepositorySystem repositorySystem = mock(RepositorySystem.class);
+        when(repositorySystem.createProjectArtifact(eq("g"), eq("a"), eq("1.0")))
+                .thenAnswer(i -> new DefaultArtifact("g", "a", "1.0", null, "pom", null, new DefaultArtifactHandler()));
         final ArtifactResolver resolver = new ArtifactResolver(log, repositorySystem, mock(ArtifactRepository.class), emptyList());
-        final Map<Artifact, Artifact> resolvedSignatures = resolver.resolveSignatures(
-                emptyList(), SignatureRequirement.NONE);
-        assertEquals(resolvedSignatures.size(), 0);
+        final MavenProject project = mock(MavenProject.class);
+        final DefaultArtifact artifact = new DefaultArtifact("g", "a", "1.0", "compile", "jar", null, new DefaultArtifactHandler());
+        final DefaultArtifact artifactTests = new DefaultArtifact("g", "a", "1.0", "compile", "jar", "tests", new DefaultArtifactHandler());
+        when(project.getArtifacts()).thenReturn(new LinkedHashSet<>(Arrays.asList(artifact, artifactTests)));
+
+        final Configuration config = new Configuration(new CompositeSkipper(emptyList()),
+                new CompositeSkipper(emptyList()), true, false, false);
+        final List<ProjectArtifact> collected = resolver.collectProjectArtifacts(project, config);
+
+        // jar, pom and tests jar, pom is collected once
+        assertEquals(collected.size(), 3);
+        assertEquals(collected.get(0).getArtifact(), artifact);
+        assertTrue(collected.get(0).isRequired());
+        assertEquals(collected.get(1).getArtifact().getType(), "pom");
+        assertFalse(collected.get(1).isRequired());
+        assertEquals(collected.get(2).getArtifact(), artifactTests);
+        verify(repositorySystem, never()).resolve(any());
+    }
+
+    @Test
+    public void testCollectProjectArtifactsWithTransitivePluginDependencies() throws Exception {
+        final RepositorySystem repositorySystem = mock(RepositorySystem.class);
+        final org.eclipse.aether.RepositorySystem aetherRepositorySystem = mock(org.eclipse.aether.RepositorySystem.class);
+        when(aetherRepositorySystem.collectDependencies(any(), any())).thenAnswer(i -> {
+            final CollectRequest request = i.getArgument(1);
+            final DefaultDependencyNode root = new DefaultDependencyNode(request.getRoot());
+            root.setChildren(singletonList(new DefaultDependencyNode(new Dependency(
+                    new org.eclipse.aether.artifact.DefaultArtifact("g", "plugin-dependency", "jar", "1.0"),
+                    "compile"))));
+            final CollectResult result = new CollectResult(request);
+            result.setRoot(root);
+            return result;
+        });
+        final RepositorySystemSession session = mock(RepositorySystemSession.class);
+        when(session.getData()).thenReturn(new DefaultSessionData());
+        final DependencyGraphWalker graphWalker = new DependencyGraphWalker(mock(Log.class), aetherRepositorySystem,
+                session, emptyList());
+
+        final ArtifactResolver resolver = new ArtifactResolver(mock(Log.class), repositorySystem,
+                mock(ArtifactRepository.class), emptyList(), graphWalker);
+        final MavenProject project = mock(MavenProject.class);
+        final DefaultArtifact pluginArtifact = new DefaultArtifact("g", "plugin", "1.0", null, "maven-plugin", null,
+                new DefaultArtifactHandler("maven-plugin"));
+        when(project.getPluginArtifacts()).thenReturn(singleton(pluginArtifact));
+
+        final Configuration config = new Configuration(new CompositeSkipper(emptyList()),
+                new CompositeSkipper(emptyList()), false, true, false);
+        final List<ProjectArtifact> collected = resolver.collectProjectArtifacts(project, config);
+
+        assertEquals(collected.size(), 2);
+        assertEquals(collected.get(0).getArtifact(), pluginArtifact);
+        assertEquals(collected.get(1).getArtifact().getArtifactId(), "plugin-dependency");
+    }
+
+    @Test
+    public void testCoordinatesKey() {
+        assertEquals(ArtifactResolver.coordinatesKey(
+                new DefaultArtifact("g", "a", "1.0", "compile", "jar", null, new DefaultArtifactHandler())),
+                "g:a:jar::1.0");
+        assertEquals(ArtifactResolver.coordinatesKey(
+                new DefaultArtifact("g", "a", "1.0", "test", "jar", "tests", new DefaultArtifactHandler())),
+                "g:a:jar:tests:1.0");
     }
 
     @Test
-    public void testResolveSignaturesResolved() throws MojoExecutionException {
+    public void testResolveSignatureResolved() throws MojoExecutionException {
         final Log log = mock(Log.class);
         final RepositorySystem repositorySystem = mock(RepositorySystem.class);
         when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer((Answer<ArtifactResolutionResult>) invocation -> {
@@ -162,22 +287,18 @@ public class ArtifactResolverTest {
         final DefaultArtifact artifact = new DefaultArtifact("g", "a", "1.0", "compile", "jar", null, new DefaultArtifactHandler());
         when(project.getArtifacts()).thenReturn(singleton(artifact));
 
-        final Map<Artifact, Artifact> resolvedSignatures = resolver.resolveSignatures(
-                singleton(artifact), SignatureRequirement.NONE);
+        final Artifact ascArtifact = resolver.resolveSignature(artifact, SignatureRequirement.NONE);
         verify(repositorySystem, times(1)).createArtifactWithClassifier(
                 eq("g"), eq("a"), eq("1.0"), eq("jar"), isNull());
-        assertEquals(resolvedSignatures.size(), 1);
-        final Map.Entry<Artifact, Artifact> entry = resolvedSignatures.entrySet().iterator().next();
-        assertEquals(entry.getKey(), artifact);
-        assertEquals(entry.getValue().getGroupId(), "g");
-        assertEquals(entry.getValue().getArtifactId(), "a");
-        assertEquals(entry.getValue().getVersion(), "1.0");
-        assertNull(entry.getValue().getClassifier());
-        assertEquals(entry.getValue().getType(), "mock-signature-artifact");
+        assertEquals(ascArtifact.getGroupId(), "g");
+        assertEquals(ascArtifact.getArtifactId(), "a");
+        assertEquals(ascArtifact.getVersion(), "1.0");
+        assertNull(ascArtifact.getClassifier());
+        assertEquals(ascArtifact.getType(), "mock-signature-artifact");
     }
 
     @Test
-    public void testResolveSignaturesUnresolvedNone() throws MojoExecutionException {
+    public void testResolveSignatureUnresolvedNone() throws MojoExecutionException {
         final Log log = mock(Log.class);
         final RepositorySystem repositorySystem = mock(RepositorySystem.class);
         when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer((Answer<ArtifactResolutionResult>) invocation -> {
@@ -194,16 +315,15 @@ public class ArtifactResolverTest {
         final DefaultArtifact artifact = new DefaultArtifact("g", "a", "1.0", "compile", "jar", null, new DefaultArtifactHandler());
         when(project.getArtifacts()).thenReturn(singleton(artifact));
 
-        final Map<Artifact, Artifact> resolvedSignatures = resolver.resolveSignatures(
-                singleton(artifact), SignatureRequirement.NONE);
+        final Artifact ascArtifact = resolver.resolveSignature(artifact, SignatureRequirement.NONE);
         verify(repositorySystem, times(1)).createArtifactWithClassifier(
                 eq("g"), eq("a"), eq("1.0"), eq("jar"), isNull());
         verify(log).warn(eq("No signature for g:a:jar:1.0"));
-        assertEquals(resolvedSignatures.size(), 0);
+        assertNull(ascArtifact);
     }
 
     @Test
-    public void testResolveSignaturesUnresolvedStrict() throws MojoExecutionException {
+    public void testResolveSignatureUnresolvedStrict() throws MojoExecutionException {
         final Log log = mock(Log.class);
         final RepositorySystem repositorySystem = mock(RepositorySystem.class);
         when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer((Answer<ArtifactResolutionResult>) invocation -> {
@@ -220,18 +340,14 @@ public class ArtifactResolverTest {
         final DefaultArtifact artifact = new DefaultArtifact("g", "a", "1.0", "compile", "jar", null, new DefaultArtifactHandler());
         when(project.getArtifacts()).thenReturn(singleton(artifact));
 
-        final Map<Artifact, Artifact> resolvedSignatures = resolver.resolveSignatures(
-                singleton(artifact), SignatureRequirement.STRICT);
+        final Artifact ascArtifact = resolver.resolveSignature(artifact, SignatureRequirement.STRICT);
         verify(repositorySystem, times(1)).createArtifactWithClassifier(
                 eq("g"), eq("a"), eq("1.0"), eq("jar"), isNull());
-        assertEquals(resolvedSignatures.size(), 1);
-        final Map.Entry<Artifact, Artifact> entry = resolvedSignatures.entrySet().iterator().next();
-        assertEquals(entry.getKey(), artifact);
-        assertNull(entry.getValue());
+        assertNull(ascArtifact);
     }
 
     @Test
-    public void testResolveSignaturesUnresolvedRequired() {
+    public void testResolveSignatureUnresolvedRequired() {
         final Log log = mock(Log.class);
         final RepositorySystem repositorySystem = mock(RepositorySystem.class);
         when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer((Answer<ArtifactResolutionResult>) invocation -> {
@@ -248,6 +364,6 @@ public class ArtifactResolverTest {
         final DefaultArtifact artifact = new DefaultArtifact("g", "a", "1.0", "compile", "jar", null, new DefaultArtifactHandler());
         when(project.getArtifacts()).thenReturn(singleton(artifact));
 
-        assertThrows(MojoExecutionException.class, () -> resolver.resolveSignatures(singleton(artifact), SignatureRequirement.REQUIRED));
+        assertThrows(MojoExecutionException.class, () -> resolver.resolveSignature(artifact, SignatureRequirement.REQUIRED));
     }
 }
\ No newline at end of file
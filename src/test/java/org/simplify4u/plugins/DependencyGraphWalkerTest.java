@@ -0,0 +1,286 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.resolver.filter.ExcludesArtifactFilter;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.eclipse.aether.DefaultRepositoryCache;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.collection.CollectResult;
+import org.eclipse.aether.collection.DependencyCollectionException;
+import org.eclipse.aether.repository.LocalRepository;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Dependencies are collected by Maven repository system from local repository prepared by test,
+ * so results are the same as Maven resolution for project dependencies.
+ */
+public class DependencyGraphWalkerTest {
+
+    private Path localRepository;
+    private RepositorySystem repositorySystem;
+    private DefaultRepositorySystemSession session;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        localRepository = Files.createTempDirectory("pgpverify-repo");
+        repositorySystem = spy(MavenRepositorySystemUtils.newServiceLocator().getService(RepositorySystem.class));
+        session = MavenRepositorySystemUtils.newSession();
+        session.setLocalRepositoryManager(repositorySystem.newLocalRepositoryManager(session,
+                new LocalRepository(localRepository.toFile(), "simple")));
+        session.setCache(new DefaultRepositoryCache());
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(localRepository.toFile());
+    }
+
+    /**
+     * Write pom of artifact <code>g:artifactId:version</code> to local repository.
+     *
+     * @param content
+     *         content of pom after coordinates, like dependencies or distribution management
+     */
+    private void pom(String artifactId, String version, String content) throws IOException {
+        pom("g", artifactId, version, content);
+    }
+
+    private void pom(String groupId, String artifactId, String version, String content) throws IOException {
+        Path dir = localRepository.resolve(groupId).resolve(artifactId).resolve(version);
+        Files.createDirectories(dir);
+        String pom = "<project><modelVersion>4.0.0</modelVersion>"
+                + "<groupId>" + groupId + "</groupId><artifactId>" + artifactId + "</artifactId>"
+                + "<version>" + version + "</version>" + content + "</project>";
+        Files.write(dir.resolve(artifactId + '-' + version + ".pom"), pom.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void pom(String artifactId, String version) throws IOException {
+        pom(artifactId, version, "");
+    }
+
+    private static String dependencies(String... dependencies) {
+        return "<dependencies>" + String.join("", dependencies) + "</dependencies>";
+    }
+
+    private static String dependency(String artifactId, String version, String extra) {
+        return "<dependency><groupId>g</groupId><artifactId>" + artifactId + "</artifactId>"
+                + (version.isEmpty() ? "" : "<version>" + version + "</version>") + extra + "</dependency>";
+    }
+
+    private static String dependency(String artifactId, String version) {
+        return dependency(artifactId, version, "");
+    }
+
+    private static String scope(String scope) {
+        return "<scope>" + scope + "</scope>";
+    }
+
+    private static String optional() {
+        return "<optional>true</optional>";
+    }
+
+    private static String exclusion(String artifactId) {
+        return "<exclusions><exclusion><groupId>g</groupId><artifactId>" + artifactId
+                + "</artifactId></exclusion></exclusions>";
+    }
+
+    private static Artifact root(String artifactId) {
+        return new DefaultArtifact("g", artifactId, "1.0", "runtime", "jar", null, new DefaultArtifactHandler("jar"));
+    }
+
+    private static List<String> ids(Collection<Artifact> artifacts) {
+        return artifacts.stream()
+                .map(a -> a.getArtifactId() + ":" + a.getVersion())
+                .collect(Collectors.toList());
+    }
+
+    private DependencyGraphWalker newWalker() {
+        return new DependencyGraphWalker(mock(Log.class), repositorySystem, session, emptyList());
+    }
+
+    @Test
+    public void transitiveDependenciesAreCollected() throws Exception {
+
+        pom("root", "1.0", dependencies(dependency("a", "1"), dependency("b", "1")));
+        pom("a", "1", dependencies(dependency("c", "1")));
+        pom("b", "1");
+        pom("c", "1");
+
+        Collection<Artifact> result = newWalker().collectTransitive(root("root"));
+
+        assertThat(ids(result)).containsExactly("a:1", "b:1", "c:1");
+        assertThat(result).allMatch(a -> "runtime".equals(a.getScope()));
+    }
+
+    @Test
+    public void nearestVersionWins() throws Exception {
+
+        pom("root", "1.0", dependencies(dependency("a", "1"), dependency("c", "2")));
+        pom("a", "1", dependencies(dependency("c", "1")));
+        pom("c", "1");
+        pom("c", "2");
+
+        assertThat(ids(newWalker().collectTransitive(root("root")))).containsExactly("a:1", "c:2");
+    }
+
+    @Test
+    public void testAndProvidedDependenciesAreSkipped() throws Exception {
+
+        pom("root", "1.0", dependencies(
+                dependency("a", "1", scope("test")),
+                dependency("b", "1", scope("provided")),
+                dependency("d", "1", scope("runtime"))));
+        pom("d", "1");
+
+        assertThat(ids(newWalker().collectTransitive(root("root")))).containsExactly("d:1");
+    }
+
+    @Test
+    public void optionalDependenciesOfRootAreCollected() throws Exception {
+
+        pom("root", "1.0", dependencies(dependency("a", "1", optional()), dependency("b", "1")));
+        pom("a", "1", dependencies(dependency("c", "1")));
+        pom("b", "1", dependencies(dependency("d", "1", optional())));
+        pom("c", "1");
+
+        // optional dependencies are used only by artifact which declares them
+        assertThat(ids(newWalker().collectTransitive(root("root")))).containsExactly("a:1", "b:1", "c:1");
+    }
+
+    @Test
+    public void exclusionsAreInherited() throws Exception {
+
+        pom("root", "1.0", dependencies(dependency("a", "1", exclusion("c"))));
+        pom("a", "1", dependencies(dependency("b", "1")));
+        pom("b", "1", dependencies(dependency("c", "1")));
+
+        assertThat(ids(newWalker().collectTransitive(root("root")))).containsExactly("a:1", "b:1");
+    }
+
+    @Test
+    public void rootExclusionsAreRespected() throws Exception {
+
+        pom("root", "1.0", dependencies(dependency("a", "1"), dependency("b", "1")));
+        pom("a", "1");
+        pom("b", "1", dependencies(dependency("c", "1")));
+        pom("c", "1");
+
+        Artifact root = root("root");
+        root.setDependencyFilter(new ExcludesArtifactFilter(Collections.singletonList("g:b")));
+
+        assertThat(ids(newWalker().collectTransitive(root))).containsExactly("a:1");
+    }
+
+    @Test
+    public void rootDependencyManagementIsApplied() throws Exception {
+
+        pom("root", "1.0", dependencies(dependency("a", "1"), dependency("b", "1"))
+                + "<dependencyManagement>" + dependencies(
+                dependency("c", "2", exclusion("f")),
+                dependency("e", "2")) + "</dependencyManagement>");
+        pom("a", "1", dependencies(dependency("c", "1"), dependency("e", "1")));
+        pom("b", "1");
+        pom("c", "2", dependencies(dependency("f", "1")));
+        pom("e", "2");
+
+        assertThat(ids(newWalker().collectTransitive(root("root"))))
+                .containsExactly("a:1", "b:1", "c:2", "e:2");
+    }
+
+    @Test
+    public void dependencyManagementOfTransitiveArtifactsIsIgnored() throws Exception {
+
+        pom("root", "1.0", dependencies(dependency("a", "1")));
+        pom("a", "1", dependencies(dependency("b", "1"))
+                + "<dependencyManagement>" + dependencies(dependency("c", "2")) + "</dependencyManagement>");
+        pom("b", "1", dependencies(dependency("c", "1")));
+        pom("c", "1");
+
+        assertThat(ids(newWalker().collectTransitive(root("root")))).containsExactly("a:1", "b:1", "c:1");
+    }
+
+    @Test
+    public void relocatedArtifactIsCollected() throws Exception {
+
+        pom("root", "1.0", dependencies(dependency("a", "1")));
+        pom("a", "1", "<distributionManagement><relocation><groupId>g2</groupId><artifactId>a-new</artifactId>"
+                + "</relocation></distributionManagement>");
+        pom("g2", "a-new", "1", dependencies(dependency("b", "1")));
+        pom("b", "1");
+
+        Collection<Artifact> result = newWalker().collectTransitive(root("root"));
+
+        assertThat(result).extracting(Artifact::getGroupId).containsExactly("g2", "g");
+        assertThat(ids(result)).containsExactly("a-new:1", "b:1");
+    }
+
+    @Test
+    public void collectionProblemThrowsException() throws Exception {
+
+        doThrow(new DependencyCollectionException(new CollectResult(new CollectRequest()), "test problem"))
+                .when(repositorySystem).collectDependencies(any(), any());
+
+        DependencyGraphWalker walker = newWalker();
+        Artifact root = root("root");
+        assertThatCode(() -> walker.collectTransitive(root))
+                .isExactlyInstanceOf(MojoExecutionException.class)
+                .hasMessage("Failed to collect dependencies of g:root:jar:1.0");
+    }
+
+    @Test
+    public void collectedGraphIsSharedInSession() throws Exception {
+
+        pom("plugin", "1.0", dependencies(dependency("shared", "1")));
+        pom("shared", "1", dependencies(dependency("common", "1")));
+        pom("common", "1");
+
+        assertThat(ids(newWalker().collectTransitive(root("plugin")))).containsExactly("shared:1", "common:1");
+        // new walker instance in the same session - like next module in reactor
+        assertThat(ids(newWalker().collectTransitive(root("plugin")))).containsExactly("shared:1", "common:1");
+
+        verify(repositorySystem, times(1)).collectDependencies(any(), any());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.simplify4u.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureGenerator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentVerifierBuilderProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+import org.simplify4u.plugins.utils.ContentVerifierBackend;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class PGPSignaturesTest {
+
+    private File file;
+    private byte[] content;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        // content is bigger than read buffer
+        content = new byte[20000];
+        new Random(1).nextBytes(content);
+        file = File.createTempFile("signed-content", ".bin");
+        Files.write(file.toPath(), content);
+    }
+
+    @AfterMethod
+    public void cleanup() throws IOException {
+        Files.delete(file.toPath());
+    }
+
+    private static BcPGPKeyPair generateKeyPair() throws PGPException {
+        RSAKeyPairGenerator generator = new RSAKeyPairGenerator();
+        generator.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x10001), new SecureRandom(), 1024, 12));
+        return new BcPGPKeyPair(PGPPublicKey.RSA_GENERAL, generator.generateKeyPair(), new Date());
+    }
+
+    private PGPSignature sign(BcPGPKeyPair keyPair, int hashAlgorithm) throws PGPException {
+        PGPSignatureGenerator signatureGenerator = new PGPSignatureGenerator(
+                new BcPGPContentSignerBuilder(PGPPublicKey.RSA_GENERAL, hashAlgorithm));
+        signatureGenerator.init(PGPSignature.BINARY_DOCUMENT, keyPair.getPrivateKey());
+        signatureGenerator.update(content);
+        return signatureGenerator.generate();
+    }
+
+    @DataProvider
+    public Object[][] contentVerifierBackends() {
+        return new Object[][]{
+                {ContentVerifierBackend.BC},
+                {ContentVerifierBackend.JCA}
+        };
+    }
+
+    @Test(dataProvider = "contentVerifierBackends")
+    public void allSignaturesAreVerifiedInOnePass(ContentVerifierBackend backend) throws PGPException, IOException {
+
+        BcPGPKeyPair keyPair1 = generateKeyPair();
+        BcPGPKeyPair keyPair2 = generateKeyPair();
+
+        PGPSignature signature1 = sign(keyPair1, HashAlgorithmTags.SHA256);
+        PGPSignature signature2 = sign(keyPair2, HashAlgorithmTags.SHA512);
+        signature1.init(backend.getProvider(), keyPair1.getPublicKey());
+        signature2.init(backend.getProvider(), keyPair2.getPublicKey());
+
+        PGPSignatures.readFileContentInto(Arrays.asList(signature1, signature2), file);
+
+        assertThat(signature1.verify()).isTrue();
+        assertThat(signature2.verify()).isTrue();
+    }
+
+    @Test
+    public void digestsAreUpdatedInTheSamePass() throws PGPException, IOException, NoSuchAlgorithmException {
+
+        BcPGPKeyPair keyPair = generateKeyPair();
+        PGPSignature signature = sign(keyPair, HashAlgorithmTags.SHA256);
+        signature.init(new BcPGPContentVerifierBuilderProvider(), keyPair.getPublicKey());
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        PGPSignatures.readFileContentInto(Collections.singletonList(signature), Collections.singletonList(digest),
+                file);
+
+        assertThat(signature.verify()).isTrue();
+        assertThat(digest.digest()).isEqualTo(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    @Test
+    public void changedContentIsNotVerified() throws PGPException, IOException {
+
+        BcPGPKeyPair keyPair = generateKeyPair();
+        List<PGPSignature> signatures = Arrays.asList(
+                sign(keyPair, HashAlgorithmTags.SHA256), sign(keyPair, HashAlgorithmTags.SHA1));
+        for (PGPSignature signature : signatures) {
+            signature.init(new BcPGPContentVerifierBuilderProvider(), keyPair.getPublicKey());
+        }
+
+        content[content.length - 1] ^= 1;
+        Files.write(file.toPath(), content);
+
+        PGPSignatures.readFileContentInto(signatures, file);
+
+        assertThat(signatures).noneMatch(signature -> {
+            try {
+                return signature.verify();
+            } catch (PGPException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
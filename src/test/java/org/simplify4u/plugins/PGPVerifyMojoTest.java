@@ -1,14 +1,33 @@
 package org.simplify4u.plugins;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.simplify4u.plugins.TestArtifactBuilder.testArtifact;
 import static org.simplify4u.plugins.utils.ProxyUtil.makeMavenProxy;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.List;
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.settings.Proxy;
 import org.apache.maven.settings.Settings;
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentVerifierBuilderProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+import org.simplify4u.plugins.keyserver.PGPKeyNotFound;
+import org.simplify4u.plugins.keyserver.PGPKeysCache;
+import org.simplify4u.plugins.keysmap.KeysMap;
+import org.simplify4u.plugins.utils.GeneratedKeys;
 import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 /**
@@ -16,6 +35,116 @@ import org.testng.annotations.Test;
  */
 public class PGPVerifyMojoTest {
 
+    private File artifactFile;
+    private File signatureFile;
+    private Artifact artifact;
+    private Artifact ascArtifact;
+
+    private KeysMap keysMap;
+    private PGPKeysCache pgpKeysCache;
+    private PGPVerifyMojo mojo;
+
+    @BeforeMethod
+    void setup() throws Exception {
+        artifactFile = GeneratedKeys.randomFile(1024);
+        signatureFile = File.createTempFile("test-", ".asc");
+        artifact = testArtifact().build();
+        artifact.setFile(artifactFile);
+        ascArtifact = testArtifact().packaging("jar.asc").build();
+        ascArtifact.setFile(signatureFile);
+
+        keysMap = mock(KeysMap.class);
+        pgpKeysCache = mock(PGPKeysCache.class);
+
+        mojo = new PGPVerifyMojo();
+        setField(mojo, "keysMap", keysMap);
+        setField(mojo, "pgpKeysCache", pgpKeysCache);
+        setField(mojo, "verifierProvider", new BcPGPContentVerifierBuilderProvider());
+        setField(mojo, "quiet", true);
+    }
+
+    @AfterMethod
+    void cleanup() {
+        artifactFile.delete();
+        signatureFile.delete();
+    }
+
+    @Test
+    public void coSignatureByKeyNotInKeysMapIsIgnored() throws Exception {
+        BcPGPKeyPair signer = GeneratedKeys.keyPair(1024);
+        BcPGPKeyPair coSigner = GeneratedKeys.keyPair(1024);
+        writeSignatures(signer, coSigner);
+
+        givenKeyRing(signer, true);
+        givenKeyRing(coSigner, false);
+
+        Assert.assertTrue(mojo.verifyPGPSignature(artifact, ascArtifact));
+    }
+
+    @Test
+    public void coSignatureByKeyNotFoundIsIgnored() throws Exception {
+        BcPGPKeyPair signer = GeneratedKeys.keyPair(1024);
+        BcPGPKeyPair coSigner = GeneratedKeys.keyPair(1024);
+        writeSignatures(signer, coSigner);
+
+        givenKeyRing(signer, true);
+        when(pgpKeysCache.getKeyRing(coSigner.getKeyID()))
+                .thenThrow(new IOException("All servers failed", new PGPKeyNotFound()));
+
+        Assert.assertTrue(mojo.verifyPGPSignature(artifact, ascArtifact));
+    }
+
+    @Test
+    public void invalidCoSignatureByKeyInKeysMapFails() throws Exception {
+        BcPGPKeyPair signer = GeneratedKeys.keyPair(1024);
+        BcPGPKeyPair coSigner = GeneratedKeys.keyPair(1024);
+        File otherFile = GeneratedKeys.randomFile(1024);
+        try (OutputStream outputStream = Files.newOutputStream(signatureFile.toPath())) {
+            GeneratedKeys.sign(signer, HashAlgorithmTags.SHA256, artifactFile).encode(outputStream);
+            GeneratedKeys.sign(coSigner, HashAlgorithmTags.SHA256, otherFile).encode(outputStream);
+        } finally {
+            otherFile.delete();
+        }
+
+        givenKeyRing(signer, true);
+        givenKeyRing(coSigner, true);
+
+        Assert.assertFalse(mojo.verifyPGPSignature(artifact, ascArtifact));
+    }
+
+    @Test
+    public void signaturesOnlyByKeysNotInKeysMapFail() throws Exception {
+        BcPGPKeyPair signer = GeneratedKeys.keyPair(1024);
+        BcPGPKeyPair coSigner = GeneratedKeys.keyPair(1024);
+        writeSignatures(signer, coSigner);
+
+        givenKeyRing(signer, false);
+        givenKeyRing(coSigner, false);
+
+        Assert.assertFalse(mojo.verifyPGPSignature(artifact, ascArtifact));
+    }
+
+    private void writeSignatures(BcPGPKeyPair... signers) throws Exception {
+        try (OutputStream outputStream = Files.newOutputStream(signatureFile.toPath())) {
+            for (BcPGPKeyPair signer : signers) {
+                PGPSignature signature = GeneratedKeys.sign(signer, HashAlgorithmTags.SHA256, artifactFile);
+                signature.encode(outputStream);
+            }
+        }
+    }
+
+    private void givenKeyRing(BcPGPKeyPair keyPair, boolean validKey) throws Exception {
+        when(pgpKeysCache.getKeyRing(keyPair.getKeyID())).thenReturn(GeneratedKeys.keyRing(keyPair, 0));
+        when(keysMap.isValidKey(eq(artifact), argThat(key -> key.getKeyID() == keyPair.getKeyID()), any()))
+                .thenReturn(validKey);
+    }
+
+    private static void setField(Object object, String name, Object value) throws ReflectiveOperationException {
+        Field field = object.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(object, value);
+    }
+
     /**
      * test that if we set a proxy, we want to ensure that it is the right one from our config
      * @throws Exception unexcpected reflection issues etc.
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import io.vavr.control.Try;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.repository.RepositorySystem;
+import org.bouncycastle.bcpg.ArmoredOutputStream;
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+import org.bouncycastle.util.encoders.Hex;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.mockserver.configuration.ConfigurationProperties;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.Delay;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.simplify4u.plugins.keysmap.KeysMap;
+import org.simplify4u.plugins.utils.GeneratedKeys;
+import org.simplify4u.plugins.utils.PhaseMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Scale test of whole verification without network.
+ * <p>
+ * Keys, signed artifacts and keys map are generated, keys are served by local mock key server,
+ * Maven repository system is replaced by mock which returns generated files.
+ * Size and key server behavior are configured by system properties:
+ * <ul>
+ *     <li><code>pgpverify.scale.keys</code> - number of keys, default 10</li>
+ *     <li><code>pgpverify.scale.artifacts</code> - number of artifacts, default 100</li>
+ *     <li><code>pgpverify.scale.artifactSize</code> - size of each artifact in bytes, default 4096</li>
+ *     <li><code>pgpverify.scale.latency</code> - key server response latency in milliseconds, default 0</li>
+ *     <li><code>pgpverify.scale.failureRate</code> - fraction of key server requests which fail
+ *     with HTTP 502, default 0</li>
+ * </ul>
+ * For example:
+ * <pre>
+ * mvn verify -Dit.test=PGPVerifyScaleIT -Dpgpverify.scale.keys=100 -Dpgpverify.scale.artifacts=10000 \
+ *   -Dpgpverify.scale.latency=200 -Dpgpverify.scale.failureRate=0.05
+ * </pre>
+ * Wall time and throughput are logged, metrics of each run are written to <code>target/</code>.
+ */
+public class PGPVerifyScaleIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PGPVerifyScaleIT.class);
+
+    private static final int KEY_SIZE = 1024;
+    private static final String VERSION = "1.0";
+
+    private final int keys = Integer.getInteger("pgpverify.scale.keys", 10);
+    private final int artifacts = Integer.getInteger("pgpverify.scale.artifacts", 100);
+    private final int artifactSize = Integer.getInteger("pgpverify.scale.artifactSize", 4096);
+    private final int latency = Integer.getInteger("pgpverify.scale.latency", 0);
+    private final double failureRate = Double.parseDouble(System.getProperty("pgpverify.scale.failureRate", "0"));
+
+    // armored key rings by key ID and fingerprint, as they are requested from key server
+    private final Map<String, byte[]> keyServerContent = new ConcurrentHashMap<>();
+    private final Random failureRandom = new Random(0);
+
+    private final DefaultPlexusContainer container = Try.of(DefaultPlexusContainer::new).get();
+
+    private Path workDir;
+    private File repositoryDir;
+    private File cacheDir;
+    private File keysMapFile;
+    private Set<Artifact> projectArtifacts;
+    private RepositorySystem repositorySystem;
+    private ClientAndServer mockServer;
+
+    @BeforeClass
+    public void generate() throws IOException, PGPException {
+        workDir = Files.createTempDirectory("pgpverify-scale");
+        repositoryDir = Files.createDirectory(workDir.resolve("repository")).toFile();
+        cacheDir = workDir.resolve("cache").toFile();
+        keysMapFile = workDir.resolve("keysmap.list").toFile();
+
+        long start = System.nanoTime();
+        BcPGPKeyPair[] keyPairs = new BcPGPKeyPair[keys];
+        try (PrintWriter keysMap = new PrintWriter(Files.newBufferedWriter(keysMapFile.toPath(),
+                StandardCharsets.US_ASCII))) {
+            for (int i = 0; i < keys; i++) {
+                keyPairs[i] = GeneratedKeys.keyPair(KEY_SIZE);
+                PGPPublicKeyRing keyRing = GeneratedKeys.keyRing(keyPairs[i], 0);
+                byte[] fingerprint = keyRing.getPublicKey().getFingerprint();
+
+                byte[] armoredKeyRing = armored(keyRing.getEncoded());
+                keyServerContent.put(String.format("0x%016X", keyRing.getPublicKey().getKeyID()), armoredKeyRing);
+                keyServerContent.put("0x" + Hex.toHexString(fingerprint).toUpperCase(Locale.ROOT), armoredKeyRing);
+
+                keysMap.printf("%s = 0x%s%n", groupId(i), Hex.toHexString(fingerprint).toUpperCase(Locale.ROOT));
+            }
+        }
+
+        projectArtifacts = new LinkedHashSet<>();
+        for (int i = 0; i < artifacts; i++) {
+            Artifact artifact = new DefaultArtifact(groupId(i % keys), "artifact" + i, VERSION, "compile", "jar",
+                    null, new DefaultArtifactHandler("jar"));
+            File artifactFile = artifactFile(artifact, "jar");
+            Files.write(artifactFile.toPath(), GeneratedKeys.randomBytes(artifactSize));
+            byte[] signature = GeneratedKeys.sign(keyPairs[i % keys], HashAlgorithmTags.SHA256, artifactFile)
+                    .getEncoded();
+            Files.write(artifactFile(artifact, "jar.asc").toPath(), armored(signature));
+            projectArtifacts.add(artifact);
+        }
+        LOGGER.info("Generated {} keys and {} artifacts in {} ms", keys, artifacts,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        repositorySystem = mock(RepositorySystem.class, withSettings().stubOnly());
+        when(repositorySystem.createArtifactWithClassifier(anyString(), anyString(), anyString(), anyString(), any()))
+                .thenAnswer(i -> new DefaultArtifact(i.getArgument(0), i.getArgument(1), i.<String>getArgument(2),
+                        null, i.getArgument(3), i.getArgument(4), new DefaultArtifactHandler(i.getArgument(3))));
+        when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer(i -> {
+            Artifact artifact = i.<ArtifactResolutionRequest>getArgument(0).getArtifact();
+            artifact.setFile(artifactFile(artifact, artifact.getArtifactHandler().getExtension()));
+            artifact.setResolved(true);
+            return new ArtifactResolutionResult();
+        });
+
+        ConfigurationProperties.disableSystemOut(true);
+        ConfigurationProperties.logLevel("WARNING");
+        mockServer = ClientAndServer.startClientAndServer(0);
+        mockServer.when(request().withPath("/pks/lookup"))
+                .respond(this::keyServerResponse, Delay.milliseconds(latency));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void cleanup() throws IOException {
+        if (mockServer != null) {
+            mockServer.stop();
+        }
+        container.dispose();
+        MoreFiles.deleteRecursively(workDir, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void verifyWithColdCache() throws Exception {
+        PhaseMetrics metrics = verify("cold");
+
+        assertThat(metrics.getCounter(PhaseMetrics.ARTIFACTS)).isEqualTo(artifacts);
+        assertThat(metrics.getCounter(PhaseMetrics.BYTES_HASHED)).isEqualTo((long) artifacts * artifactSize);
+        assertThat(metrics.getCounter(PhaseMetrics.KEYS_CACHE_MISSES)).isEqualTo(Math.min(keys, artifacts));
+    }
+
+    @Test(dependsOnMethods = "verifyWithColdCache")
+    public void verifyWithWarmCache() throws Exception {
+        PhaseMetrics metrics = verify("warm");
+
+        assertThat(metrics.getCounter(PhaseMetrics.ARTIFACTS)).isEqualTo(artifacts);
+        assertThat(metrics.getCounter(PhaseMetrics.KEYS_CACHE_MISSES)).isZero();
+        assertThat(metrics.getCounter(PhaseMetrics.KEYSERVER_REQUESTS)).isZero();
+    }
+
+    private PhaseMetrics verify(String name) throws Exception {
+        MavenProject project = mock(MavenProject.class);
+        when(project.getArtifacts()).thenReturn(projectArtifacts);
+
+        PGPVerifyMojo mojo = new PGPVerifyMojo();
+        mojo.setLog(new DefaultLog(new ConsoleLogger(org.codehaus.plexus.logging.Logger.LEVEL_WARN, "pgpverify")));
+        setField(mojo, "project", project);
+        setField(mojo, "repositorySystem", repositorySystem);
+        setField(mojo, "localRepository", mock(ArtifactRepository.class));
+        setField(mojo, "remoteRepositories", Collections.emptyList());
+        setField(mojo, "keysMap", container.lookup(KeysMap.class));
+        setField(mojo, "keysMapLocation", keysMapFile.getAbsolutePath());
+        setField(mojo, "pgpKeysCachePath", cacheDir);
+        setField(mojo, "pgpKeyServer", "http://localhost:" + mockServer.getLocalPort());
+        setField(mojo, "scope", "test");
+        setField(mojo, "contentVerifier", "bc");
+        setField(mojo, "quiet", true);
+        // reactor is not available, nothing to skip
+        setField(mojo, "verifyReactorDependencies", true);
+        setField(mojo, "metricsFile", new File("target/pgpverify-scale-" + name + ".json"));
+
+        long start = System.nanoTime();
+        mojo.execute();
+        Duration wallTime = Duration.ofNanos(System.nanoTime() - start);
+
+        PhaseMetrics metrics = (PhaseMetrics) getField(mojo, "metrics");
+        double seconds = wallTime.toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+        LOGGER.info(String.format(Locale.ROOT, "Scale %s cache - keys: %d, artifacts: %d, latency: %d ms, "
+                        + "failure rate: %.2f - wall time: %d ms, %.1f artifacts/s, %.1f MiB/s, "
+                        + "key server requests: %d, retries: %d",
+                name, keys, artifacts, latency, failureRate, wallTime.toMillis(), artifacts / seconds,
+                metrics.getCounter(PhaseMetrics.BYTES_HASHED) / seconds / (1024 * 1024),
+                metrics.getCounter(PhaseMetrics.KEYSERVER_REQUESTS),
+                metrics.getCounter(PhaseMetrics.KEYSERVER_RETRIES)));
+        return metrics;
+    }
+
+    private HttpResponse keyServerResponse(HttpRequest httpRequest) {
+        synchronized (failureRandom) {
+            if (failureRandom.nextDouble() < failureRate) {
+                return response().withStatusCode(502);
+            }
+        }
+
+        byte[] content = keyServerContent.get(httpRequest.getFirstQueryStringParameter("search"));
+        if (content == null) {
+            return response().withStatusCode(404);
+        }
+        return response().withStatusCode(200).withBody(content);
+    }
+
+    private File artifactFile(Artifact artifact, String extension) {
+        return new File(repositoryDir, artifact.getArtifactId() + '-' + artifact.getVersion() + '.' + extension);
+    }
+
+    private static String groupId(int keyIndex) {
+        return "org.example.scale" + keyIndex;
+    }
+
+    private static byte[] armored(byte[] content) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ArmoredOutputStream armoredOutputStream = new ArmoredOutputStream(outputStream)) {
+            armoredOutputStream.write(content);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static void setField(Object object, String name, Object value) throws ReflectiveOperationException {
+        Field field = object.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(object, value);
+    }
+
+    private static Object getField(Object object, String name) throws ReflectiveOperationException {
+        Field field = object.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(object);
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.repository.RepositorySystem;
+import org.mockito.stubbing.Answer;
+import org.simplify4u.plugins.ArtifactResolver.ProjectArtifact;
+import org.simplify4u.plugins.ArtifactResolver.SignatureRequirement;
+import org.testng.annotations.Test;
+
+public class SignatureVerificationPipelineTest {
+
+    private static ArtifactResolver resolverWithSignatures(boolean resolved) {
+        final RepositorySystem repositorySystem = mock(RepositorySystem.class);
+        when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer((Answer<ArtifactResolutionResult>) invocation -> {
+            final Artifact artifact = invocation.<ArtifactResolutionRequest>getArgument(0).getArtifact();
+            // project artifacts are always resolved, only signatures can be missing
+            final boolean isResolved = resolved || !"mock-signature-artifact".equals(artifact.getType());
+            artifact.setResolved(isResolved);
+            final ArtifactResolutionResult result = new ArtifactResolutionResult();
+            if (!isResolved) {
+                result.setUnresolvedArtifacts(singletonList(artifact));
+            }
+            return result;
+        });
+        when(repositorySystem.createArtifactWithClassifier(anyString(), anyString(), anyString(), anyString(), any()))
+                .thenAnswer(i -> new DefaultArtifact(i.<String>getArgument(0), i.getArgument(1),
+                        i.<String>getArgument(2), "compile", "mock-signature-artifact", null, new DefaultArtifactHandler()));
+        return new ArtifactResolver(mock(Log.class), repositorySystem, mock(ArtifactRepository.class), emptyList());
+    }
+
+    private static List<Artifact> artifacts(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new DefaultArtifact("g", "a" + i, "1.0", "compile", "jar", null,
+                        new DefaultArtifactHandler()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<ProjectArtifact> projectArtifacts(List<Artifact> artifacts) {
+        return artifacts.stream()
+                .map(artifact -> new ProjectArtifact(artifact, true))
+                .collect(Collectors.toList());
+    }
+
+    private static List<ProjectArtifact> projectArtifacts(int count) {
+        return projectArtifacts(artifacts(count));
+    }
+
+    @Test
+    public void invalidQueueCapacityThrowsException() {
+        ArtifactResolver resolver = resolverWithSignatures(true);
+        assertThatCode(() -> new SignatureVerificationPipeline(resolver, 0))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void invalidResolveThreadsThrowsException() {
+        ArtifactResolver resolver = resolverWithSignatures(true);
+        assertThatCode(() -> new SignatureVerificationPipeline(resolver, 1, 0))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void allArtifactsAreVerifiedInOrder() throws MojoExecutionException, MojoFailureException {
+
+        List<Artifact> artifacts = artifacts(100);
+        List<Artifact> verified = new ArrayList<>();
+
+        SignatureVerificationPipeline pipeline = new SignatureVerificationPipeline(resolverWithSignatures(true), 2);
+        boolean result = pipeline.process(projectArtifacts(artifacts), SignatureRequirement.NONE, (artifact, ascArtifact) -> {
+            assertThat(ascArtifact).isNotNull();
+            assertThat(ascArtifact.getArtifactId()).isEqualTo(artifact.getArtifactId());
+            verified.add(artifact);
+            return true;
+        });
+
+        assertThat(result).isTrue();
+        assertThat(verified).containsExactlyElementsOf(artifacts);
+    }
+
+    @Test
+    public void failedVerificationIsReported() throws MojoExecutionException, MojoFailureException {
+
+        List<Artifact> artifacts = artifacts(10);
+        List<Artifact> verified = new ArrayList<>();
+
+        SignatureVerificationPipeline pipeline = new SignatureVerificationPipeline(resolverWithSignatures(true), 2);
+        boolean result = pipeline.process(projectArtifacts(artifacts), SignatureRequirement.NONE, (artifact, ascArtifact) -> {
+            verified.add(artifact);
+            return !"a3".equals(artifact.getArtifactId());
+        });
+
+        assertThat(result).isFalse();
+        // all artifacts should be verified in order to report all problems
+        assertThat(verified).containsExactlyElementsOf(artifacts);
+    }
+
+    @Test
+    public void missingSignaturesAreSkippedForNoneRequirement() throws MojoExecutionException, MojoFailureException {
+
+        List<Artifact> verified = new ArrayList<>();
+
+        SignatureVerificationPipeline pipeline = new SignatureVerificationPipeline(resolverWithSignatures(false), 2);
+        boolean result = pipeline.process(projectArtifacts(5), SignatureRequirement.NONE, (artifact, ascArtifact) -> {
+            verified.add(artifact);
+            return true;
+        });
+
+        assertThat(result).isTrue();
+        assertThat(verified).isEmpty();
+    }
+
+    @Test
+    public void missingSignaturesArePassedForStrictRequirement() throws MojoExecutionException, MojoFailureException {
+
+        List<Artifact> artifacts = artifacts(5);
+        List<Artifact> verified = new ArrayList<>();
+
+        SignatureVerificationPipeline pipeline = new SignatureVerificationPipeline(resolverWithSignatures(false), 2);
+        boolean result = pipeline.process(projectArtifacts(artifacts), SignatureRequirement.STRICT, (artifact, ascArtifact) -> {
+            assertThat(ascArtifact).isNull();
+            verified.add(artifact);
+            return true;
+        });
+
+        assertThat(result).isTrue();
+        assertThat(verified).containsExactlyElementsOf(artifacts);
+    }
+
+    @Test
+    public void missingSignatureForRequiredThrowsException() {
+
+        SignatureVerificationPipeline pipeline = new SignatureVerificationPipeline(resolverWithSignatures(false), 2);
+
+        assertThatCode(() -> pipeline.process(projectArtifacts(5), SignatureRequirement.REQUIRED, (artifact, asc) -> true))
+                .isExactlyInstanceOf(MojoExecutionException.class)
+                .hasMessage("No signature for g:a0:jar:1.0");
+    }
+
+    @Test
+    public void verificationFailureStopsPipeline() {
+
+        SignatureVerificationPipeline pipeline = new SignatureVerificationPipeline(resolverWithSignatures(true), 1);
+
+        assertThatCode(() -> pipeline.process(projectArtifacts(100), SignatureRequirement.NONE, (artifact, asc) -> {
+            throw new MojoFailureException("test failure");
+        }))
+                .isExactlyInstanceOf(MojoFailureException.class)
+                .hasMessage("test failure");
+    }
+
+    @Test
+    public void verificationFailureReleasesResolverThread() throws InterruptedException {
+
+        SignatureVerificationPipeline pipeline = new SignatureVerificationPipeline(resolverWithSignatures(true), 1);
+
+        assertThatCode(() -> pipeline.process(projectArtifacts(100), SignatureRequirement.NONE, (artifact, asc) -> {
+            throw new MojoFailureException("test failure");
+        })).isExactlyInstanceOf(MojoFailureException.class);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (resolverThreadAlive() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(resolverThreadAlive()).isFalse();
+    }
+
+    @Test
+    public void verificationStartsBeforeAllArtifactsAreResolved() throws MojoExecutionException, MojoFailureException {
+
+        CountDownLatch firstVerified = new CountDownLatch(1);
+        RepositorySystem repositorySystem = mock(RepositorySystem.class);
+        when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer((Answer<ArtifactResolutionResult>) invocation -> {
+            final Artifact artifact = invocation.<ArtifactResolutionRequest>getArgument(0).getArtifact();
+            if ("a9".equals(artifact.getArtifactId()) && "jar".equals(artifact.getType())) {
+                // last artifact is resolved only after verification of first one
+                assertThat(firstVerified.await(5, TimeUnit.SECONDS)).isTrue();
+            }
+            artifact.setResolved(true);
+            return new ArtifactResolutionResult();
+        });
+        when(repositorySystem.createArtifactWithClassifier(anyString(), anyString(), anyString(), anyString(), any()))
+                .thenAnswer(i -> new DefaultArtifact(i.<String>getArgument(0), i.getArgument(1),
+                        i.<String>getArgument(2), "compile", "mock-signature-artifact", null, new DefaultArtifactHandler()));
+        ArtifactResolver resolver = new ArtifactResolver(mock(Log.class), repositorySystem,
+                mock(ArtifactRepository.class), emptyList());
+
+        List<Artifact> artifacts = artifacts(10);
+        List<Artifact> verified = new ArrayList<>();
+
+        SignatureVerificationPipeline pipeline = new SignatureVerificationPipeline(resolver, 32, 2);
+        boolean result = pipeline.process(projectArtifacts(artifacts), SignatureRequirement.NONE, (artifact, asc) -> {
+            verified.add(artifact);
+            firstVerified.countDown();
+            return true;
+        });
+
+        assertThat(result).isTrue();
+        assertThat(verified).containsExactlyElementsOf(artifacts);
+    }
+
+    @Test
+    public void unresolvedOptionalArtifactIsSkipped() throws MojoExecutionException, MojoFailureException {
+
+        RepositorySystem repositorySystem = mock(RepositorySystem.class);
+        when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenAnswer((Answer<ArtifactResolutionResult>) invocation -> {
+            final Artifact artifact = invocation.<ArtifactResolutionRequest>getArgument(0).getArtifact();
+            artifact.setResolved(!"pom".equals(artifact.getType()));
+            return new ArtifactResolutionResult();
+        });
+        when(repositorySystem.createArtifactWithClassifier(anyString(), anyString(), anyString(), anyString(), any()))
+                .thenAnswer(i -> new DefaultArtifact(i.<String>getArgument(0), i.getArgument(1),
+                        i.<String>getArgument(2), "compile", "mock-signature-artifact", null, new DefaultArtifactHandler()));
+        ArtifactResolver resolver = new ArtifactResolver(mock(Log.class), repositorySystem,
+                mock(ArtifactRepository.class), emptyList());
+
+        Artifact artifact = new DefaultArtifact("g", "a", "1.0", "compile", "jar", null, new DefaultArtifactHandler());
+        Artifact pom = new DefaultArtifact("g", "a", "1.0", null, "pom", null, new DefaultArtifactHandler());
+        List<Artifact> verified = new ArrayList<>();
+
+        SignatureVerificationPipeline pipeline = new SignatureVerificationPipeline(resolver, 2);
+        boolean result = pipeline.process(
+                Arrays.asList(new ProjectArtifact(artifact, true), new ProjectArtifact(pom, false)),
+                SignatureRequirement.NONE, (a, asc) -> verified.add(a));
+
+        assertThat(result).isTrue();
+        assertThat(verified).containsExactly(artifact);
+    }
+
+    @Test
+    public void unresolvedRequiredArtifactThrowsException() {
+
+        RepositorySystem repositorySystem = mock(RepositorySystem.class);
+        when(repositorySystem.resolve(isA(ArtifactResolutionRequest.class))).thenReturn(new ArtifactResolutionResult());
+        ArtifactResolver resolver = new ArtifactResolver(mock(Log.class), repositorySystem,
+                mock(ArtifactRepository.class), emptyList());
+
+        SignatureVerificationPipeline pipeline = new SignatureVerificationPipeline(resolver, 2);
+
+        assertThatCode(() -> pipeline.process(projectArtifacts(3), SignatureRequirement.NONE, (artifact, asc) -> true))
+                .isExactlyInstanceOf(MojoExecutionException.class)
+                .hasMessageStartingWith("Failed to resolve artifact: g:a0:jar:1.0");
+    }
+
+    private static boolean resolverThreadAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(t -> "pgpverify-artifact-resolver".equals(t.getName()) && t.isAlive());
+    }
+}
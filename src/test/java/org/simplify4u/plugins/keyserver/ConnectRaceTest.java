@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ConnectRaceTest {
+
+    private ServerSocket serverSocket;
+    private InetAddress listening;
+    private InetAddress refusing;
+    private ConnectRace connectRace;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        listening = InetAddress.getByAddress(new byte[]{127, 0, 0, 1});
+        refusing = InetAddress.getByAddress(new byte[]{127, 0, 0, 2});
+        serverSocket = new ServerSocket(0, 10, listening);
+        connectRace = new ConnectRace(KeyServerExecutors.shared().getIoExecutor(), Duration.ofMillis(250), 1000);
+    }
+
+    @AfterMethod
+    public void cleanup() throws IOException {
+        serverSocket.close();
+    }
+
+    @Test
+    public void firstReachableAddressWins() {
+        List<InetAddress> failed = new ArrayList<>();
+
+        assertThat(connectRace.firstReachable(Arrays.asList(refusing, listening), serverSocket.getLocalPort(),
+                failed::add)).contains(listening);
+
+        assertThat(failed).containsExactly(refusing);
+    }
+
+    @Test
+    public void noReachableAddress() throws IOException {
+        int port = serverSocket.getLocalPort();
+        serverSocket.close();
+
+        List<InetAddress> failed = new ArrayList<>();
+
+        assertThat(connectRace.firstReachable(Arrays.asList(refusing, listening), port, failed::add)).isEmpty();
+        assertThat(failed).containsExactlyInAnyOrder(refusing, listening);
+    }
+
+    @Test
+    public void winnerIsReusedByNextPlaners() throws IOException, HttpException {
+        InetAddress secondListening = InetAddress.getByAddress(new byte[]{127, 0, 0, 3});
+        try (ServerSocket secondSocket = new ServerSocket(serverSocket.getLocalPort(), 10, secondListening)) {
+
+            HostAddressCache addressCache = new HostAddressCache(
+                    hostName -> new InetAddress[]{listening, secondListening},
+                    HostAddressCache.DEFAULT_RESOLVE_TTL, HostAddressCache.DEFAULT_FAILED_TTL, System::nanoTime);
+
+            AtomicInteger attempts = new AtomicInteger();
+            ConnectRace countingRace = new ConnectRace(command -> {
+                attempts.incrementAndGet();
+                KeyServerExecutors.shared().getIoExecutor().execute(command);
+            }, Duration.ofMillis(250), 1000);
+
+            HttpHost httpHost = new HttpHost("keyserver.example.com", serverSocket.getLocalPort());
+            for (int i = 0; i < 3; i++) {
+                // each key - new planer
+                RoundRobinRouterPlaner planer = new RoundRobinRouterPlaner(addressCache, countingRace);
+                assertThat(planer.determineRoute(httpHost, null, null).getTargetHost().getAddress())
+                        .isEqualTo(listening);
+            }
+
+            assertThat(attempts).hasValue(1);
+        }
+    }
+
+    @Test
+    public void addressFamiliesAreInterleaved() throws IOException {
+        InetAddress v4a = InetAddress.getByAddress(new byte[]{10, 0, 0, 1});
+        InetAddress v4b = InetAddress.getByAddress(new byte[]{10, 0, 0, 2});
+        InetAddress v4c = InetAddress.getByAddress(new byte[]{10, 0, 0, 3});
+        InetAddress v6a = InetAddress.getByName("2001:db8::1");
+        InetAddress v6b = InetAddress.getByName("2001:db8::2");
+
+        assertThat(ConnectRace.interleaveFamilies(Arrays.asList(v6a, v6b, v4a, v4b, v4c)))
+                .containsExactly(v6a, v4a, v6b, v4b, v4c);
+        assertThat(ConnectRace.interleaveFamilies(Arrays.asList(v4a, v4b, v6a)))
+                .containsExactly(v4a, v6a, v4b);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class HostAddressCacheTest {
+
+    private static final String TEST_HOST = "keyserver.example.com";
+
+    private AtomicLong clock;
+    private AtomicInteger resolveCount;
+    private InetAddress address1;
+    private InetAddress address2;
+    private HostAddressCache addressCache;
+
+    @BeforeMethod
+    public void setup() throws UnknownHostException {
+        clock = new AtomicLong();
+        resolveCount = new AtomicInteger();
+        address1 = InetAddress.getByAddress(TEST_HOST, new byte[]{10, 0, 0, 1});
+        address2 = InetAddress.getByAddress(TEST_HOST, new byte[]{10, 0, 0, 2});
+
+        addressCache = new HostAddressCache(hostName -> {
+            if (!TEST_HOST.equals(hostName)) {
+                throw new UnknownHostException(hostName);
+            }
+            resolveCount.incrementAndGet();
+            return new InetAddress[]{address1, address2};
+        }, Duration.ofSeconds(60), Duration.ofSeconds(120), clock::get);
+    }
+
+    @Test
+    public void resolvedAddressesAreCachedForTtl() throws UnknownHostException {
+
+        assertThat(addressCache.resolve(TEST_HOST)).containsExactly(address1, address2);
+        assertThat(addressCache.resolve(TEST_HOST)).containsExactly(address1, address2);
+        assertThat(resolveCount).hasValue(1);
+
+        clock.addAndGet(Duration.ofSeconds(60).toNanos());
+
+        assertThat(addressCache.resolve(TEST_HOST)).containsExactly(address1, address2);
+        assertThat(resolveCount).hasValue(2);
+    }
+
+    @Test
+    public void unknownHostThrowsException() {
+        assertThatCode(() -> addressCache.resolve("unknown.example.com"))
+                .isExactlyInstanceOf(UnknownHostException.class);
+    }
+
+    @Test
+    public void failedAddressExpires() {
+
+        addressCache.markFailed(address1);
+        assertThat(addressCache.isFailed(address1)).isTrue();
+        assertThat(addressCache.isFailed(address2)).isFalse();
+
+        clock.addAndGet(Duration.ofSeconds(120).toNanos());
+
+        assertThat(addressCache.isFailed(address1)).isFalse();
+    }
+
+    @Test
+    public void failedAddressIsSharedByPlaners() throws HttpException {
+
+        HttpHost httpHost = new HttpHost(TEST_HOST);
+
+        RoundRobinRouterPlaner planer1 = new RoundRobinRouterPlaner(addressCache, null);
+        assertThat(planer1.determineRoute(httpHost, null, null).getTargetHost().getAddress()).isEqualTo(address1);
+        planer1.lastRouteCauseError();
+
+        // next key - new planer
+        RoundRobinRouterPlaner planer2 = new RoundRobinRouterPlaner(addressCache, null);
+        assertThat(planer2.determineRoute(httpHost, null, null).getTargetHost().getAddress()).isEqualTo(address2);
+        planer2.lastRouteCauseError();
+
+        // all addresses failed - start again
+        assertThat(planer2.determineRoute(httpHost, null, null).getTargetHost().getAddress()).isEqualTo(address1);
+
+        assertThat(resolveCount).hasValue(1);
+    }
+
+    @Test
+    public void reachableAddressExpiresOrFails() {
+
+        assertThat(addressCache.getReachable(TEST_HOST)).isEmpty();
+
+        addressCache.markReachable(TEST_HOST, address2);
+        assertThat(addressCache.getReachable(TEST_HOST)).contains(address2);
+
+        clock.addAndGet(Duration.ofSeconds(60).toNanos());
+        assertThat(addressCache.getReachable(TEST_HOST)).isEmpty();
+
+        addressCache.markReachable(TEST_HOST, address2);
+        addressCache.markFailed(address2);
+        assertThat(addressCache.getReachable(TEST_HOST)).isEmpty();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.testng.annotations.Test;
+
+public class KeyServerBudgetTest {
+
+    private final AtomicLong nanoClock = new AtomicLong();
+
+    @Test
+    public void unlimitedBudgetIsNeverExhausted() {
+        KeyServerBudget budget = KeyServerBudget.unlimited();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(budget.isRetryPermitted()).isTrue();
+            budget.onRetry();
+        }
+
+        assertThat(budget.isExhausted()).isFalse();
+        assertThat(budget.tryRequest()).isTrue();
+    }
+
+    @Test
+    public void retriesBudgetIsExhausted() {
+        KeyServerBudget budget = new KeyServerBudget(2, Duration.ZERO, nanoClock::get);
+
+        assertThat(budget.isRetryPermitted()).isTrue();
+        budget.onRetry();
+        assertThat(budget.isRetryPermitted()).isTrue();
+        budget.onRetry();
+
+        assertThat(budget.isRetryPermitted()).isFalse();
+        assertThat(budget.isExhausted()).isTrue();
+        assertThat(budget.tryRequest()).isFalse();
+
+        assertThat(budget).hasToString("requests: 0, retries: 2 of 2, time: 0 ms, not retried: 1, skipped requests: 1");
+    }
+
+    @Test
+    public void concurrentRequestsTimeIsCountedOnce() {
+        KeyServerBudget budget = new KeyServerBudget(0, Duration.ofSeconds(10), nanoClock::get);
+
+        budget.requestStarted();
+        nanoClock.addAndGet(Duration.ofSeconds(2).toNanos());
+        budget.requestStarted();
+        nanoClock.addAndGet(Duration.ofSeconds(3).toNanos());
+        budget.requestFinished();
+        nanoClock.addAndGet(Duration.ofSeconds(1).toNanos());
+        budget.requestFinished();
+
+        // time without requests is not counted
+        nanoClock.addAndGet(Duration.ofSeconds(100).toNanos());
+
+        assertThat(budget.getBusyTime()).isEqualTo(Duration.ofSeconds(6));
+        assertThat(budget.isExhausted()).isFalse();
+    }
+
+    @Test
+    public void timeBudgetIsExhaustedDuringRequest() {
+        KeyServerBudget budget = new KeyServerBudget(0, Duration.ofSeconds(10), nanoClock::get);
+
+        budget.requestStarted();
+        nanoClock.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertThat(budget.isRetryPermitted()).isTrue();
+
+        nanoClock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(budget.isRetryPermitted()).isFalse();
+        budget.requestFinished();
+
+        assertThat(budget.tryRequest()).isFalse();
+        assertThat(budget).hasToString("requests: 1, retries: 0, time: 10000 ms of 10000 ms, "
+                + "not retried: 1, skipped requests: 1");
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicStatusLine;
+import org.simplify4u.plugins.keyserver.PGPKeysCache.KeyServerList;
+import org.simplify4u.plugins.keyserver.PGPKeysCache.KeyServerListFallback;
+import org.simplify4u.plugins.keyserver.PGPKeysCache.KeyServerListOne;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class KeyServerCircuitBreakerTest {
+
+    private static final Duration INTERVAL = Duration.ofMinutes(10);
+    private static final Instant NOW = Instant.parse("2020-06-01T10:00:00Z");
+
+    private Path cachePath;
+    private PGPKeysServerClient client1;
+    private PGPKeysServerClient client2;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        cachePath = Files.createTempDirectory("cache-path-test");
+        client1 = client("https://keyserver1.example.com");
+        client2 = client("https://keyserver2.example.com");
+    }
+
+    @AfterMethod
+    public void cleanup() throws IOException {
+        MoreFiles.deleteRecursively(cachePath, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    private static PGPKeysServerClient client(String uri) {
+        PGPKeysServerClient client = mock(PGPKeysServerClient.class);
+        when(client.getKeyserver()).thenReturn(URI.create(uri));
+        return client;
+    }
+
+    private KeyServerCircuitBreaker circuitBreaker(Instant now) {
+        return new KeyServerCircuitBreaker(cachePath, INTERVAL, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void closedCircuitPermitCall() {
+        assertThat(circuitBreaker(NOW).isCallPermitted(client1)).isTrue();
+    }
+
+    @Test
+    public void failureOpenCircuitForInterval() {
+        circuitBreaker(NOW).onFailure(client1);
+
+        // new instance - like next module or next build
+        KeyServerCircuitBreaker circuitBreaker = circuitBreaker(NOW.plusSeconds(60));
+        assertThat(circuitBreaker.isCallPermitted(client1)).isFalse();
+        assertThat(circuitBreaker.isCallPermitted(client2)).isTrue();
+        assertThat(circuitBreaker.readOpenUntil(client1)).contains(NOW.plus(INTERVAL));
+    }
+
+    @Test
+    public void probeIsPermittedAfterInterval() {
+        circuitBreaker(NOW).onFailure(client1);
+
+        KeyServerCircuitBreaker circuitBreaker = circuitBreaker(NOW.plus(INTERVAL));
+        assertThat(circuitBreaker.isCallPermitted(client1)).isTrue();
+
+        circuitBreaker.onSuccess(client1);
+        assertThat(circuitBreaker.readOpenUntil(client1)).isEmpty();
+    }
+
+    @Test
+    public void onlyOneProbeIsPermittedAfterInterval() {
+        circuitBreaker(NOW).onFailure(client1);
+
+        KeyServerCircuitBreaker circuitBreaker = circuitBreaker(NOW.plus(INTERVAL));
+        assertThat(circuitBreaker.isCallPermitted(client1)).isTrue();
+        verify(client1).setProbing(true);
+
+        // other requests and other processes wait for result of probe
+        assertThat(circuitBreaker.isCallPermitted(client1)).isFalse();
+        assertThat(circuitBreaker(NOW.plus(INTERVAL).plusSeconds(1)).isCallPermitted(client1)).isFalse();
+        verify(client1, times(1)).setProbing(true);
+    }
+
+    @Test
+    public void failedProbeOpensCircuitAgain() {
+        circuitBreaker(NOW).onFailure(client1);
+        clearInvocations(client1);
+
+        Instant probeTime = NOW.plus(INTERVAL).plusSeconds(1);
+        KeyServerCircuitBreaker circuitBreaker = circuitBreaker(probeTime);
+        assertThat(circuitBreaker.isCallPermitted(client1)).isTrue();
+
+        circuitBreaker.onResult(client1, new SocketTimeoutException());
+
+        verify(client1).setProbing(false);
+        assertThat(circuitBreaker.readOpenUntil(client1)).contains(probeTime.plus(INTERVAL));
+        assertThat(circuitBreaker.isCallPermitted(client1)).isFalse();
+    }
+
+    @Test
+    public void brokenStateIsIgnored() throws IOException {
+        circuitBreaker(NOW).onFailure(client1);
+        try (Stream<Path> files = Files.list(cachePath.resolve("keyservers-state"))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.write(file, Collections.singletonList("openUntil=broken"));
+            }
+        }
+
+        assertThat(circuitBreaker(NOW).isCallPermitted(client1)).isTrue();
+    }
+
+    @Test
+    public void openServerIsSkippedByList() throws IOException {
+        doThrow(new IOException("Circuit breaker test")).when(client1).copyKeyToOutputStream(1, null, null);
+
+        KeyServerList keyServerList = new KeyServerListFallback()
+                .withClients(Arrays.asList(client1, client2))
+                .withCircuitBreaker(circuitBreaker(NOW));
+
+        for (int i = 0; i < 3; i++) {
+            keyServerList.execute(client -> client.copyKeyToOutputStream(1, null, null));
+        }
+
+        verify(client1, times(1)).copyKeyToOutputStream(1, null, null);
+        verify(client2, times(3)).copyKeyToOutputStream(1, null, null);
+    }
+
+    @Test
+    public void keyNotFoundNotOpenCircuit() throws IOException {
+        doThrow(new PGPKeyNotFound()).when(client1).copyKeyToOutputStream(1, null, null);
+
+        KeyServerCircuitBreaker circuitBreaker = circuitBreaker(NOW);
+        KeyServerList keyServerList = new KeyServerListOne()
+                .withClients(Collections.singletonList(client1))
+                .withCircuitBreaker(circuitBreaker);
+
+        assertThatCode(() -> keyServerList.execute(client -> client.copyKeyToOutputStream(1, null, null)))
+                .isExactlyInstanceOf(PGPKeyNotFound.class);
+
+        assertThat(circuitBreaker.isCallPermitted(client1)).isTrue();
+    }
+
+    @Test
+    public void openServerThrowsExceptionForOneItemList() throws IOException {
+        circuitBreaker(NOW).onFailure(client1);
+
+        KeyServerList keyServerList = new KeyServerListOne()
+                .withClients(Collections.singletonList(client1))
+                .withCircuitBreaker(circuitBreaker(NOW));
+
+        assertThatCode(() -> keyServerList.execute(client -> client.copyKeyToOutputStream(1, null, null)))
+                .isExactlyInstanceOf(IOException.class)
+                .hasMessageContaining("failed recently");
+
+        verify(client1, never()).copyKeyToOutputStream(1, null, null);
+    }
+
+    @Test
+    public void invalidKeyNotOpenCircuit() throws IOException {
+        doThrow(new PGPKeyInvalid("Invalid key received", new IOException())).when(client1)
+                .copyKeyToOutputStream(1, null, null);
+
+        KeyServerCircuitBreaker circuitBreaker = circuitBreaker(NOW);
+        KeyServerList keyServerList = new KeyServerListOne()
+                .withClients(Collections.singletonList(client1))
+                .withCircuitBreaker(circuitBreaker);
+
+        assertThatCode(() -> keyServerList.execute(client -> client.copyKeyToOutputStream(1, null, null)))
+                .isExactlyInstanceOf(PGPKeyInvalid.class);
+
+        assertThat(circuitBreaker.isCallPermitted(client1)).isTrue();
+    }
+
+    @Test
+    public void onlyTransportErrorsAndOverloadAreServerFailures() {
+        assertThat(KeyServerCircuitBreaker.isServerFailure(new SocketTimeoutException())).isTrue();
+        assertThat(KeyServerCircuitBreaker.isServerFailure(new IOException("for: uri", new ConnectException())))
+                .isTrue();
+        assertThat(KeyServerCircuitBreaker.isServerFailure(statusException(503))).isTrue();
+        assertThat(KeyServerCircuitBreaker.isServerFailure(new IOException("for: uri", statusException(429))))
+                .isTrue();
+
+        assertThat(KeyServerCircuitBreaker.isServerFailure(statusException(400))).isFalse();
+        assertThat(KeyServerCircuitBreaker.isServerFailure(new PGPKeyNotFound())).isFalse();
+        assertThat(KeyServerCircuitBreaker.isServerFailure(new PGPKeyInvalid("invalid", null))).isFalse();
+        assertThat(KeyServerCircuitBreaker.isServerFailure(new IllegalStateException())).isFalse();
+    }
+
+    @Test
+    public void asyncRequestsAreRecorded() throws IOException {
+        PGPKeysServerClient client = client("https://keyserver1.example.com");
+        CompletableFuture<byte[]> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IOException("for: uri", statusException(502)));
+        doReturn(failed).when(client).getKeyAsync(any(byte[].class), any(), any());
+
+        KeyServerCircuitBreaker circuitBreaker = circuitBreaker(NOW);
+        PGPKeysCache keysCache = new PGPKeysCache(cachePath.toFile(), Collections.singletonList(client), false)
+                .withCircuitBreaker(circuitBreaker);
+
+        keysCache.prefetchKeys(Collections.singletonList(new byte[20])).join();
+        assertThat(circuitBreaker.isCallPermitted(client)).isFalse();
+
+        // next prefetch skips open server
+        keysCache.prefetchKeys(Collections.singletonList(new byte[20])).join();
+        verify(client, times(1)).getKeyAsync(any(byte[].class), any(), any());
+    }
+
+    private static KeyServerStatusException statusException(int code) {
+        return new KeyServerStatusException(new BasicStatusLine(HttpVersion.HTTP_1_1, code, "test"));
+    }
+}
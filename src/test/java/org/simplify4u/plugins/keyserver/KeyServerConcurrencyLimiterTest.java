@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import org.simplify4u.plugins.keyserver.KeyServerConcurrencyLimiter.Outcome;
+import org.simplify4u.plugins.keyserver.KeyServerConcurrencyLimiter.Permit;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class KeyServerConcurrencyLimiterTest {
+
+    private static final long LATENCY = 100_000_000L;
+
+    private AtomicLong nanoClock;
+    private KeyServerConcurrencyLimiter limiter;
+
+    @BeforeMethod
+    public void setup() {
+        nanoClock = new AtomicLong();
+        limiter = new KeyServerConcurrencyLimiter("test", 2, 4, nanoClock::get);
+    }
+
+    @Test
+    public void requestsOverLimitWait() {
+
+        CompletableFuture<Permit> permit1 = limiter.acquire();
+        CompletableFuture<Permit> permit2 = limiter.acquire();
+        CompletableFuture<Permit> permit3 = limiter.acquire();
+
+        assertThat(permit1).isCompleted();
+        assertThat(permit2).isCompleted();
+        assertThat(permit3).isNotDone();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+
+        permit1.join().release(Outcome.IGNORED);
+
+        assertThat(permit3).isCompleted();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    public void synchronousAcquireWaitsLimitedTime() throws InterruptedIOException {
+
+        Permit permit1 = limiter.acquire(10);
+        limiter.acquire(10);
+
+        assertThatCode(() -> limiter.acquire(10))
+                .isExactlyInstanceOf(InterruptedIOException.class)
+                .hasMessage("No permit for request to test in 10 ms");
+
+        // request which gave up waiting does not get permit
+        permit1.release(Outcome.IGNORED);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    public void permitReleasedTwiceIsReleasedOnce() {
+
+        Permit permit = limiter.acquire().join();
+        limiter.acquire().join();
+
+        permit.release(Outcome.IGNORED);
+        permit.release(Outcome.IGNORED);
+
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    public void limitGrowsWithFlatLatency() {
+
+        for (int i = 0; i < 10; i++) {
+            runFullWindow(LATENCY);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    public void limitNotGrowsWithIncreasingLatency() {
+
+        runFullWindow(LATENCY);
+        int limit = limiter.getLimit();
+
+        for (int i = 0; i < 10; i++) {
+            runFullWindow(LATENCY * 3);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(limit);
+    }
+
+    @Test
+    public void limitNotGrowsWhenNotUsed() {
+
+        for (int i = 0; i < 10; i++) {
+            Permit permit = limiter.acquire().join();
+            nanoClock.addAndGet(LATENCY);
+            permit.release(Outcome.SUCCESS);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    public void limitIsHalvedWhenServerIsOverloaded() {
+
+        for (int i = 0; i < 10; i++) {
+            runFullWindow(LATENCY);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        limiter.acquire().join().release(Outcome.DROPPED);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        limiter.acquire().join().release(Outcome.DROPPED);
+        limiter.acquire().join().release(Outcome.DROPPED);
+        assertThat(limiter.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    public void ignoredOutcomeNotChangeLimit() {
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire().join().release(Outcome.IGNORED);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    private void runFullWindow(long latency) {
+        List<Permit> permits = new ArrayList<>();
+        int limit = limiter.getLimit();
+        for (int i = 0; i < limit; i++) {
+            permits.add(limiter.acquire().join());
+        }
+        nanoClock.addAndGet(latency);
+        permits.forEach(permit -> permit.release(Outcome.SUCCESS));
+    }
+}
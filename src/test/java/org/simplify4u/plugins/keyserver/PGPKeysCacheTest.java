@@ -23,32 +23,50 @@ import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import com.google.common.collect.Iterators;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.MoreFiles;
 import com.google.common.io.RecursiveDeleteOption;
+import io.vavr.control.Try;
 import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.util.encoders.Hex;
+import org.mockito.ArgumentCaptor;
 import org.simplify4u.plugins.keyserver.PGPKeysCache.KeyServerList;
+import org.simplify4u.plugins.keyserver.PGPKeysCache.KeyServerListAdaptive;
 import org.simplify4u.plugins.keyserver.PGPKeysCache.KeyServerListFallback;
 import org.simplify4u.plugins.keyserver.PGPKeysCache.KeyServerListLoadBalance;
 import org.simplify4u.plugins.keyserver.PGPKeysCache.KeyServerListOne;
+import org.simplify4u.plugins.utils.PhaseMetrics;
+import org.simplify4u.plugins.utils.PublicKeyUtils;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
@@ -139,6 +157,121 @@ public class PGPKeysCacheTest {
         verifyNoInteractions(keysServerClients.get(0));
     }
 
+    @Test
+    public void verifiedKeyRingsMarkersAreNotStoredByDefault() throws IOException, PGPException {
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true);
+
+        pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL);
+        pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL);
+
+        assertThat(cachePath.resolve("verified-keyrings")).doesNotExist();
+    }
+
+    @Test
+    public void verifiedKeyRingsMarkersAreStoredWhenEnabled() throws IOException, PGPException {
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true)
+                .withVerifiedKeyRingsMarkers();
+
+        pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL);
+
+        assertThat(cachePath.resolve("verified-keyrings")).exists();
+    }
+
+    @Test
+    public void getKeyCollectMetrics() throws IOException, PGPException {
+
+        PhaseMetrics metrics = new PhaseMetrics();
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true)
+                .withMetrics(metrics);
+
+        pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL);
+        pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL);
+
+        assertThat(metrics.getCounter(PhaseMetrics.KEYS_CACHE_MISSES)).isEqualTo(1);
+        assertThat(metrics.getCounter(PhaseMetrics.KEYS_CACHE_HITS)).isEqualTo(1);
+        assertThat(metrics.getCounter(PhaseMetrics.KEYSERVER_REQUESTS)).isEqualTo(1);
+        assertThat(metrics.getCount(PhaseMetrics.KEYS_FETCH)).isEqualTo(1);
+        assertThat(metrics.getCount(PhaseMetrics.KEYS_LOAD)).isEqualTo(2);
+        assertThat(metrics.getCount(PhaseMetrics.KEYS_GET)).isEqualTo(2);
+    }
+
+    @Test
+    public void getKeyFromPackedCache() throws IOException, PGPException {
+
+        try (PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true, false, true)) {
+            assertThat(pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL)).hasSize(2);
+        }
+
+        verify(keysServerClients.get(0)).copyKeyToOutputStream(anyLong(), any(OutputStream.class), any(PGPKeysServerClient.OnRetryConsumer.class));
+        clearInvocations(keysServerClients.get(0));
+
+        try (PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true, false, true)) {
+            assertThat(pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL)).hasSize(2);
+        }
+
+        verifyNoInteractions(keysServerClients.get(0));
+        assertThat(cachePath.resolve(PGPKeysPackStore.PACK_FILE)).exists();
+        assertThat(cachePath.resolve("EF")).doesNotExist();
+    }
+
+    @DataProvider(name = "packedStore")
+    public Object[][] packedStore() {
+        return new Object[][]{{false}, {true}};
+    }
+
+    @Test(dataProvider = "packedStore")
+    public void exportedKeysCanBeImported(boolean packedStore) throws IOException, PGPException {
+
+        File bundle = new File(cachePath.toFile(), "bundle.asc");
+        try (OutputStream outputStream = Files.newOutputStream(bundle.toPath())) {
+            outputStream.write(resourceContent("/3D8B00E198E21827.asc"));
+            outputStream.write(resourceContent("/EFE8086F9E93774E.asc"));
+        }
+
+        File exportFile = new File(cachePath.toFile(), "export.pgp");
+        Path sourceCache = cachePath.resolve("source");
+        int importedKeys;
+        try (PGPKeysCache pgpKeysCache = new PGPKeysCache(sourceCache.toFile(), keysServerClients, true, false,
+                packedStore)) {
+            importedKeys = pgpKeysCache.importKeyRings(bundle);
+            assertThat(pgpKeysCache.exportKeyRings(exportFile)).isEqualTo(2);
+        }
+
+        Path destinationCache = cachePath.resolve("destination");
+        try (PGPKeysCache pgpKeysCache = new PGPKeysCache(destinationCache.toFile(), keysServerClients, true, false,
+                !packedStore)) {
+            assertThat(pgpKeysCache.importKeyRings(exportFile)).isEqualTo(importedKeys);
+            assertThat(pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL)).hasSize(2);
+            assertThat(pgpKeysCache.getKeyRing(0x3D8B00E198E21827L)).isNotEmpty();
+        }
+
+        verifyNoInteractions(keysServerClients.get(0));
+    }
+
+    @Test
+    public void exhaustedBudgetFailFast() throws IOException, PGPException {
+
+        PGPKeysServerClient client = keysServerClients.get(0);
+        doThrow(new IOException("failed")).when(client).copyKeyToOutputStream(anyLong(), any(), any());
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true)
+                .withBudget(1, Duration.ZERO);
+
+        // retries are done by client, so simulate exhausted budget
+        ArgumentCaptor<KeyServerBudget> budget = ArgumentCaptor.forClass(KeyServerBudget.class);
+        verify(client).withBudget(budget.capture());
+        budget.getValue().onRetry();
+
+        assertThatCode(() -> pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL))
+                .isExactlyInstanceOf(IOException.class)
+                .hasMessage("Key servers budget exhausted - requests: 0, retries: 1 of 1, time: 0 ms, "
+                        + "skipped requests: 1, key 0xEFE8086F9E93774E is not requested");
+
+        verify(client, never()).copyKeyToOutputStream(anyLong(), any(), any());
+    }
+
     @Test
     public void nonExistingKeyInRingThrowException() throws IOException, PGPException {
 
@@ -150,6 +283,349 @@ public class PGPKeysCacheTest {
                 .hasMessageStartingWith("Can't find public key 0x0000001234567890 in download file:");
     }
 
+    @Test
+    public void responseWithoutKeyIsNotStored() throws IOException {
+
+        PGPKeysServerClient client = keysServerClients.get(0);
+        doAnswer(i -> {
+            i.<OutputStream>getArgument(1).write("<html><body>Service maintenance</body></html>".getBytes());
+            return null;
+        }).when(client).copyKeyToOutputStream(anyLong(), any(OutputStream.class), any(PGPKeysServerClient.OnRetryConsumer.class));
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatCode(() -> pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL))
+                    .isExactlyInstanceOf(PGPKeyNotFound.class)
+                    .hasMessageStartingWith("No key received from:");
+        }
+
+        // nothing was cached, so key is requested again
+        verify(client, times(2)).copyKeyToOutputStream(eq(0xEFE8086F9E93774EL), any(OutputStream.class),
+                any(PGPKeysServerClient.OnRetryConsumer.class));
+    }
+
+    @Test
+    public void importArmoredKeyRingsBundle() throws IOException, PGPException {
+
+        File bundle = new File(cachePath.toFile(), "bundle.asc");
+        try (OutputStream outputStream = Files.newOutputStream(bundle.toPath())) {
+            for (String resource : Arrays.asList("/3D8B00E198E21827.asc", "/EFE8086F9E93774E.asc")) {
+                try (InputStream inputStream = getClass().getResourceAsStream(resource)) {
+                    ByteStreams.copy(inputStream, outputStream);
+                }
+                outputStream.write('\n');
+            }
+        }
+
+        // EFE8086F9E93774E is sub key of 164BD2247B936711
+        assertImportedKeyRings(bundle, 0x3D8B00E198E21827L, 0x164BD2247B936711L);
+    }
+
+    @Test
+    public void importBinaryKeyRings() throws IOException, PGPException {
+
+        File keyRings = new File(cachePath.toFile(), "pubring.gpg");
+        try (OutputStream outputStream = Files.newOutputStream(keyRings.toPath())) {
+            for (String resource : Arrays.asList("/411063A3A0FFD119.asc", "/B0F3710FA64900E7.asc")) {
+                try (InputStream inputStream = getClass().getResourceAsStream(resource)) {
+                    PublicKeyUtils.loadPublicKeyRings(ByteStreams.toByteArray(inputStream)).get(0)
+                            .encode(outputStream);
+                }
+            }
+        }
+
+        assertImportedKeyRings(keyRings, 0x411063A3A0FFD119L, 0xB0F3710FA64900E7L);
+    }
+
+    private void assertImportedKeyRings(File keyRingsFile, long... masterKeyIds) throws IOException, PGPException {
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true);
+
+        List<PGPPublicKeyRing> keyRings = PublicKeyUtils.loadPublicKeyRings(Files.readAllBytes(keyRingsFile.toPath()));
+        assertThat(keyRings)
+                .extracting(keyRing -> keyRing.getPublicKey().getKeyID())
+                .containsExactlyInAnyOrder(Arrays.stream(masterKeyIds).boxed().toArray(Long[]::new));
+
+        int keysCount = keyRings.stream().mapToInt(keyRing -> Iterators.size(keyRing.getPublicKeys())).sum();
+        assertThat(keysCount).isGreaterThan(masterKeyIds.length);
+
+        assertThat(pgpKeysCache.importKeyRings(keyRingsFile)).isEqualTo(keysCount);
+        // keys already in cache are not imported again
+        assertThat(pgpKeysCache.importKeyRings(keyRingsFile)).isZero();
+
+        for (PGPPublicKeyRing keyRing : keyRings) {
+            long masterKeyId = keyRing.getPublicKey().getKeyID();
+            for (PGPPublicKey key : keyRing) {
+                assertThat(pgpKeysCache.getKeyRing(key.getKeyID()).getPublicKey().getKeyID())
+                        .isEqualTo(masterKeyId);
+            }
+        }
+
+        verifyNoInteractions(keysServerClients.get(0));
+    }
+
+    @Test
+    public void prefetchKeysByFingerprint() throws IOException, PGPException {
+
+        PGPKeysServerClient client = keysServerClients.get(0);
+        byte[] keyContent = resourceContent("/EFE8086F9E93774E.asc");
+        byte[] fingerprint = PublicKeyUtils.loadPublicKeyRings(keyContent).get(0).getPublicKey().getFingerprint();
+
+        doReturn(CompletableFuture.completedFuture(keyContent))
+                .when(client).getKeyAsync(any(byte[].class), any(), any());
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true);
+        pgpKeysCache.prefetchKeys(Collections.singletonList(fingerprint)).join();
+
+        verify(client).getKeyAsync(any(byte[].class), any(), any());
+        verifyNoMoreInteractions(client);
+
+        // master key and sub key are in cache
+        assertThat(pgpKeysCache.getKeyRing(0x164BD2247B936711L)).hasSize(2);
+        assertThat(pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL)).hasSize(2);
+        verifyNoMoreInteractions(client);
+
+        // next prefetch skip keys from cache
+        pgpKeysCache.prefetchKeys(Collections.singletonList(fingerprint)).join();
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    public void prefetchKeysFallbackToKeyId() throws IOException, PGPException {
+
+        PGPKeysServerClient client = keysServerClients.get(0);
+        byte[] keyContent = resourceContent("/EFE8086F9E93774E.asc");
+        byte[] fingerprint = PublicKeyUtils.loadPublicKeyRings(keyContent).get(0).getPublicKey().getFingerprint();
+
+        CompletableFuture<byte[]> notSupported = new CompletableFuture<>();
+        notSupported.completeExceptionally(new PGPKeyNotFound());
+        doReturn(notSupported).when(client).getKeyAsync(any(byte[].class), any(), any());
+        doReturn(CompletableFuture.completedFuture(keyContent))
+                .when(client).getKeyAsync(anyLong(), any(), any());
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true);
+        pgpKeysCache.prefetchKeys(Collections.singletonList(fingerprint)).join();
+
+        verify(client).getKeyAsync(any(byte[].class), any(), any());
+        verify(client).getKeyAsync(eq(0x164BD2247B936711L), any(), any());
+
+        assertThat(pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL)).hasSize(2);
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    public void prefetchKeysNotFallbackToKeyIdForServerError() throws IOException, PGPException {
+
+        PGPKeysServerClient client = keysServerClients.get(0);
+        byte[] keyContent = resourceContent("/EFE8086F9E93774E.asc");
+        byte[] fingerprint = PublicKeyUtils.loadPublicKeyRings(keyContent).get(0).getPublicKey().getFingerprint();
+
+        CompletableFuture<byte[]> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IOException("503 Service Unavailable"));
+        doReturn(failed).when(client).getKeyAsync(any(byte[].class), any(), any());
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true);
+        pgpKeysCache.prefetchKeys(Collections.singletonList(fingerprint)).join();
+
+        verify(client).getKeyAsync(any(byte[].class), any(), any());
+        verify(client, never()).getKeyAsync(anyLong(), any(), any());
+    }
+
+    @Test
+    public void getSubKeyWaitsForPrefetchOfMasterKey() throws Exception {
+
+        PGPKeysServerClient client = keysServerClients.get(0);
+        byte[] keyContent = resourceContent("/EFE8086F9E93774E.asc");
+        // fingerprint of master key
+        byte[] fingerprint = PublicKeyUtils.loadPublicKeyRings(keyContent).get(0).getPublicKey().getFingerprint();
+
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        doReturn(response).when(client).getKeyAsync(any(byte[].class), any(), any());
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true);
+        CompletableFuture<Void> prefetch = pgpKeysCache.prefetchKeys(Collections.singletonList(fingerprint));
+
+        // signature is made by sub key
+        CompletableFuture<PGPPublicKeyRing> subKey = CompletableFuture.supplyAsync(() ->
+                Try.of(() -> pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL)).get());
+
+        response.complete(keyContent);
+
+        assertThat(subKey.get(10, TimeUnit.SECONDS)).hasSize(2);
+        prefetch.join();
+
+        verify(client, never()).copyKeyToOutputStream(anyLong(), any(OutputStream.class),
+                any(PGPKeysServerClient.OnRetryConsumer.class));
+    }
+
+    @Test
+    public void closeCancelsPrefetchInProgress() throws Exception {
+
+        PGPKeysServerClient client = keysServerClients.get(0);
+        byte[] keyContent = resourceContent("/EFE8086F9E93774E.asc");
+        byte[] fingerprint = PublicKeyUtils.loadPublicKeyRings(keyContent).get(0).getPublicKey().getFingerprint();
+
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        doReturn(response).when(client).getKeyAsync(any(byte[].class), any(), any());
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true)
+                .withPrefetchCloseTimeout(Duration.ofMillis(100));
+        CompletableFuture<Void> prefetch = pgpKeysCache.prefetchKeys(Collections.singletonList(fingerprint));
+
+        pgpKeysCache.close();
+
+        assertThat(response).isCancelled();
+        prefetch.get(10, TimeUnit.SECONDS);
+
+        // late key rings are not stored in closed cache
+        File keyFile = cachePath.resolve("key.asc").toFile();
+        Files.write(keyFile.toPath(), keyContent);
+        assertThatCode(() -> pgpKeysCache.importKeyRings(keyFile))
+                .isExactlyInstanceOf(IOException.class)
+                .hasMessage("Keys cache is closed");
+    }
+
+    @Test
+    public void sharedPrefetchIsNotDuplicated() throws Exception {
+
+        PGPKeysServerClient client = keysServerClients.get(0);
+        byte[] keyContent = resourceContent("/EFE8086F9E93774E.asc");
+        byte[] fingerprint = PublicKeyUtils.loadPublicKeyRings(keyContent).get(0).getPublicKey().getFingerprint();
+
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        doReturn(response).when(client).getKeyAsync(any(byte[].class), any(), any());
+
+        Map<Long, CompletableFuture<Void>> sharedPrefetches = new ConcurrentHashMap<>();
+        PGPKeysCache pgpKeysCache1 = new PGPKeysCache(cachePath.toFile(), keysServerClients, true)
+                .withSharedPrefetches(sharedPrefetches);
+        PGPKeysCache pgpKeysCache2 = new PGPKeysCache(cachePath.toFile(), keysServerClients, true)
+                .withSharedPrefetches(sharedPrefetches);
+
+        CompletableFuture<Void> prefetch1 = pgpKeysCache1.prefetchKeys(Collections.singletonList(fingerprint));
+        CompletableFuture<Void> prefetch2 = pgpKeysCache2.prefetchKeys(Collections.singletonList(fingerprint));
+
+        // other cache waits for key fetched by first one
+        CompletableFuture<PGPPublicKeyRing> keyRing = CompletableFuture.supplyAsync(() ->
+                Try.of(() -> pgpKeysCache2.getKeyRing(0xEFE8086F9E93774EL)).get());
+
+        response.complete(keyContent);
+
+        assertThat(keyRing.get(10, TimeUnit.SECONDS)).hasSize(2);
+        CompletableFuture.allOf(prefetch1, prefetch2).get(10, TimeUnit.SECONDS);
+
+        verify(client, times(1)).getKeyAsync(any(byte[].class), any(), any());
+        verify(client, never()).copyKeyToOutputStream(anyLong(), any(OutputStream.class),
+                any(PGPKeysServerClient.OnRetryConsumer.class));
+        assertThat(sharedPrefetches).isEmpty();
+    }
+
+    @Test
+    public void prefetchManyKeysDoesNotOverflowStack() throws IOException {
+
+        PGPKeysServerClient client = keysServerClients.get(0);
+
+        CompletableFuture<byte[]> notFound = new CompletableFuture<>();
+        notFound.completeExceptionally(new PGPKeyNotFound());
+        doReturn(notFound).when(client).getKeyAsync(any(byte[].class), any(), any());
+        doReturn(notFound).when(client).getKeyAsync(anyLong(), any(), any());
+
+        List<byte[]> fingerprints = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            fingerprints.add(Hex.decode(String.format("9ABCDEF0123456789ABCDEF0123456%010X", i)));
+        }
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true);
+
+        assertThatCode(() -> pgpKeysCache.prefetchKeys(fingerprints).join())
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    public void prefetchKeysFailureIsIgnored() throws IOException, PGPException {
+
+        PGPKeysServerClient client = keysServerClients.get(0);
+
+        CompletableFuture<byte[]> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IOException("failed"));
+        doReturn(failed).when(client).getKeyAsync(any(byte[].class), any(), any());
+        doReturn(failed).when(client).getKeyAsync(anyLong(), any(), any());
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true);
+
+        assertThatCode(() -> pgpKeysCache.prefetchKeys(
+                Collections.singletonList(Hex.decode("9ABCDEF0123456789ABCDEF0123456789ABCDEF0"))).join())
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    public void getKeyFromKeysSource() throws IOException, PGPException {
+
+        byte[] keyContent = resourceContent("/EFE8086F9E93774E.asc");
+        PGPKeysSource keysSource = mock(PGPKeysSource.class);
+        doReturn(Optional.of(keyContent)).when(keysSource).getKeyRing(anyLong());
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true)
+                .withKeysSource(keysSource);
+
+        assertThat(pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL)).hasSize(2);
+        // master key is stored together with sub key
+        assertThat(pgpKeysCache.getKeyRing(0x164BD2247B936711L)).hasSize(2);
+
+        verify(keysSource).getKeyRing(0xEFE8086F9E93774EL);
+        verifyNoMoreInteractions(keysSource);
+        verifyNoInteractions(keysServerClients.get(0));
+    }
+
+    @Test
+    public void keysSourceMissFallbackToKeyServer() throws IOException, PGPException {
+
+        PGPKeysSource keysSource = mock(PGPKeysSource.class);
+        doReturn(Optional.empty()).when(keysSource).getKeyRing(0xEFE8086F9E93774EL);
+        doThrow(new IOException("broken")).when(keysSource).getKeyRing(0x164BD2247B936711L);
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true)
+                .withKeysSource(keysSource);
+
+        assertThat(pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL)).hasSize(2);
+
+        // broken source is like missing key
+        assertThat(pgpKeysCache.getKeyRing(0x164BD2247B936711L)).hasSize(2);
+
+        verify(keysSource).getKeyRing(0xEFE8086F9E93774EL);
+        verify(keysSource).getKeyRing(0x164BD2247B936711L);
+        verify(keysServerClients.get(0)).copyKeyToOutputStream(eq(0xEFE8086F9E93774EL), any(OutputStream.class),
+                any(PGPKeysServerClient.OnRetryConsumer.class));
+        verify(keysServerClients.get(0)).copyKeyToOutputStream(eq(0x164BD2247B936711L), any(OutputStream.class),
+                any(PGPKeysServerClient.OnRetryConsumer.class));
+    }
+
+    @Test
+    public void prefetchKeysFromKeysSource() throws IOException, PGPException {
+
+        PGPKeysServerClient client = keysServerClients.get(0);
+        byte[] keyContent = resourceContent("/EFE8086F9E93774E.asc");
+        byte[] fingerprint = PublicKeyUtils.loadPublicKeyRings(keyContent).get(0).getPublicKey().getFingerprint();
+
+        PGPKeysSource keysSource = mock(PGPKeysSource.class);
+        doReturn(Optional.of(keyContent)).when(keysSource).getKeyRing(anyLong());
+
+        PGPKeysCache pgpKeysCache = new PGPKeysCache(cachePath.toFile(), keysServerClients, true)
+                .withKeysSource(keysSource);
+        pgpKeysCache.prefetchKeys(Collections.singletonList(fingerprint)).join();
+
+        verify(keysSource).getKeyRing(0x164BD2247B936711L);
+        assertThat(pgpKeysCache.getKeyRing(0xEFE8086F9E93774EL)).hasSize(2);
+        verifyNoMoreInteractions(keysSource);
+        verifyNoInteractions(client);
+    }
+
+    private byte[] resourceContent(String name) throws IOException {
+        try (InputStream inputStream = getClass().getResourceAsStream(name)) {
+            return ByteStreams.toByteArray(inputStream);
+        }
+    }
+
     @DataProvider(name = "serverListTestData")
     public Object[][] serverListTestData() {
 
@@ -173,6 +649,70 @@ public class PGPKeysCacheTest {
         assertThat(keyServerList).isExactlyInstanceOf(aClass);
     }
 
+    @Test
+    public void createKeyServerListReturnAdaptiveImplementation() {
+
+        PGPKeysServerClient client1 = mock(PGPKeysServerClient.class);
+        PGPKeysServerClient client2 = mock(PGPKeysServerClient.class);
+
+        assertThat(PGPKeysCache.createKeyServerList(Arrays.asList(client1, client2), true, true))
+                .isExactlyInstanceOf(KeyServerListAdaptive.class);
+        assertThat(PGPKeysCache.createKeyServerList(Collections.singletonList(client1), true, true))
+                .isExactlyInstanceOf(KeyServerListOne.class);
+    }
+
+    @Test
+    public void adaptivePreferFasterServer() throws IOException {
+
+        PGPKeysServerClient client1 = mock(PGPKeysServerClient.class);
+        PGPKeysServerClient client2 = mock(PGPKeysServerClient.class);
+
+        AtomicLong clock = new AtomicLong();
+        KeyServerList keyServerList = new KeyServerListAdaptive(clock::get)
+                .withClients(Arrays.asList(client1, client2));
+
+        List<PGPKeysServerClient> executedClient = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            keyServerList.execute(client -> {
+                // first server is ten times slower
+                clock.addAndGet(client == client1 ? 100 : 10);
+                executedClient.add(client);
+            });
+        }
+
+        // both servers measured first, next only the faster one
+        assertThat(executedClient).containsExactly(client1, client2, client2, client2, client2);
+    }
+
+    @Test
+    public void adaptiveAvoidFailingServer() throws IOException {
+
+        PGPKeysServerClient client1 = mock(PGPKeysServerClient.class);
+        PGPKeysServerClient client2 = mock(PGPKeysServerClient.class);
+
+        doThrow(new IOException("Adaptive test")).when(client1).copyKeyToOutputStream(1, null, null);
+
+        AtomicLong clock = new AtomicLong();
+        KeyServerList keyServerList = new KeyServerListAdaptive(clock::get)
+                .withClients(Arrays.asList(client1, client2));
+
+        List<PGPKeysServerClient> executedClient = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            keyServerList.execute(client -> {
+                // failing server is faster
+                clock.addAndGet(client == client1 ? 10 : 50);
+                client.copyKeyToOutputStream(1, null, null);
+                executedClient.add(client);
+            });
+        }
+
+        assertThat(executedClient).containsExactly(client2, client2, client2);
+        verify(client1).copyKeyToOutputStream(1, null, null);
+        verify(client2, times(3)).copyKeyToOutputStream(1, null, null);
+    }
+
     @Test
     public void listOneUseFirstServerForCorrectExecute() throws IOException {
 
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.simplify4u.plugins.utils.PublicKeyUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PGPKeysPackStoreTest {
+
+    private static final long MASTER_KEY_ID = 0x164BD2247B936711L;
+    private static final long SUB_KEY_ID = 0xEFE8086F9E93774EL;
+    private static final long OTHER_KEY_ID = 0x3D8B00E198E21827L;
+
+    private Path cachePath;
+    private PGPPublicKeyRing keyRing;
+    private PGPPublicKeyRing otherKeyRing;
+
+    @BeforeMethod
+    public void setup() throws IOException, PGPException {
+        cachePath = Files.createTempDirectory("cache-path-test");
+        keyRing = loadKeyRing("/EFE8086F9E93774E.asc");
+        otherKeyRing = loadKeyRing("/3D8B00E198E21827.asc");
+    }
+
+    @AfterMethod
+    public void cleanup() throws IOException {
+        MoreFiles.deleteRecursively(cachePath, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void storedKeyCanBeRead() throws IOException, PGPException {
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertThat(store.contains(SUB_KEY_ID)).isFalse();
+
+            store.store(Arrays.asList(MASTER_KEY_ID, SUB_KEY_ID), Collections.singletonList(keyRing));
+
+            assertThat(store.contains(MASTER_KEY_ID)).isTrue();
+            assertThat(store.contains(SUB_KEY_ID)).isTrue();
+            assertThat(store.contains(OTHER_KEY_ID)).isFalse();
+            assertKeyRing(store, SUB_KEY_ID, MASTER_KEY_ID);
+        }
+    }
+
+    @Test
+    public void keysAreReadFromIndexAfterReopen() throws IOException, PGPException {
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            store.store(Arrays.asList(MASTER_KEY_ID, SUB_KEY_ID), Collections.singletonList(keyRing));
+            store.store(Collections.singletonList(OTHER_KEY_ID), Collections.singletonList(otherKeyRing));
+        }
+
+        assertThat(indexFiles()).containsExactly(
+                PGPKeysPackStore.indexFile(cachePath, Files.size(cachePath.resolve(PGPKeysPackStore.PACK_FILE))));
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertKeyRing(store, SUB_KEY_ID, MASTER_KEY_ID);
+            assertKeyRing(store, OTHER_KEY_ID, OTHER_KEY_ID);
+        }
+    }
+
+    @Test
+    public void packIsScannedWithoutIndex() throws IOException, PGPException {
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            store.store(Collections.singletonList(SUB_KEY_ID), Collections.singletonList(keyRing));
+        }
+
+        for (Path indexFile : indexFiles()) {
+            Files.delete(indexFile);
+        }
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertKeyRing(store, SUB_KEY_ID, MASTER_KEY_ID);
+        }
+    }
+
+    @Test
+    public void recordsAfterIndexAreScanned() throws IOException, PGPException {
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            store.store(Collections.singletonList(SUB_KEY_ID), Collections.singletonList(keyRing));
+        }
+
+        // index is not updated - like interrupted build
+        PGPKeysPackStore notClosed = new PGPKeysPackStore(cachePath);
+        notClosed.store(Collections.singletonList(OTHER_KEY_ID), Collections.singletonList(otherKeyRing));
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertKeyRing(store, SUB_KEY_ID, MASTER_KEY_ID);
+            assertKeyRing(store, OTHER_KEY_ID, OTHER_KEY_ID);
+        }
+        notClosed.close();
+    }
+
+    @Test
+    public void newIndexIsWrittenWhenOldIndexIsMapped() throws IOException, PGPException {
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            store.store(Collections.singletonList(SUB_KEY_ID), Collections.singletonList(keyRing));
+        }
+        List<Path> oldIndexFiles = indexFiles();
+
+        // old index is mapped by store during writing of new one
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertKeyRing(store, SUB_KEY_ID, MASTER_KEY_ID);
+            store.store(Collections.singletonList(OTHER_KEY_ID), Collections.singletonList(otherKeyRing));
+        }
+
+        assertThat(indexFiles())
+                .hasSize(1)
+                .doesNotContainAnyElementsOf(oldIndexFiles);
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertKeyRing(store, SUB_KEY_ID, MASTER_KEY_ID);
+            assertKeyRing(store, OTHER_KEY_ID, OTHER_KEY_ID);
+        }
+    }
+
+    @Test
+    public void newestIndexIsUsedAndOlderAreRemoved() throws IOException, PGPException {
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            store.store(Collections.singletonList(SUB_KEY_ID), Collections.singletonList(keyRing));
+        }
+
+        // like index which could not be removed, because it was mapped
+        Path olderIndex = PGPKeysPackStore.indexFile(cachePath, 8);
+        Files.write(olderIndex, new byte[]{1, 2, 3});
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertKeyRing(store, SUB_KEY_ID, MASTER_KEY_ID);
+            store.store(Collections.singletonList(OTHER_KEY_ID), Collections.singletonList(otherKeyRing));
+        }
+
+        assertThat(olderIndex).doesNotExist();
+        assertThat(indexFiles()).hasSize(1);
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertKeyRing(store, SUB_KEY_ID, MASTER_KEY_ID);
+            assertKeyRing(store, OTHER_KEY_ID, OTHER_KEY_ID);
+        }
+    }
+
+    @Test
+    public void invalidIndexIsRemovedAndPackIsScanned() throws IOException, PGPException {
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            store.store(Collections.singletonList(SUB_KEY_ID), Collections.singletonList(keyRing));
+        }
+        Path indexFile = indexFiles().get(0);
+        Files.write(indexFile, new byte[]{1, 2, 3});
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertThat(indexFile).doesNotExist();
+            assertKeyRing(store, SUB_KEY_ID, MASTER_KEY_ID);
+        }
+
+        assertThat(indexFile).exists();
+    }
+
+    @Test
+    public void keysStoredByOtherInstanceAreVisible() throws IOException, PGPException {
+
+        try (PGPKeysPackStore store1 = new PGPKeysPackStore(cachePath);
+             PGPKeysPackStore store2 = new PGPKeysPackStore(cachePath)) {
+
+            store1.store(Collections.singletonList(SUB_KEY_ID), Collections.singletonList(keyRing));
+            store2.store(Collections.singletonList(OTHER_KEY_ID), Collections.singletonList(otherKeyRing));
+
+            assertKeyRing(store1, OTHER_KEY_ID, OTHER_KEY_ID);
+            assertKeyRing(store2, SUB_KEY_ID, MASTER_KEY_ID);
+        }
+    }
+
+    @Test
+    public void incompleteRecordIsReplaced() throws IOException, PGPException {
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            store.store(Collections.singletonList(SUB_KEY_ID), Collections.singletonList(keyRing));
+        }
+
+        // interrupted write of next record
+        Path packPath = cachePath.resolve(PGPKeysPackStore.PACK_FILE);
+        try (FileChannel channel = FileChannel.open(packPath, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0x10, 0, 0, 0, 0, 1, 1, 2}));
+        }
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertKeyRing(store, SUB_KEY_ID, MASTER_KEY_ID);
+            store.store(Collections.singletonList(OTHER_KEY_ID), Collections.singletonList(otherKeyRing));
+        }
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertKeyRing(store, SUB_KEY_ID, MASTER_KEY_ID);
+            assertKeyRing(store, OTHER_KEY_ID, OTHER_KEY_ID);
+        }
+    }
+
+    @Test
+    public void removedKeyIsNotFound() throws IOException {
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            store.store(Arrays.asList(MASTER_KEY_ID, SUB_KEY_ID), Collections.singletonList(keyRing));
+            store.remove(SUB_KEY_ID);
+
+            assertThat(store.contains(MASTER_KEY_ID)).isTrue();
+            assertThat(store.contains(SUB_KEY_ID)).isFalse();
+            assertThatCode(() -> store.open(SUB_KEY_ID))
+                    .isExactlyInstanceOf(IOException.class)
+                    .hasMessageStartingWith("Key 0xEFE8086F9E93774E not found in:");
+        }
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            assertThat(store.contains(MASTER_KEY_ID)).isTrue();
+            assertThat(store.contains(SUB_KEY_ID)).isFalse();
+        }
+    }
+
+    @Test
+    public void forEachReturnsEachRecordOnce() throws IOException {
+
+        List<byte[]> contents = new ArrayList<>();
+
+        try (PGPKeysPackStore store = new PGPKeysPackStore(cachePath)) {
+            store.store(Arrays.asList(MASTER_KEY_ID, SUB_KEY_ID), Collections.singletonList(keyRing));
+            store.store(Collections.singletonList(OTHER_KEY_ID), Collections.singletonList(otherKeyRing));
+            store.remove(OTHER_KEY_ID);
+
+            store.forEach(contents::add);
+        }
+
+        assertThat(contents).hasSize(1);
+    }
+
+    @Test
+    public void invalidPackFileThrowsException() throws IOException {
+
+        Files.write(cachePath.resolve(PGPKeysPackStore.PACK_FILE), "not a pack".getBytes());
+
+        assertThatCode(() -> new PGPKeysPackStore(cachePath))
+                .isExactlyInstanceOf(IOException.class)
+                .hasMessageStartingWith("Invalid keys pack file:");
+    }
+
+    private static void assertKeyRing(PGPKeysStore store, long keyId, long masterKeyId)
+            throws IOException, PGPException {
+        try (InputStream inputStream = store.open(keyId)) {
+            Optional<PGPPublicKeyRing> ring = PublicKeyUtils.loadPublicKeyRing(inputStream, keyId);
+            assertThat(ring).hasValueSatisfying(r -> assertThat(r.getPublicKey().getKeyID()).isEqualTo(masterKeyId));
+        }
+    }
+
+    private PGPPublicKeyRing loadKeyRing(String name) throws IOException, PGPException {
+        try (InputStream inputStream = getClass().getResourceAsStream(name)) {
+            return PublicKeyUtils.loadPublicKeyRings(ByteStreams.toByteArray(inputStream)).get(0);
+        }
+    }
+
+    private List<Path> indexFiles() throws IOException {
+        List<Path> indexFiles = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(cachePath, "keys-*.idx")) {
+            paths.forEach(indexFiles::add);
+        }
+        return indexFiles;
+    }
+}
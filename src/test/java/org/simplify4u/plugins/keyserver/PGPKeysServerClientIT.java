@@ -20,6 +20,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -161,6 +164,62 @@ public class PGPKeysServerClientIT {
         }
     }
 
+    @Test
+    public void testClientRetryBudget() throws Exception {
+        AtomicInteger attemptedRetries = new AtomicInteger(0);
+
+        URI targetUri = new URI(String.format("http://localhost:%d/502", mockServer.getLocalPort()));
+
+        final PGPKeysServerClient client = new StubbedClient(targetUri, SHORT_TEST_TIMEOUT, SHORT_TEST_TIMEOUT, 5)
+                .withBudget(new KeyServerBudget(1, Duration.ZERO));
+
+        for (int i = 0; i < 2; i++) {
+            try (final ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+                client.copyKeyToOutputStream(TEST_KEYID, outputStream,
+                        (address, retry, waitInterval, exception) -> attemptedRetries.getAndIncrement());
+            } catch (IOException ex) {
+                assertEquals(ex.getMessage(), String.format("PGP server returned an error: HTTP/1.1 502 Bad Gateway "
+                        + "for: http://localhost:%d/502", mockServer.getLocalPort()));
+            }
+        }
+
+        // only first request is retried once, next failures are not retried like not found keys
+        assertEquals(attemptedRetries.get(), 1);
+    }
+
+    @Test(dataProvider = "badServerUrls")
+    public void testClientRetryAsync(final String targetUrl,
+                                     final String expectedExceptionString,
+                                     final boolean shouldRetry) throws Exception {
+        int maxRetries = 2;
+        AtomicInteger attemptedRetries = new AtomicInteger(0);
+
+        URI targetUri = new URI(String.format(targetUrl, mockServer.getLocalPort()));
+
+        final PGPKeysServerClient client
+                = new StubbedClient(targetUri, SHORT_TEST_TIMEOUT, SHORT_TEST_TIMEOUT, maxRetries);
+
+        CompletableFuture<byte[]> result = client.getKeyAsync(TEST_KEYID, KeyServerExecutors.shared(),
+                (address, retry, waitInterval, exception) -> attemptedRetries.getAndIncrement());
+
+        Throwable caughtException = null;
+        try {
+            result.get(30, TimeUnit.SECONDS);
+        } catch (ExecutionException ex) {
+            caughtException = ex.getCause();
+        }
+
+        assertNotNull(caughtException);
+        assertEquals(caughtException.toString().toUpperCase(),
+                String.format(expectedExceptionString, mockServer.getLocalPort()).toUpperCase());
+
+        if (shouldRetry) {
+            assertEquals(attemptedRetries.get(), maxRetries);
+        } else {
+            assertEquals(attemptedRetries.get(), 0);
+        }
+    }
+
     /**
      * A special key client that allows the URL the client is requesting to be stubbed-out by tests.
      *
@@ -4,6 +4,16 @@ import static org.simplify4u.plugins.utils.ProxyUtil.makeMavenProxy;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.maven.settings.Proxy;
@@ -57,4 +67,103 @@ public class PGPKeysServerClientTest {
             Assert.assertNotNull(closeableHttpClient);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void rejectedAsyncRequestFailsFuture() throws Exception {
+        PGPKeysServerClient pgpKeysServerClient = new PGPKeysServerClient(new URI("https://localhost/"),
+                10_000, 10_000, 1, null) {
+            @Override
+            protected HttpClientBuilder createClientBuilder() {
+                return HttpClientBuilder.create();
+            }
+        };
+
+        ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+        ioExecutor.shutdown();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            KeyServerExecutors executors = new KeyServerExecutors(ioExecutor, scheduler);
+
+            // more requests than limit of concurrency, so not released permits would block next requests
+            for (int i = 0; i < KeyServerConcurrencyLimiter.DEFAULT_MAX_LIMIT + 1; i++) {
+                CompletableFuture<byte[]> result = pgpKeysServerClient.getKeyAsync(1L, executors, null);
+                try {
+                    result.get(5, TimeUnit.SECONDS);
+                    Assert.fail("request should fail");
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause().getCause() instanceof RejectedExecutionException);
+                }
+            }
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void probingRequestIsNotRetried() throws Exception {
+        PGPKeysServerClient pgpKeysServerClient = new PGPKeysServerClient(new URI("https://localhost/"),
+                10_000, 10_000, 3, null) {
+            @Override
+            protected HttpClientBuilder createClientBuilder() {
+                return HttpClientBuilder.create();
+            }
+        };
+        pgpKeysServerClient.setProbing(true);
+
+        AtomicInteger attempts = new AtomicInteger();
+        ExecutorService ioExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                (command, executor) -> {
+                    attempts.incrementAndGet();
+                    throw new RejectedExecutionException("test");
+                });
+        ioExecutor.shutdown();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            KeyServerExecutors executors = new KeyServerExecutors(ioExecutor, scheduler);
+
+            CompletableFuture<byte[]> result = pgpKeysServerClient.getKeyAsync(1L, executors, null);
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                Assert.fail("request should fail");
+            } catch (ExecutionException e) {
+                Assert.assertEquals(attempts.get(), 1);
+            }
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelledRequestIsNotRetried() throws Exception {
+        PGPKeysServerClient pgpKeysServerClient = new PGPKeysServerClient(new URI("https://localhost:1/"),
+                10_000, 10_000, 3, null) {
+            @Override
+            protected HttpClientBuilder createClientBuilder() {
+                return HttpClientBuilder.create();
+            }
+        };
+
+        AtomicInteger attempts = new AtomicInteger();
+        ExecutorService ioExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                attempts.incrementAndGet();
+                super.execute(command);
+            }
+        };
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            KeyServerExecutors executors = new KeyServerExecutors(ioExecutor, scheduler);
+
+            CompletableFuture<byte[]> result = pgpKeysServerClient.getKeyAsync(1L, executors, null);
+            result.cancel(false);
+
+            // next attempt would be started after 500 ms
+            Thread.sleep(1500);
+            Assert.assertTrue(attempts.get() <= 1);
+        } finally {
+            ioExecutor.shutdownNow();
+            scheduler.shutdownNow();
+        }
+    }
+}
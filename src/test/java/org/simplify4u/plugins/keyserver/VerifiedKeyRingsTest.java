@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.keyserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.simplify4u.plugins.utils.PublicKeyUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class VerifiedKeyRingsTest {
+
+    private Path cachePath;
+    private PGPPublicKeyRing keyRing;
+
+    @BeforeMethod
+    public void setup() throws IOException, PGPException {
+        cachePath = Files.createTempDirectory("verified-keyrings-test");
+        try (InputStream inputStream = getClass().getResourceAsStream("/EFE8086F9E93774E.asc")) {
+            keyRing = PublicKeyUtils.loadPublicKeyRing(inputStream, 0xEFE8086F9E93774EL).get();
+        }
+    }
+
+    @AfterMethod
+    public void cleanup() throws IOException {
+        MoreFiles.deleteRecursively(cachePath, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void keyRingIsVerifiedOnlyOnce() throws IOException, PGPException {
+
+        VerifiedKeyRings.Verifier verifier = mock(VerifiedKeyRings.Verifier.class);
+        VerifiedKeyRings verifiedKeyRings = new VerifiedKeyRings(cachePath, verifier);
+
+        verifiedKeyRings.verify(keyRing);
+        verifiedKeyRings.verify(keyRing);
+
+        verify(verifier, times(1)).verify(keyRing);
+    }
+
+    @Test
+    public void verifiedKeyRingIsPersisted() throws IOException, PGPException {
+
+        new VerifiedKeyRings(cachePath).verify(keyRing);
+
+        VerifiedKeyRings.Verifier verifier = mock(VerifiedKeyRings.Verifier.class);
+        new VerifiedKeyRings(cachePath, verifier).verify(keyRing);
+
+        verifyNoInteractions(verifier);
+    }
+
+    @Test
+    public void invalidKeyRingIsNotMarked() throws IOException, PGPException {
+
+        VerifiedKeyRings.Verifier verifier = mock(VerifiedKeyRings.Verifier.class);
+        doThrow(new PGPException("invalid")).when(verifier).verify(keyRing);
+        VerifiedKeyRings verifiedKeyRings = new VerifiedKeyRings(cachePath, verifier);
+
+        assertThatCode(() -> verifiedKeyRings.verify(keyRing)).isExactlyInstanceOf(PGPException.class);
+        assertThatCode(() -> verifiedKeyRings.verify(keyRing)).isExactlyInstanceOf(PGPException.class);
+
+        verify(verifier, times(2)).verify(keyRing);
+        assertThat(cachePath.resolve("verified-keyrings")).doesNotExist();
+    }
+
+    @Test
+    public void brokenMarkersAreIgnored() throws IOException, PGPException {
+
+        Path markersFile = cachePath.resolve("verified-keyrings");
+        Files.write(markersFile, "broken line\n0123".getBytes(StandardCharsets.US_ASCII));
+
+        VerifiedKeyRings.Verifier verifier = mock(VerifiedKeyRings.Verifier.class);
+        new VerifiedKeyRings(cachePath, verifier).verify(keyRing);
+
+        verify(verifier).verify(keyRing);
+        List<String> lines = Files.readAllLines(markersFile, StandardCharsets.US_ASCII);
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(2)).hasSize(64);
+
+        VerifiedKeyRings.Verifier nextVerifier = mock(VerifiedKeyRings.Verifier.class);
+        new VerifiedKeyRings(cachePath, nextVerifier).verify(keyRing);
+        verifyNoInteractions(nextVerifier);
+    }
+}
@@ -24,6 +24,7 @@ import static org.simplify4u.plugins.TestUtils.getPGPgpPublicKey;
 
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.util.encoders.Hex;
 import org.simplify4u.plugins.utils.PublicKeyUtils;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -103,4 +104,14 @@ public class KeyInfoTest {
                     });
         }
     }
+
+    @Test
+    public void fingerprintsOnlyForFullFingerprints() {
+
+        KeyInfo keyInfo = new KeyInfo("0x123456789abcdef0, noSig, "
+                + "0x0000 DEF0 1234 5678 9ABC DEF0 1234 5678 9ABC DEF0");
+
+        assertThat(keyInfo.getFingerprints())
+                .containsExactly(Hex.decode("0000DEF0123456789ABCDEF0123456789ABCDEF0"));
+    }
 }
@@ -22,6 +22,7 @@ import static org.simplify4u.plugins.TestUtils.getPGPgpPublicKey;
 
 import io.vavr.control.Try;
 import org.apache.maven.plugin.logging.Log;
+import org.bouncycastle.util.encoders.Hex;
 import org.codehaus.plexus.DefaultPlexusContainer;
 import org.codehaus.plexus.PlexusContainer;
 import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
@@ -81,6 +82,14 @@ public class KeysMapTest {
     }
 
 
+    @Test
+    public void fingerprintsFromMap() throws Exception {
+        keysMap.load(log, "/keysMap.list");
+
+        assertThat(keysMap.getFingerprints())
+                .containsExactly(Hex.decode("9ABCDEF0123456789ABCDEF0123456789ABCDEF0"));
+    }
+
     @Test
     public void validKeyFromMap() throws Exception {
         keysMap.load(log, "/keysMap.list");
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.simplify4u.plugins.skipfilters;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+public class CoordinatesSkipperTest {
+
+    private static Artifact artifact(String groupId, String artifactId) {
+        return new DefaultArtifact(groupId, artifactId, "1.0", "compile", "jar", "classifier", null);
+    }
+
+    @Test
+    public void testConstructWithNull() {
+        assertThrows(NullPointerException.class, () -> new CoordinatesSkipper(null, emptyList()));
+        assertThrows(NullPointerException.class, () -> new CoordinatesSkipper(emptyList(), null));
+    }
+
+    @DataProvider
+    public static Object[][] invalidPatterns() {
+        return new Object[][]{
+                {""}, {":a"}, {"g:"}, {"g:a:b"}, {"g..a"}, {"g.*:a"}, {"g*"}, {"*"}
+        };
+    }
+
+    @Test(dataProvider = "invalidPatterns")
+    public void testInvalidPattern(String pattern) {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CoordinatesSkipper(emptyList(), singletonList(pattern)));
+    }
+
+    @Test
+    public void testEmptyPatternsSkipNothing() {
+        final CoordinatesSkipper filter = new CoordinatesSkipper(emptyList(), emptyList());
+        assertFalse(filter.shouldSkipArtifact(artifact("g", "a")));
+    }
+
+    @Test
+    public void testExcludes() {
+        final CoordinatesSkipper filter = new CoordinatesSkipper(emptyList(),
+                asList("com.example.internal.*", "org.example", "net.example:lib"));
+
+        assertTrue(filter.shouldSkipArtifact(artifact("com.example.internal", "a")));
+        assertTrue(filter.shouldSkipArtifact(artifact("com.example.internal.deep.group", "a")));
+        assertFalse(filter.shouldSkipArtifact(artifact("com.example", "a")));
+        assertFalse(filter.shouldSkipArtifact(artifact("com.example.internals", "a")));
+
+        assertTrue(filter.shouldSkipArtifact(artifact("org.example", "a")));
+        assertFalse(filter.shouldSkipArtifact(artifact("org.example.sub", "a")));
+
+        assertTrue(filter.shouldSkipArtifact(artifact("net.example", "lib")));
+        assertFalse(filter.shouldSkipArtifact(artifact("net.example", "other")));
+    }
+
+    @Test
+    public void testIncludes() {
+        final CoordinatesSkipper filter = new CoordinatesSkipper(asList("org.example.*", " net.example:lib "),
+                emptyList());
+
+        assertFalse(filter.shouldSkipArtifact(artifact("org.example", "a")));
+        assertFalse(filter.shouldSkipArtifact(artifact("org.example.sub", "a")));
+        assertFalse(filter.shouldSkipArtifact(artifact("net.example", "lib")));
+        assertTrue(filter.shouldSkipArtifact(artifact("net.example", "other")));
+        assertTrue(filter.shouldSkipArtifact(artifact("org", "a")));
+    }
+
+    @Test
+    public void testExcludesOverrideIncludes() {
+        final CoordinatesSkipper filter = new CoordinatesSkipper(singletonList("org.example.*"),
+                singletonList("org.example.internal.*"));
+
+        assertFalse(filter.shouldSkipArtifact(artifact("org.example.public", "a")));
+        assertTrue(filter.shouldSkipArtifact(artifact("org.example.internal", "a")));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.simplify4u.plugins.skipfilters;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultSessionData;
+import org.eclipse.aether.RepositorySystemSession;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ReactorDependencySkipperTest {
+
+    private MavenSession session;
+    private ProjectDependencyGraph dependencyGraph;
+    private MavenProject currentProject;
+
+    private static Artifact artifact(String artifactId, String version, String scope, String type,
+            String classifier) {
+        return new DefaultArtifact("g", artifactId, version, scope, type, classifier,
+                new DefaultArtifactHandler(type));
+    }
+
+    private static MavenProject project(String artifactId) {
+        final MavenProject project = mock(MavenProject.class);
+        when(project.getId()).thenReturn("g:" + artifactId + ":jar:1.0");
+        when(project.getArtifact()).thenReturn(artifact(artifactId, "1.0", "compile", "jar", null));
+        return project;
+    }
+
+    @BeforeMethod
+    public void setup() {
+        currentProject = project("current");
+
+        final List<MavenProject> upstreamProjects =
+                Arrays.asList(project("upstream1"), project("upstream2"), mock(MavenProject.class));
+
+        dependencyGraph = mock(ProjectDependencyGraph.class);
+        when(dependencyGraph.getUpstreamProjects(eq(currentProject), eq(true))).thenReturn(upstreamProjects);
+
+        final RepositorySystemSession repositorySession = mock(RepositorySystemSession.class);
+        when(repositorySession.getData()).thenReturn(new DefaultSessionData());
+
+        session = mock(MavenSession.class);
+        when(session.getProjectDependencyGraph()).thenReturn(dependencyGraph);
+        when(session.getRepositorySession()).thenReturn(repositorySession);
+    }
+
+    @Test
+    public void testUpstreamArtifactIsSkipped() {
+        final ReactorDependencySkipper filter = new ReactorDependencySkipper(currentProject, session);
+        assertTrue(filter.shouldSkipArtifact(artifact("upstream1", "1.0", "compile", "jar", null)));
+        assertTrue(filter.shouldSkipArtifact(artifact("upstream2", "1.0", "test", "test-jar", "tests")));
+    }
+
+    @Test
+    public void testOtherArtifactIsNotSkipped() {
+        final ReactorDependencySkipper filter = new ReactorDependencySkipper(currentProject, session);
+        assertFalse(filter.shouldSkipArtifact(artifact("upstream1", "2.0", "compile", "jar", null)));
+        assertFalse(filter.shouldSkipArtifact(artifact("other", "1.0", "compile", "jar", null)));
+    }
+
+    @Test
+    public void testUpstreamProjectsAreComputedOncePerSession() {
+        new ReactorDependencySkipper(currentProject, session);
+        final ReactorDependencySkipper filter = new ReactorDependencySkipper(currentProject, session);
+
+        assertTrue(filter.shouldSkipArtifact(artifact("upstream1", "1.0", "compile", "jar", null)));
+        verify(dependencyGraph, times(1)).getUpstreamProjects(currentProject, true);
+    }
+
+    @Test
+    public void testWithoutRepositorySession() {
+        when(session.getRepositorySession()).thenReturn(null);
+
+        final ReactorDependencySkipper filter = new ReactorDependencySkipper(currentProject, session);
+        assertTrue(filter.shouldSkipArtifact(artifact("upstream1", "1.0", "compile", "jar", null)));
+    }
+}
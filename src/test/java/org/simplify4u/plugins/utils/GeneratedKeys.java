@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.util.Date;
+
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPKeyRingGenerator;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureGenerator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+
+/**
+ * Keys and signatures generated for benchmarks and scale tests, so they do not need any key server.
+ */
+public final class GeneratedKeys {
+
+    private static final int MASTER_KEY_SIZE = 2048;
+    // smaller sub keys, generating many of them should not take too long
+    private static final int SUB_KEY_SIZE = 1024;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private GeneratedKeys() {
+    }
+
+    /**
+     * Generate RSA key pair.
+     *
+     * @param bits size of key
+     * @return key pair
+     * @throws PGPException if problem with PGP data
+     */
+    public static BcPGPKeyPair keyPair(int bits) throws PGPException {
+        RSAKeyPairGenerator generator = new RSAKeyPairGenerator();
+        generator.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x10001), RANDOM, bits, 12));
+        return new BcPGPKeyPair(PGPPublicKey.RSA_GENERAL, generator.generateKeyPair(), new Date());
+    }
+
+    /**
+     * Generate key ring with master key, one user ID and given number of sub keys.
+     *
+     * @param masterKeyPair master key
+     * @param subKeys       number of sub keys
+     * @return public key ring
+     * @throws PGPException if problem with PGP data
+     */
+    public static PGPPublicKeyRing keyRing(BcPGPKeyPair masterKeyPair, int subKeys) throws PGPException {
+        PGPKeyRingGenerator generator = new PGPKeyRingGenerator(PGPSignature.POSITIVE_CERTIFICATION,
+                masterKeyPair, "Generated <generated@example.com>",
+                new BcPGPDigestCalculatorProvider().get(HashAlgorithmTags.SHA1), null, null,
+                new BcPGPContentSignerBuilder(PGPPublicKey.RSA_GENERAL, HashAlgorithmTags.SHA256), null);
+
+        for (int i = 0; i < subKeys; i++) {
+            generator.addSubKey(keyPair(SUB_KEY_SIZE));
+        }
+        return generator.generatePublicKeyRing();
+    }
+
+    /**
+     * Generate key ring with new master key and given number of sub keys.
+     *
+     * @param subKeys number of sub keys
+     * @return public key ring
+     * @throws PGPException if problem with PGP data
+     */
+    public static PGPPublicKeyRing keyRing(int subKeys) throws PGPException {
+        return keyRing(keyPair(MASTER_KEY_SIZE), subKeys);
+    }
+
+    /**
+     * Sign file content, like <code>gpg --detach-sign</code>.
+     *
+     * @param keyPair       signing key
+     * @param hashAlgorithm hash algorithm
+     * @param file          file to sign
+     * @return signature
+     * @throws PGPException if problem with PGP data
+     * @throws IOException  if problem with reading file
+     */
+    public static PGPSignature sign(BcPGPKeyPair keyPair, int hashAlgorithm, File file)
+            throws PGPException, IOException {
+        PGPSignatureGenerator signatureGenerator = new PGPSignatureGenerator(
+                new BcPGPContentSignerBuilder(PGPPublicKey.RSA_GENERAL, hashAlgorithm));
+        signatureGenerator.init(PGPSignature.BINARY_DOCUMENT, keyPair.getPrivateKey());
+
+        byte[] buffer = new byte[8192];
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            int len;
+            while ((len = inputStream.read(buffer)) >= 0) {
+                signatureGenerator.update(buffer, 0, len);
+            }
+        }
+        return signatureGenerator.generate();
+    }
+
+    /**
+     * Random content.
+     *
+     * @param size size of content in bytes
+     * @return random bytes
+     */
+    public static byte[] randomBytes(int size) {
+        byte[] content = new byte[size];
+        RANDOM.nextBytes(content);
+        return content;
+    }
+
+    /**
+     * Create file with random content.
+     *
+     * @param size size of file in bytes
+     * @return temporary file, deleted on exit
+     * @throws IOException if problem with writing file
+     */
+    public static File randomFile(int size) throws IOException {
+        File file = File.createTempFile("benchmark-artifact", ".jar");
+        file.deleteOnExit();
+
+        Files.write(file.toPath(), randomBytes(size));
+        return file;
+    }
+}
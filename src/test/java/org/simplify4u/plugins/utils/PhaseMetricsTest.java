@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.testng.annotations.Test;
+
+public class PhaseMetricsTest {
+
+    @Test
+    public void countersAreSummed() {
+        PhaseMetrics metrics = new PhaseMetrics();
+
+        metrics.increment(PhaseMetrics.ARTIFACTS);
+        metrics.add(PhaseMetrics.ARTIFACTS, 10);
+
+        assertThat(metrics.getCounter(PhaseMetrics.ARTIFACTS)).isEqualTo(11);
+        assertThat(metrics.getCounter(PhaseMetrics.BYTES_HASHED)).isZero();
+    }
+
+    @Test
+    public void timerIsRecordedOnce() throws InterruptedException {
+        PhaseMetrics metrics = new PhaseMetrics();
+
+        PhaseMetrics.Timer timer = metrics.start(PhaseMetrics.KEYS_GET);
+        Thread.sleep(5);
+        timer.close();
+        timer.close();
+
+        assertThat(metrics.getCount(PhaseMetrics.KEYS_GET)).isEqualTo(1);
+        assertThat(metrics.getTime(PhaseMetrics.KEYS_GET)).isGreaterThanOrEqualTo(Duration.ofMillis(5));
+        assertThat(metrics.getCount(PhaseMetrics.KEYS_FETCH)).isZero();
+        assertThat(metrics.getTime(PhaseMetrics.KEYS_FETCH)).isZero();
+    }
+
+    @Test
+    public void writeJsonWithSortedNames() throws IOException {
+        PhaseMetrics metrics = new PhaseMetrics();
+        metrics.add(PhaseMetrics.KEYS_CACHE_MISSES, 2);
+        metrics.add(PhaseMetrics.BYTES_HASHED, 1024);
+        metrics.start(PhaseMetrics.EXECUTE).close();
+
+        Path directory = Files.createTempDirectory("metrics-test");
+        try {
+            Path file = directory.resolve("target/pgpverify-metrics.json");
+
+            metrics.writeJson(file);
+
+            String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            assertThat(json)
+                    .startsWith("{\n  \"timers\": {\n    \"execute\": {\"count\": 1, \"totalMillis\": ")
+                    .endsWith("  \"counters\": {\n"
+                            + "    \"bytes.hashed\": 1024,\n"
+                            + "    \"keys.cache.misses\": 2\n"
+                            + "  }\n}\n");
+        } finally {
+            MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void writeJsonWithoutMeasures() throws IOException {
+        Path file = Files.createTempFile("metrics-test", ".json");
+        try {
+            new PhaseMetrics().writeJson(file);
+
+            assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+                    .isEqualTo("{\n  \"timers\": {},\n  \"counters\": {}\n}\n");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -15,16 +15,22 @@
  */
 package org.simplify4u.plugins.utils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
 
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPSignature;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 public class PublicKeyUtilsTest {
@@ -47,6 +53,31 @@ public class PublicKeyUtilsTest {
     }
 
 
+    @DataProvider
+    public Object[][] contentVerifierBackends() {
+        return new Object[][]{
+                {ContentVerifierBackend.BC},
+                {ContentVerifierBackend.JCA}
+        };
+    }
+
+    @Test(dataProvider = "contentVerifierBackends")
+    public void verifySubKeysWithBackend(ContentVerifierBackend backend) {
+
+        assertThatCode(() -> PublicKeyUtils.verifyPublicKeyRing(publicKeyRing, backend.getProvider()))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    public void contentVerifierBackendByName() {
+
+        assertThat(ContentVerifierBackend.fromName("bc")).isEqualTo(ContentVerifierBackend.BC);
+        assertThat(ContentVerifierBackend.fromName(" JCA ")).isEqualTo(ContentVerifierBackend.JCA);
+        assertThatCode(() -> ContentVerifierBackend.fromName("xxx"))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown content verifier: xxx, supported are: bc, jca");
+    }
+
     @Test
     public void fingerPrintForMasterWithSubKey() {
 
@@ -149,4 +180,45 @@ public class PublicKeyUtilsTest {
                     );
         }
     }
+
+    @Test
+    public void keyIdFromFingerprint() {
+
+        for (PGPPublicKey key : publicKeyRing) {
+            assertThat(PublicKeyUtils.keyIdFromFingerprint(key.getFingerprint())).isEqualTo(key.getKeyID());
+        }
+    }
+
+    @Test
+    public void minimizeKeyRingRemovesThirdPartyCertifications() throws IOException, PGPException {
+
+        try (InputStream inputStream = getClass().getResourceAsStream("/411063A3A0FFD119.asc")) {
+            PGPPublicKeyRing keyRing = PublicKeyUtils.loadPublicKeyRing(inputStream, 0x411063A3A0FFD119L).get();
+            long masterKeyId = keyRing.getPublicKey().getKeyID();
+
+            PGPPublicKeyRing minimized = PublicKeyUtils.minimizeKeyRing(keyRing);
+
+            assertThat(minimized.getEncoded()).hasSizeLessThan(keyRing.getEncoded().length);
+            List<Long> keyIds = new ArrayList<>();
+            keyRing.forEach(key -> keyIds.add(key.getKeyID()));
+            assertThat(minimized)
+                    .extracting(PGPPublicKey::getKeyID)
+                    .containsExactlyElementsOf(keyIds);
+            assertThat(minimized.getPublicKey().getUserAttributes()).isExhausted();
+
+            List<PGPSignature> certifications = new ArrayList<>();
+            minimized.getPublicKey().getRawUserIDs().forEachRemaining(userId ->
+                    minimized.getPublicKey().getSignaturesForID(userId).forEachRemaining(certifications::add));
+            assertThat(certifications)
+                    .isNotEmpty()
+                    .allMatch(sig -> sig.getKeyID() == masterKeyId);
+
+            // minimized key ring is still valid
+            try (InputStream minimizedStream = new ByteArrayInputStream(minimized.getEncoded())) {
+                assertThat(PublicKeyUtils.loadPublicKeyRing(minimizedStream, 0x411063A3A0FFD119L))
+                        .hasValueSatisfying(ring -> assertThat(PublicKeyUtils.getUserIDs(ring.getPublicKey(), ring))
+                                .contains("Stian Soiland <stain@stud.ntnu.no>"));
+            }
+        }
+    }
 }